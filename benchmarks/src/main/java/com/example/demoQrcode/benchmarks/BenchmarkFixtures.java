@@ -0,0 +1,61 @@
+package com.example.demoQrcode.benchmarks;
+
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.service.impl.LiquidationQRServiceImpl;
+import org.springframework.beans.BeanUtils;
+
+import java.lang.reflect.Constructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Jeux de données partagés par les benchmarks
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static Customer customer() {
+        Customer customer = new Customer();
+        customer.setId(1L);
+        customer.setFirstName("John");
+        customer.setLastName("Doe");
+        customer.setAddress("123 Main Street, Abidjan, Côte d'Ivoire");
+        customer.setIfu("IFU123456");
+        customer.setPhone("+22501234567");
+        customer.setEmail("john.doe@example.com");
+        return customer;
+    }
+
+    /**
+     * Liquidation en retard de {@code overdueDays} jours (0 = échéance non dépassée)
+     */
+    static Liquidation liquidation(Customer customer, int overdueDays, LiquidationStatus status) {
+        Liquidation liquidation = new Liquidation();
+        liquidation.setId(1L);
+        liquidation.setCustomer(customer);
+        liquidation.setTaxType("TVA");
+        liquidation.setAmount(new BigDecimal("50000.00"));
+        liquidation.setIssueDate(LocalDate.now().minusDays(overdueDays + 30L));
+        liquidation.setDueDate(LocalDate.now().minusDays(overdueDays));
+        liquidation.setStatus(status);
+        return liquidation;
+    }
+
+    /**
+     * Service QR construit sans Spring : chaque paramètre du constructeur reçoit le collaborateur
+     * de son type parmi {@code collaborators}, les autres (repository, JDBC, transactions...) restent nuls.
+     * Suffisant pour le mapping et les références, qui n'utilisent que la configuration et le générateur.
+     */
+    static LiquidationQRServiceImpl liquidationQRService(Object... collaborators) {
+        Constructor<LiquidationQRServiceImpl> constructor = BeanUtils.getResolvableConstructor(LiquidationQRServiceImpl.class);
+        Object[] args = Arrays.stream(constructor.getParameterTypes())
+                .map(type -> Arrays.stream(collaborators).filter(type::isInstance).findFirst().orElse(null))
+                .toArray();
+        return BeanUtils.instantiateClass(constructor, args);
+    }
+}
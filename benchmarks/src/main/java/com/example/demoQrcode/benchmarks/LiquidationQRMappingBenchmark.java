@@ -0,0 +1,61 @@
+package com.example.demoQrcode.benchmarks;
+
+import com.aveplus.uemoa.qr.model.MerchantInfo;
+import com.aveplus.uemoa.qr.model.QRPaymentData;
+import com.example.demoQrcode.config.UemoaConfig;
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.service.LiquidationQRService;
+import com.example.demoQrcode.service.TransactionReferenceGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping Liquidation/Customer vers le modèle UEMOA et génération des références de transaction.
+ * Ces méthodes n'utilisent ni le repository ni le module UEMOA : le service est construit sans Spring.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class LiquidationQRMappingBenchmark {
+
+    private LiquidationQRService liquidationQRService;
+    private Customer customer;
+    private Liquidation liquidation;
+
+    @Setup
+    public void setUp() {
+        liquidationQRService = BenchmarkFixtures.liquidationQRService(new UemoaConfig(), new TransactionReferenceGenerator(0));
+        customer = BenchmarkFixtures.customer();
+        liquidation = BenchmarkFixtures.liquidation(customer, 0, LiquidationStatus.PENDING);
+    }
+
+    @Benchmark
+    public MerchantInfo mapCustomerToMerchantInfo() {
+        return liquidationQRService.mapCustomerToMerchantInfo(customer);
+    }
+
+    @Benchmark
+    public QRPaymentData mapLiquidationToQRPaymentData() {
+        return liquidationQRService.mapLiquidationToQRPaymentData(liquidation);
+    }
+
+    @Benchmark
+    public String generateTransactionReference() {
+        return liquidationQRService.generateTransactionReference(liquidation);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demoQrcode.benchmarks;
+
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.service.LiquidationService;
+import com.example.demoQrcode.service.impl.LiquidationServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calcul des pénalités de retard ({@link LiquidationServiceImpl#calculatePenalty}).
+ * {@code overdueDays = 0} mesure le chemin court (échéance non dépassée).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PenaltyCalculationBenchmark {
+
+    @Param({"0", "45"})
+    private int overdueDays;
+
+    private LiquidationService liquidationService;
+    private Liquidation liquidation;
+    private BigDecimal dailyRate;
+
+    @Setup
+    public void setUp() {
+        liquidationService = new LiquidationServiceImpl();
+        liquidation = BenchmarkFixtures.liquidation(BenchmarkFixtures.customer(), overdueDays, LiquidationStatus.OVERDUE);
+        dailyRate = new BigDecimal("0.001");
+    }
+
+    @Benchmark
+    public BigDecimal calculatePenalty() {
+        return liquidationService.calculatePenalty(liquidation, dailyRate);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demoQrcode.benchmarks;
+
+import com.example.demoQrcode.service.TransactionReferenceGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Génération des références de transaction ({@link TransactionReferenceGenerator}), sur un et plusieurs threads.
+ * {@code legacyReference*} reproduit l'ancien format LIQ-{ID}-{yyyyMMddHHmmss}-{UUID tronqué} pour comparaison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class TransactionReferenceBenchmark {
+
+    private TransactionReferenceGenerator generator;
+
+    @Setup
+    public void setUp() {
+        generator = new TransactionReferenceGenerator(0);
+    }
+
+    @Benchmark
+    public String reference() {
+        return generator.next("LIQ-42");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String referenceContended() {
+        return generator.next("LIQ-42");
+    }
+
+    @Benchmark
+    public String legacyReference() {
+        return legacy();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String legacyReferenceContended() {
+        return legacy();
+    }
+
+    private static String legacy() {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+        String uuid = UUID.randomUUID().toString().substring(0, 8);
+        return String.format("LIQ-%d-%s-%s", 42L, timestamp, uuid);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.demoQrcode.benchmarks;
+
+import com.aveplus.uemoa.qr.model.QRPaymentData;
+import com.aveplus.uemoa.qr.service.UemoaQRService;
+import com.example.demoQrcode.config.UemoaAutoConfiguration;
+import com.example.demoQrcode.config.UemoaConfig;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.service.EmvcoPayload;
+import com.example.demoQrcode.service.EmvcoQREncoder;
+import com.example.demoQrcode.service.impl.LiquidationQRServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Génération (statique/dynamique) et parsing via le module uemoa-qrcode-module.
+ * Le service est obtenu comme dans l'application, par le scan de {@link UemoaAutoConfiguration},
+ * afin de mesurer l'implémentation réellement embarquée (utile lors des montées de version du module).
+ * {@code encode*} mesure la voie rapide ({@link EmvcoQREncoder}) sur les mêmes données, {@code read*}
+ * la lecture sans copie ({@link EmvcoPayload}) à comparer au parsing du module (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class UemoaQRServiceBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private UemoaQRService uemoaQRService;
+    private EmvcoQREncoder emvcoQREncoder;
+    private QRPaymentData staticPaymentData;
+    private QRPaymentData dynamicPaymentData;
+    private String staticPayload;
+    private String dynamicPayload;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(UemoaAutoConfiguration.class, UemoaConfig.class, EmvcoQREncoder.class,
+                SimpleMeterRegistry.class);
+        uemoaQRService = context.getBean(UemoaQRService.class);
+        emvcoQREncoder = context.getBean(EmvcoQREncoder.class);
+
+        LiquidationQRServiceImpl mapper = BenchmarkFixtures.liquidationQRService(new UemoaConfig());
+        staticPaymentData = mapper.mapLiquidationToQRPaymentData(
+                BenchmarkFixtures.liquidation(BenchmarkFixtures.customer(), 0, LiquidationStatus.PENDING));
+        dynamicPaymentData = mapper.mapLiquidationToQRPaymentData(
+                BenchmarkFixtures.liquidation(BenchmarkFixtures.customer(), 0, LiquidationStatus.PENDING));
+        dynamicPaymentData.setTransactionId("LIQ-1-20240101120000-abcd1234");
+        staticPayload = uemoaQRService.generateStaticQR(staticPaymentData);
+        dynamicPayload = uemoaQRService.generateDynamicQR(dynamicPaymentData);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String generateStaticQR() {
+        return uemoaQRService.generateStaticQR(staticPaymentData);
+    }
+
+    @Benchmark
+    public String generateDynamicQR() {
+        return uemoaQRService.generateDynamicQR(dynamicPaymentData);
+    }
+
+    @Benchmark
+    public String encodeStaticQR() {
+        return emvcoQREncoder.encode(staticPaymentData, false);
+    }
+
+    @Benchmark
+    public String encodeDynamicQR() {
+        return emvcoQREncoder.encode(dynamicPaymentData, true);
+    }
+
+    @Benchmark
+    public QRPaymentData parseQRCode() {
+        return uemoaQRService.parseQRCode(staticPayload);
+    }
+
+    /**
+     * Lecture et vérification du CRC seules : aucune valeur n'est extraite
+     */
+    @Benchmark
+    public EmvcoPayload readQRCode() {
+        return EmvcoPayload.parse(staticPayload);
+    }
+
+    /**
+     * Vérification d'un paiement : CRC, référence et montant comparés sans extraction
+     */
+    @Benchmark
+    public boolean verifyDynamicQRCode() {
+        EmvcoPayload payload = EmvcoPayload.parse(dynamicPayload);
+        return payload.referenceEquals("LIQ-1-20240101120000-abcd1234") && payload.valueEquals(EmvcoPayload.AMOUNT, "50000");
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.demoQrcode.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mesure la durée pendant laquelle chaque requête HTTP garde une connexion JDBC (db.connection.hold),
+ * de son emprunt au pool à sa restitution, étiquetée par endpoint (uri) ; "none" hors requête
+ * (traitements planifiés, exécuteurs asynchrones). Complète hikaricp.connections.usage, qui ne
+ * distingue pas les endpoints, pour dimensionner le pool Hikari.
+ */
+@Configuration
+public class ConnectionHoldMetricsConfig {
+
+    public static final String CONNECTION_HOLD = "db.connection.hold";
+
+    @Bean
+    public static BeanPostProcessor connectionHoldDataSourcePostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConnectionHoldDataSource)) {
+                    return new ConnectionHoldDataSource(dataSource, meterRegistry);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * DataSource dont les connexions enregistrent leur durée d'utilisation à leur fermeture
+     */
+    static class ConnectionHoldDataSource extends DelegatingDataSource {
+
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+
+        ConnectionHoldDataSource(DataSource target, ObjectProvider<MeterRegistry> meterRegistry) {
+            super(target);
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return track(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return track(super.getConnection(username, password));
+        }
+
+        private Connection track(Connection connection) {
+            long start = System.nanoTime();
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+                            record(System.nanoTime() - start);
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+
+        private void record(long nanos) {
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry == null) {
+                return;
+            }
+            Timer.builder(CONNECTION_HOLD)
+                    .description("Durée de détention d'une connexion JDBC, par endpoint")
+                    .tag("uri", currentUri())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Motif de l'endpoint (ex. /api/liquidations/{id}/generate-qr), pour borner le nombre de séries
+         */
+        private static String currentUri() {
+            if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+                return "none";
+            }
+            HttpServletRequest request = attributes.getRequest();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            return pattern != null ? pattern.toString() : "UNKNOWN";
+        }
+    }
+}
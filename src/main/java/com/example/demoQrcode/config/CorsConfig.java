@@ -28,11 +28,12 @@ public class CorsConfig {
     private List<String> allowedHeaders = Arrays.asList(
         "Authorization", "Content-Type", "X-Requested-With", 
         "Accept", "Origin", "Access-Control-Request-Method",
-        "Access-Control-Request-Headers", "X-Test-Type", "X-Test-Index"
+        "Access-Control-Request-Headers", "X-Test-Type", "X-Test-Index",
+        "Idempotency-Key"
     );
 
     private List<String> exposedHeaders = Arrays.asList(
-        "Authorization", "Content-Type", "X-Test-Type", "X-Test-Index"
+        "Authorization", "Content-Type", "X-Test-Type", "X-Test-Index", "Idempotent-Replayed"
     );
 
     private boolean allowCredentials = true;
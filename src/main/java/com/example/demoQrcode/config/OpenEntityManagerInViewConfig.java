@@ -0,0 +1,40 @@
+package com.example.demoQrcode.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Open Session In View, sauf pour les endpoints de génération de QR code.
+ *
+ * Avec l'OSIV, la première requête SQL d'un appel garde sa connexion JDBC jusqu'à la fin de la réponse,
+ * encodage EMVCo compris. Les générations lisent la liquidation avec son client et son artefact
+ * (findWithQrArtifactById) puis n'ouvrent qu'une courte transaction d'écriture : sans OSIV, elles ne
+ * tiennent une connexion que le temps de ces deux accès. Remplace l'intercepteur de Spring Boot
+ * (spring.jpa.open-in-view=false).
+ */
+@Configuration
+public class OpenEntityManagerInViewConfig implements WebMvcConfigurer {
+
+    static final String[] QR_GENERATION_PATHS = {
+            "/api/liquidations/*/generate-qr",
+            "/api/liquidations/*/regenerate-qr",
+            "/api/liquidations/*/qr/static",
+            "/api/liquidations/*/qr/dynamic",
+            "/api/liquidations/*/qr/p2p",
+            "/api/liquidations/*/qr/penalty"
+    };
+
+    @Bean
+    public OpenEntityManagerInViewInterceptor openEntityManagerInViewInterceptor() {
+        return new OpenEntityManagerInViewInterceptor();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addWebRequestInterceptor(openEntityManagerInViewInterceptor())
+                .excludePathPatterns(QR_GENERATION_PATHS);
+    }
+}
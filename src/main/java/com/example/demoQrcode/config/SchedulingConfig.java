@@ -0,0 +1,12 @@
+package com.example.demoQrcode.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Active les traitements planifiés (purge des QR codes expirés, ...)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -4,6 +4,7 @@ import com.example.demoQrcode.security.JwtAuthenticationEntryPoint;
 import com.example.demoQrcode.security.JwtAuthenticationFilter;
 import com.example.demoQrcode.service.CustomUserDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -18,6 +19,8 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -38,6 +41,12 @@ public class SecurityConfig {
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
 
+    /**
+     * Port du serveur d'administration (actuator) ; absent, l'actuator partage le port de l'API
+     */
+    @Value("${management.server.port:#{null}}")
+    private Integer managementPort;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
@@ -75,6 +84,10 @@ public class SecurityConfig {
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/h2-console/**").permitAll()
                         .requestMatchers("/error").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        // Scraping sans authentification uniquement sur le port de supervision (management.server.port)
+                        .requestMatchers(onManagementPort("/actuator/prometheus")).permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .authenticationProvider(authenticationProvider(userDetailsService()))
@@ -83,6 +96,14 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * Requêtes reçues sur le port d'administration : jamais vrai quand l'actuator partage le port public
+     */
+    private RequestMatcher onManagementPort(String pattern) {
+        RequestMatcher path = new AntPathRequestMatcher(pattern);
+        return request -> managementPort != null && request.getLocalPort() == managementPort && path.matches(request);
+    }
+
     /**
      * Configuration CORS globale pour permettre l'accès depuis le frontend
      */
@@ -107,12 +128,13 @@ public class SecurityConfig {
         configuration.setAllowedHeaders(Arrays.asList(
             "Authorization", "Content-Type", "X-Requested-With", 
             "Accept", "Origin", "Access-Control-Request-Method",
-            "Access-Control-Request-Headers", "X-Test-Type", "X-Test-Index"
+            "Access-Control-Request-Headers", "X-Test-Type", "X-Test-Index",
+            "Idempotency-Key"
         ));
         
         // Headers exposés au frontend
         configuration.setExposedHeaders(Arrays.asList(
-            "Authorization", "Content-Type", "X-Test-Type", "X-Test-Index"
+            "Authorization", "Content-Type", "X-Test-Type", "X-Test-Index", "Idempotent-Replayed"
         ));
         
         // Autoriser les credentials (cookies, auth headers)
@@ -8,6 +8,8 @@ import com.example.demoQrcode.entity.User;
 import com.example.demoQrcode.repository.RoleRepository;
 import com.example.demoQrcode.repository.UserRepository;
 import com.example.demoQrcode.security.JwtUtil;
+import com.example.demoQrcode.service.CustomUserDetailsService;
+import com.example.demoQrcode.service.TokenVersionService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
@@ -19,6 +21,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -42,6 +45,12 @@ public class AuthController {
 	@Autowired
 	private PasswordEncoder passwordEncoder;
 
+	@Autowired
+	private TokenVersionService tokenVersionService;
+
+	@Autowired
+	private CustomUserDetailsService userDetailsService;
+
 	/**
 	 * LOGIN : Authentifie l'utilisateur et retourne un token JWT + role + redirect
 	 */
@@ -61,14 +70,17 @@ public class AuthController {
 					new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
 			);
 
+			// Rôles et version des tokens embarqués dans le JWT (aucun rechargement de l'utilisateur par requête)
+			Optional<User> userOpt = userRepository.findByUsername(request.getUsername());
+			List<String> roleNames = userOpt.map(u -> u.getRoles().stream().map(Role::getName).toList())
+					.orElse(List.of());
+			int tokenVersion = userOpt.map(User::getTokenVersion).orElse(0);
+
 			// Générer le token
-			String token = jwtUtil.generateToken(request.getUsername());
+			String token = jwtUtil.generateToken(request.getUsername(), roleNames, tokenVersion);
 
 			// Déterminer le rôle principal et la redirection suggérée
-			Optional<User> userOpt = userRepository.findByUsername(request.getUsername());
-			String role = userOpt.filter(u -> u.getRoles() != null && !u.getRoles().isEmpty())
-					.map(u -> u.getRoles().stream().anyMatch(r -> "ROLE_ADMIN".equals(r.getName())) ? "ADMIN" : "USER")
-					.orElse("USER");
+			String role = roleNames.contains("ROLE_ADMIN") ? "ADMIN" : "USER";
 			String redirect = "ADMIN".equals(role) ? "/admin" : "/user";
 			log.info("token => {}", token);
 
@@ -104,6 +116,8 @@ public class AuthController {
 		roles.add(userRole);
 		user.setRoles(roles);
 		userRepository.save(user);
+		tokenVersionService.invalidate(user.getUsername());
+		userDetailsService.evict(user.getUsername());
 		return ResponseEntity.ok("Utilisateur enregistré avec succès en tant que USER");
 	}
 
@@ -128,6 +142,8 @@ public class AuthController {
 		roles.add(adminRole);
 		user.setRoles(roles);
 		userRepository.save(user);
+		tokenVersionService.invalidate(user.getUsername());
+		userDetailsService.evict(user.getUsername());
 		return ResponseEntity.ok("Utilisateur enregistré avec succès en tant que ADMIN");
 	}
 }
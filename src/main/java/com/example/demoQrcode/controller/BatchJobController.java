@@ -0,0 +1,66 @@
+package com.example.demoQrcode.controller;
+
+import com.example.demoQrcode.dto.BatchJobStatus;
+import com.example.demoQrcode.service.BatchJob;
+import com.example.demoQrcode.service.BatchJobRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Contrôleur de suivi des traitements par lot (avancement, débit, échecs par ligne)
+ */
+@RestController
+@RequestMapping("/api/jobs")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class BatchJobController {
+
+    private final BatchJobRegistry batchJobRegistry;
+
+    /**
+     * GET /api/jobs
+     * Liste les traitements connus de cette instance, du plus récent au plus ancien
+     */
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<Map<String, Object>> listJobs() {
+        List<BatchJobStatus> jobs = batchJobRegistry.list().stream()
+                .map(BatchJob::snapshot)
+                .toList();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", jobs);
+        response.put("count", jobs.size());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * GET /api/jobs/{jobId}
+     * Retourne l'état d'avancement d'un traitement
+     */
+    @GetMapping("/{jobId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable String jobId) {
+        Optional<BatchJob> job = batchJobRegistry.find(jobId);
+
+        Map<String, Object> response = new HashMap<>();
+        if (job.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "Aucun traitement trouvé pour cet identifiant");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+
+        response.put("success", true);
+        response.put("data", job.get().snapshot());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -12,12 +12,15 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/customers")
 public class CustomerController {
 
+	private static final int MAX_CURSOR_PAGE_SIZE = 200;
+
 	@Autowired
 	private CustomerService customerService;
 
@@ -29,6 +32,18 @@ public class CustomerController {
 		return customerService.list(pageable);
 	}
 
+	// GET /api/customers/cursor?cursor={nextCursor} (pagination par clé sur l'identifiant)
+	@GetMapping("/cursor")
+	public ResponseEntity<?> listByCursor(@RequestParam(required = false) String cursor,
+	                                      @RequestParam(defaultValue = "10") int size,
+	                                      @RequestParam(defaultValue = "false") boolean includeTotal) {
+		try {
+			return ResponseEntity.ok(customerService.scroll(cursor, Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE), includeTotal));
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+		}
+	}
+
 	// GET /api/customers/{id}
 	@GetMapping("/{id}")
 	public ResponseEntity<?> getOne(@PathVariable Long id) {
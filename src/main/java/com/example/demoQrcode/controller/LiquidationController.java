@@ -5,25 +5,35 @@ import com.example.demoQrcode.dto.QRGenerationResponse;
 import com.example.demoQrcode.dto.QRImageResponse;
 import com.example.demoQrcode.entity.Liquidation;
 import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.service.IdempotencyService;
+import com.example.demoQrcode.service.LiquidationQRDataService;
 import com.example.demoQrcode.service.LiquidationQRService;
 import com.example.demoQrcode.service.LiquidationService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.math.BigDecimal;
 import java.net.URI;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Slf4j
 @RestController
@@ -32,8 +42,13 @@ import java.util.Optional;
 @CrossOrigin(origins = "*")
 public class LiquidationController {
 
+    private static final String SVG_MEDIA_TYPE = "image/svg+xml";
+    private static final int MAX_CURSOR_PAGE_SIZE = 200;
+
     private final LiquidationService liquidationService;
     private final LiquidationQRService liquidationQRService;
+    private final LiquidationQRDataService liquidationQRDataService;
+    private final IdempotencyService idempotencyService;
 
     // GET /api/liquidations (with filters)
     @GetMapping
@@ -49,6 +64,25 @@ public class LiquidationController {
         return liquidationService.searchWithFilters(customerId, status, startDate, endDate, pageable);
     }
 
+    // GET /api/liquidations/cursor?cursor={nextCursor} (pagination par clé, mêmes filtres que la liste)
+    @GetMapping("/cursor")
+    public ResponseEntity<?> listByCursor(
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false) LiquidationStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal
+    ) {
+        try {
+            return ResponseEntity.ok(liquidationService.scrollWithFilters(customerId, status, startDate, endDate,
+                    cursor, Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE), includeTotal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     // GET /api/liquidations/search?q={term}
     @GetMapping("/search")
     public Page<Liquidation> searchByTerm(
@@ -122,8 +156,16 @@ public class LiquidationController {
     @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_USER')")
     public ResponseEntity<QRGenerationResponse> generateQR(
             @PathVariable Long id,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody QRGenerationRequest request
     ) {
+        // Un client qui rejoue la requête (timeout) reçoit la réponse d'origine au lieu d'un nouveau QR code
+        return idempotencyService.execute("generate-qr:" + id, idempotencyKey, request,
+                () -> doGenerateQR(id, request),
+                response -> response.getStatusCode().is2xxSuccessful() && response.getBody() != null && response.getBody().isSuccess());
+    }
+
+    private ResponseEntity<QRGenerationResponse> doGenerateQR(Long id, QRGenerationRequest request) {
         try {
             log.info("Demande de génération de QR code pour la liquidation ID: {} avec le type: {}", id, request.getQrType());
 
@@ -182,6 +224,9 @@ public class LiquidationController {
             log.info("QR code généré avec succès pour la liquidation ID: {}", id);
             return ResponseEntity.ok(response);
 
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Génération concurrente du QR code de la liquidation ID: {}", id);
+            return conflict();
         } catch (IllegalArgumentException e) {
             log.warn("Erreur de validation pour la liquidation ID: {}: {}", id, e.getMessage());
             return ResponseEntity.ok(QRGenerationResponse.validationError(e.getMessage()));
@@ -233,6 +278,60 @@ public class LiquidationController {
         }
     }
 
+    /**
+     * GET /api/liquidations/{id}/qr-image.png
+     * Renvoie l'image QR brute (image/png). ETag et Last-Modified sont dérivés de la date
+     * de génération du QR code : une requête conditionnelle à jour reçoit 304 sans que
+     * l'image soit lue en base.
+     */
+    @GetMapping(value = "/{id}/qr-image.png", produces = MediaType.IMAGE_PNG_VALUE)
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_USER')")
+    public ResponseEntity<byte[]> getQRImagePng(@PathVariable Long id, WebRequest request) {
+        return serveQRImage(id, request, MediaType.IMAGE_PNG, liquidationQRDataService::findQrImage);
+    }
+
+    /**
+     * GET /api/liquidations/{id}/qr-image.svg
+     * Renvoie le QR code en SVG, rendu à partir du payload (mêmes validateurs HTTP que le PNG)
+     */
+    @GetMapping(value = "/{id}/qr-image.svg", produces = SVG_MEDIA_TYPE)
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_USER')")
+    public ResponseEntity<byte[]> getQRImageSvg(@PathVariable Long id, WebRequest request) {
+        return serveQRImage(id, request, MediaType.parseMediaType(SVG_MEDIA_TYPE), liquidationQRDataService::findQrImageSvg);
+    }
+
+    private ResponseEntity<byte[]> serveQRImage(Long id, WebRequest request, MediaType mediaType,
+                                                Function<Long, Optional<byte[]>> imageLoader) {
+        Optional<LocalDateTime> generatedAt = liquidationQRDataService.findQrGeneratedAt(id);
+        if (generatedAt.isEmpty()) {
+            log.warn("Aucun QR code généré pour la liquidation ID: {}", id);
+            return ResponseEntity.notFound().build();
+        }
+
+        long lastModified = generatedAt.get().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String etag = "\"qr-" + id + "-" + lastModified + "\"";
+        if (request.checkNotModified(etag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .lastModified(lastModified)
+                    .build();
+        }
+
+        Optional<byte[]> image = imageLoader.apply(id);
+        if (image.isEmpty()) {
+            log.warn("Aucune image QR disponible pour la liquidation ID: {}", id);
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .contentLength(image.get().length)
+                .eTag(etag)
+                .lastModified(lastModified)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(image.get());
+    }
+
     /**
      * PUT /api/liquidations/{id}/regenerate-qr
      * Régénère un QR code pour une liquidation
@@ -246,52 +345,15 @@ public class LiquidationController {
         try {
             log.info("Demande de régénération de QR code pour la liquidation ID: {} avec le type: {}", id, request.getQrType());
 
-            // Récupération de la liquidation
-            Optional<Liquidation> liquidationOpt = liquidationService.get(id);
-            if (liquidationOpt.isEmpty()) {
+            // Relecture, encodage hors transaction puis remplacement de l'ancien QR en une seule écriture
+            Optional<Map<String, Object>> regenerated = liquidationQRService.regenerateQRForLiquidation(
+                    id, request.getQrType(), request.getTransactionReference(), request.getPenaltyAmount());
+            if (regenerated.isEmpty()) {
                 log.warn("Liquidation non trouvée avec l'ID: {}", id);
                 return ResponseEntity.ok(QRGenerationResponse.notFound());
             }
 
-            Liquidation liquidation = liquidationOpt.get();
-
-            // Suppression de l'ancien QR code (optionnel, car il sera écrasé)
-            liquidation.setQrCodeData(null);
-            liquidation.setQrImageBase64(null);
-            liquidation.setQrType(null);
-            liquidation.setQrGeneratedAt(null);
-            liquidation.setTransactionId(null);
-            liquidation.setMerchantChannel(null);
-            liquidation.setPenaltyAmount(null);
-            liquidation.setTotalAmount(null);
-
-            // Sauvegarde de la liquidation sans QR code
-            liquidationService.update(id, liquidation);
-
-            // Génération du nouveau QR code selon le type demandé
-            Map<String, Object> qrData;
-            switch (request.getQrType().toUpperCase()) {
-                case "STATIC":
-                    qrData = liquidationQRService.generateStaticQRForLiquidation(liquidation);
-                    break;
-                case "DYNAMIC":
-                    String transactionRef = request.getTransactionReference() != null ? 
-                        request.getTransactionReference() : liquidationQRService.generateTransactionReference(liquidation);
-                    qrData = liquidationQRService.generateDynamicQRForLiquidation(liquidation, transactionRef);
-                    break;
-                case "P2P":
-                    String beneficiaryPhone = liquidation.getCustomer().getPhone();
-                    qrData = liquidationQRService.generateP2PQRForLiquidation(liquidation, beneficiaryPhone);
-                    break;
-                case "PENALTY":
-                    BigDecimal penaltyAmount = request.getPenaltyAmount() != null ? 
-                        request.getPenaltyAmount() : new BigDecimal("5000.00");
-                    qrData = liquidationQRService.generateQRWithPenalty(liquidation, penaltyAmount);
-                    break;
-                default:
-                    log.warn("Type de QR code non supporté: {}", request.getQrType());
-                    return ResponseEntity.ok(QRGenerationResponse.validationError("Type de QR code non supporté: " + request.getQrType()));
-            }
+            Map<String, Object> qrData = regenerated.get();
 
             // Construction de la réponse
             QRGenerationResponse response = QRGenerationResponse.builder()
@@ -314,6 +376,9 @@ public class LiquidationController {
             log.info("QR code régénéré avec succès pour la liquidation ID: {}", id);
             return ResponseEntity.ok(response);
 
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Régénération concurrente du QR code de la liquidation ID: {}", id);
+            return conflict();
         } catch (IllegalArgumentException e) {
             log.warn("Erreur de validation pour la liquidation ID: {}: {}", id, e.getMessage());
             return ResponseEntity.ok(QRGenerationResponse.validationError(e.getMessage()));
@@ -322,5 +387,12 @@ public class LiquidationController {
             return ResponseEntity.ok(QRGenerationResponse.error(e.getMessage()));
         }
     }
-}
 
+    /**
+     * 409 : la liquidation a été modifiée par une autre requête (autre opérateur ou autre instance)
+     */
+    private static ResponseEntity<QRGenerationResponse> conflict() {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(QRGenerationResponse.error("La liquidation a été modifiée par une autre opération, veuillez réessayer"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demoQrcode.controller;
+
+import com.example.demoQrcode.dto.BatchJobStatus;
+import com.example.demoQrcode.service.LiquidationQRBatchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Contrôleur pour la génération de QR codes en masse
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/liquidations/qr-batch")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class LiquidationQRBatchController {
+
+    private final LiquidationQRBatchService liquidationQRBatchService;
+
+    /**
+     * POST /api/liquidations/qr-batch/static
+     * Lance la génération de QR codes statiques pour toutes les liquidations sans QR code.
+     * L'avancement se consulte via GET /api/jobs/{jobId}
+     */
+    @PostMapping("/static")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> startStaticQRGeneration() {
+        try {
+            BatchJobStatus status = liquidationQRBatchService.startStaticQRGeneration();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", status);
+            response.put("jobId", status.getJobId());
+            response.put("message", "Génération de QR codes en masse lancée");
+
+            log.info("Génération de QR codes en masse lancée, job ID: {}", status.getJobId());
+            return ResponseEntity.accepted().body(response);
+
+        } catch (Exception e) {
+            log.error("Erreur lors du lancement de la génération de QR codes en masse: {}", e.getMessage(), e);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Erreur lors du lancement de la génération de QR codes en masse");
+            response.put("error", e.getMessage());
+
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.example.demoQrcode.controller;
 
 import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.service.IdempotencyService;
 import com.example.demoQrcode.service.LiquidationQRService;
 import com.example.demoQrcode.service.LiquidationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -26,6 +29,7 @@ public class LiquidationQRController {
 
     private final LiquidationQRService liquidationQRService;
     private final LiquidationService liquidationService;
+    private final IdempotencyService idempotencyService;
 
     /**
      * Génère un QR code statique pour une liquidation
@@ -35,7 +39,14 @@ public class LiquidationQRController {
      */
     @PostMapping("/static")
     @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_USER')")
-    public ResponseEntity<Map<String, Object>> generateStaticQR(@PathVariable Long liquidationId) {
+    public ResponseEntity<Map<String, Object>> generateStaticQR(
+            @PathVariable Long liquidationId,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("qr/static:" + liquidationId, idempotencyKey, "STATIC",
+                () -> doGenerateStaticQR(liquidationId));
+    }
+
+    private ResponseEntity<Map<String, Object>> doGenerateStaticQR(Long liquidationId) {
         try {
             log.info("Demande de génération de QR code statique pour la liquidation ID: {}", liquidationId);
             
@@ -57,6 +68,10 @@ public class LiquidationQRController {
             
             return ResponseEntity.ok(response);
             
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Génération concurrente du QR code de la liquidation ID: {}", liquidationId);
+            return conflict();
+            
         } catch (IllegalArgumentException e) {
             log.warn("Erreur de validation pour la liquidation ID: {}: {}", liquidationId, e.getMessage());
             
@@ -89,7 +104,13 @@ public class LiquidationQRController {
     @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_USER')")
     public ResponseEntity<Map<String, Object>> generateDynamicQR(
             @PathVariable Long liquidationId,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @RequestBody Map<String, Object> request) {
+        return idempotencyService.execute("qr/dynamic:" + liquidationId, idempotencyKey, request,
+                () -> doGenerateDynamicQR(liquidationId, request));
+    }
+
+    private ResponseEntity<Map<String, Object>> doGenerateDynamicQR(Long liquidationId, Map<String, Object> request) {
         try {
             log.info("Demande de génération de QR code dynamique pour la liquidation ID: {}", liquidationId);
             
@@ -122,6 +143,10 @@ public class LiquidationQRController {
             
             return ResponseEntity.ok(response);
             
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Génération concurrente du QR code de la liquidation ID: {}", liquidationId);
+            return conflict();
+            
         } catch (IllegalArgumentException e) {
             log.warn("Erreur de validation pour la liquidation ID: {}: {}", liquidationId, e.getMessage());
             
@@ -154,7 +179,13 @@ public class LiquidationQRController {
     @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_USER')")
     public ResponseEntity<Map<String, Object>> generateP2PQR(
             @PathVariable Long liquidationId,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @RequestBody Map<String, Object> request) {
+        return idempotencyService.execute("qr/p2p:" + liquidationId, idempotencyKey, request,
+                () -> doGenerateP2PQR(liquidationId, request));
+    }
+
+    private ResponseEntity<Map<String, Object>> doGenerateP2PQR(Long liquidationId, Map<String, Object> request) {
         try {
             log.info("Demande de génération de QR code P2P pour la liquidation ID: {}", liquidationId);
             
@@ -183,6 +214,10 @@ public class LiquidationQRController {
             
             return ResponseEntity.ok(response);
             
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Génération concurrente du QR code de la liquidation ID: {}", liquidationId);
+            return conflict();
+            
         } catch (IllegalArgumentException e) {
             log.warn("Erreur de validation pour la liquidation ID: {}: {}", liquidationId, e.getMessage());
             
@@ -215,7 +250,13 @@ public class LiquidationQRController {
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     public ResponseEntity<Map<String, Object>> generateQRWithPenalty(
             @PathVariable Long liquidationId,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @RequestBody Map<String, Object> request) {
+        return idempotencyService.execute("qr/penalty:" + liquidationId, idempotencyKey, request,
+                () -> doGenerateQRWithPenalty(liquidationId, request));
+    }
+
+    private ResponseEntity<Map<String, Object>> doGenerateQRWithPenalty(Long liquidationId, Map<String, Object> request) {
         try {
             log.info("Demande de génération de QR code avec pénalités pour la liquidation ID: {}", liquidationId);
             
@@ -254,6 +295,10 @@ public class LiquidationQRController {
             
             return ResponseEntity.ok(response);
             
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Génération concurrente du QR code de la liquidation ID: {}", liquidationId);
+            return conflict();
+            
         } catch (IllegalArgumentException e) {
             log.warn("Erreur de validation pour la liquidation ID: {}: {}", liquidationId, e.getMessage());
             
@@ -359,4 +404,14 @@ public class LiquidationQRController {
             return ResponseEntity.internalServerError().body(response);
         }
     }
+
+    /**
+     * 409 : la liquidation a été modifiée par une autre requête pendant la génération
+     */
+    private static ResponseEntity<Map<String, Object>> conflict() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", "La liquidation a été modifiée par une autre opération, veuillez réessayer");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
 }
@@ -1,13 +1,21 @@
 package com.example.demoQrcode.controller;
 
+import com.example.demoQrcode.dto.BatchJobStatus;
+import com.example.demoQrcode.dto.QRStatisticsSummary;
 import com.example.demoQrcode.entity.Liquidation;
 import com.example.demoQrcode.entity.LiquidationStatus;
 import com.example.demoQrcode.service.LiquidationQRDataService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -15,6 +23,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Contrôleur pour la gestion des données QR codes des liquidations
@@ -26,6 +36,11 @@ import java.util.Optional;
 @CrossOrigin(origins = "*")
 public class LiquidationQRDataController {
 
+    /**
+     * Taille de page des listes lorsque le client n'en précise pas
+     */
+    static final int DEFAULT_PAGE_SIZE = 50;
+
     private final LiquidationQRDataService liquidationQRDataService;
 
     // --- ENDPOINTS DE RECHERCHE ---
@@ -36,17 +51,19 @@ public class LiquidationQRDataController {
      */
     @GetMapping("/with-qr")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
-    public ResponseEntity<Map<String, Object>> getLiquidationsWithQrCode() {
+    public ResponseEntity<Map<String, Object>> getLiquidationsWithQrCode(
+            @PageableDefault(size = DEFAULT_PAGE_SIZE, sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
         try {
-            List<Liquidation> liquidations = liquidationQRDataService.findLiquidationsWithQrCode();
+            Page<Liquidation> page = liquidationQRDataService.findLiquidationsWithQrCode(pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", liquidations);
-            response.put("count", liquidations.size());
+            response.put("data", page.getContent());
+            response.put("count", page.getNumberOfElements());
+            putPageInfo(response, page);
             response.put("message", "Liquidations avec QR code récupérées avec succès");
             
-            log.info("Récupération de {} liquidations avec QR code", liquidations.size());
+            log.info("Récupération de {} liquidations avec QR code", page.getNumberOfElements());
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
@@ -67,17 +84,19 @@ public class LiquidationQRDataController {
      */
     @GetMapping("/without-qr")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
-    public ResponseEntity<Map<String, Object>> getLiquidationsWithoutQrCode() {
+    public ResponseEntity<Map<String, Object>> getLiquidationsWithoutQrCode(
+            @PageableDefault(size = DEFAULT_PAGE_SIZE, sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
         try {
-            List<Liquidation> liquidations = liquidationQRDataService.findLiquidationsWithoutQrCode();
+            Page<Liquidation> page = liquidationQRDataService.findLiquidationsWithoutQrCode(pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", liquidations);
-            response.put("count", liquidations.size());
+            response.put("data", page.getContent());
+            response.put("count", page.getNumberOfElements());
+            putPageInfo(response, page);
             response.put("message", "Liquidations sans QR code récupérées avec succès");
             
-            log.info("Récupération de {} liquidations sans QR code", liquidations.size());
+            log.info("Récupération de {} liquidations sans QR code", page.getNumberOfElements());
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
@@ -98,18 +117,20 @@ public class LiquidationQRDataController {
      */
     @GetMapping("/type/{qrType}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
-    public ResponseEntity<Map<String, Object>> getLiquidationsByQrType(@PathVariable String qrType) {
+    public ResponseEntity<Map<String, Object>> getLiquidationsByQrType(@PathVariable String qrType,
+            @PageableDefault(size = DEFAULT_PAGE_SIZE, sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
         try {
-            List<Liquidation> liquidations = liquidationQRDataService.findByQrType(qrType);
+            Page<Liquidation> page = liquidationQRDataService.findByQrType(qrType, pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", liquidations);
-            response.put("count", liquidations.size());
+            response.put("data", page.getContent());
+            response.put("count", page.getNumberOfElements());
+            putPageInfo(response, page);
             response.put("qrType", qrType);
             response.put("message", "Liquidations par type de QR récupérées avec succès");
             
-            log.info("Récupération de {} liquidations avec type de QR: {}", liquidations.size(), qrType);
+            log.info("Récupération de {} liquidations avec type de QR: {}", page.getNumberOfElements(), qrType);
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
@@ -198,18 +219,20 @@ public class LiquidationQRDataController {
      */
     @GetMapping("/status/{status}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
-    public ResponseEntity<Map<String, Object>> getLiquidationsWithQrCodeByStatus(@PathVariable LiquidationStatus status) {
+    public ResponseEntity<Map<String, Object>> getLiquidationsWithQrCodeByStatus(@PathVariable LiquidationStatus status,
+            @PageableDefault(size = DEFAULT_PAGE_SIZE, sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
         try {
-            List<Liquidation> liquidations = liquidationQRDataService.findLiquidationsWithQrCodeByStatus(status);
+            Page<Liquidation> page = liquidationQRDataService.findLiquidationsWithQrCodeByStatus(status, pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", liquidations);
-            response.put("count", liquidations.size());
+            response.put("data", page.getContent());
+            response.put("count", page.getNumberOfElements());
+            putPageInfo(response, page);
             response.put("status", status);
             response.put("message", "Liquidations avec QR code par statut récupérées avec succès");
             
-            log.info("Récupération de {} liquidations avec QR code pour le statut: {}", liquidations.size(), status);
+            log.info("Récupération de {} liquidations avec QR code pour le statut: {}", page.getNumberOfElements(), status);
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
@@ -230,18 +253,20 @@ public class LiquidationQRDataController {
      */
     @GetMapping("/today")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
-    public ResponseEntity<Map<String, Object>> getLiquidationsWithQrCodeGeneratedToday() {
+    public ResponseEntity<Map<String, Object>> getLiquidationsWithQrCodeGeneratedToday(
+            @PageableDefault(size = DEFAULT_PAGE_SIZE, sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
         try {
-            List<Liquidation> liquidations = liquidationQRDataService.findLiquidationsWithQrCodeGeneratedToday();
+            Page<Liquidation> page = liquidationQRDataService.findLiquidationsWithQrCodeGeneratedToday(pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", liquidations);
-            response.put("count", liquidations.size());
+            response.put("data", page.getContent());
+            response.put("count", page.getNumberOfElements());
+            putPageInfo(response, page);
             response.put("date", LocalDateTime.now().toLocalDate());
             response.put("message", "Liquidations avec QR code généré aujourd'hui récupérées avec succès");
             
-            log.info("Récupération de {} liquidations avec QR code généré aujourd'hui", liquidations.size());
+            log.info("Récupération de {} liquidations avec QR code généré aujourd'hui", page.getNumberOfElements());
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
@@ -262,18 +287,20 @@ public class LiquidationQRDataController {
      */
     @GetMapping("/this-week")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
-    public ResponseEntity<Map<String, Object>> getLiquidationsWithQrCodeGeneratedThisWeek() {
+    public ResponseEntity<Map<String, Object>> getLiquidationsWithQrCodeGeneratedThisWeek(
+            @PageableDefault(size = DEFAULT_PAGE_SIZE, sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
         try {
-            List<Liquidation> liquidations = liquidationQRDataService.findLiquidationsWithQrCodeGeneratedThisWeek();
+            Page<Liquidation> page = liquidationQRDataService.findLiquidationsWithQrCodeGeneratedThisWeek(pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", liquidations);
-            response.put("count", liquidations.size());
+            response.put("data", page.getContent());
+            response.put("count", page.getNumberOfElements());
+            putPageInfo(response, page);
             response.put("period", "this-week");
             response.put("message", "Liquidations avec QR code généré cette semaine récupérées avec succès");
             
-            log.info("Récupération de {} liquidations avec QR code généré cette semaine", liquidations.size());
+            log.info("Récupération de {} liquidations avec QR code généré cette semaine", page.getNumberOfElements());
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
@@ -294,18 +321,20 @@ public class LiquidationQRDataController {
      */
     @GetMapping("/this-month")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
-    public ResponseEntity<Map<String, Object>> getLiquidationsWithQrCodeGeneratedThisMonth() {
+    public ResponseEntity<Map<String, Object>> getLiquidationsWithQrCodeGeneratedThisMonth(
+            @PageableDefault(size = DEFAULT_PAGE_SIZE, sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
         try {
-            List<Liquidation> liquidations = liquidationQRDataService.findLiquidationsWithQrCodeGeneratedThisMonth();
+            Page<Liquidation> page = liquidationQRDataService.findLiquidationsWithQrCodeGeneratedThisMonth(pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", liquidations);
-            response.put("count", liquidations.size());
+            response.put("data", page.getContent());
+            response.put("count", page.getNumberOfElements());
+            putPageInfo(response, page);
             response.put("period", "this-month");
             response.put("message", "Liquidations avec QR code généré ce mois récupérées avec succès");
             
-            log.info("Récupération de {} liquidations avec QR code généré ce mois", liquidations.size());
+            log.info("Récupération de {} liquidations avec QR code généré ce mois", page.getNumberOfElements());
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
@@ -326,17 +355,19 @@ public class LiquidationQRDataController {
      */
     @GetMapping("/with-penalties")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
-    public ResponseEntity<Map<String, Object>> getLiquidationsWithPenalties() {
+    public ResponseEntity<Map<String, Object>> getLiquidationsWithPenalties(
+            @PageableDefault(size = DEFAULT_PAGE_SIZE, sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
         try {
-            List<Liquidation> liquidations = liquidationQRDataService.findLiquidationsWithPenalties();
+            Page<Liquidation> page = liquidationQRDataService.findLiquidationsWithPenalties(pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", liquidations);
-            response.put("count", liquidations.size());
+            response.put("data", page.getContent());
+            response.put("count", page.getNumberOfElements());
+            putPageInfo(response, page);
             response.put("message", "Liquidations avec pénalités récupérées avec succès");
             
-            log.info("Récupération de {} liquidations avec pénalités", liquidations.size());
+            log.info("Récupération de {} liquidations avec pénalités", page.getNumberOfElements());
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
@@ -351,8 +382,120 @@ public class LiquidationQRDataController {
         }
     }
 
+    // --- EXPORTS NDJSON (une liquidation JSON par ligne, en mémoire constante) ---
+
+    /**
+     * GET /api/liquidations/qr-data/with-qr/stream
+     * Exporte toutes les liquidations qui ont un QR code généré
+     */
+    @GetMapping(value = "/with-qr/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<StreamingResponseBody> streamLiquidationsWithQrCode() {
+        return ndjson(liquidationQRDataService::streamLiquidationsWithQrCode);
+    }
+
+    /**
+     * GET /api/liquidations/qr-data/without-qr/stream
+     * Exporte toutes les liquidations qui n'ont pas de QR code généré
+     */
+    @GetMapping(value = "/without-qr/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<StreamingResponseBody> streamLiquidationsWithoutQrCode() {
+        return ndjson(liquidationQRDataService::streamLiquidationsWithoutQrCode);
+    }
+
+    /**
+     * GET /api/liquidations/qr-data/type/{qrType}/stream
+     * Exporte toutes les liquidations d'un type de QR code
+     */
+    @GetMapping(value = "/type/{qrType}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<StreamingResponseBody> streamLiquidationsByQrType(@PathVariable String qrType) {
+        return ndjson(() -> liquidationQRDataService.streamByQrType(qrType));
+    }
+
+    /**
+     * GET /api/liquidations/qr-data/status/{status}/stream
+     * Exporte toutes les liquidations avec QR code d'un statut
+     */
+    @GetMapping(value = "/status/{status}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<StreamingResponseBody> streamLiquidationsWithQrCodeByStatus(@PathVariable LiquidationStatus status) {
+        return ndjson(() -> liquidationQRDataService.streamLiquidationsWithQrCodeByStatus(status));
+    }
+
+    /**
+     * GET /api/liquidations/qr-data/today/stream
+     * Exporte toutes les liquidations avec QR code généré aujourd'hui
+     */
+    @GetMapping(value = "/today/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<StreamingResponseBody> streamLiquidationsWithQrCodeGeneratedToday() {
+        return ndjson(liquidationQRDataService::streamLiquidationsWithQrCodeGeneratedToday);
+    }
+
+    /**
+     * GET /api/liquidations/qr-data/this-week/stream
+     * Exporte toutes les liquidations avec QR code généré cette semaine
+     */
+    @GetMapping(value = "/this-week/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<StreamingResponseBody> streamLiquidationsWithQrCodeGeneratedThisWeek() {
+        return ndjson(liquidationQRDataService::streamLiquidationsWithQrCodeGeneratedThisWeek);
+    }
+
+    /**
+     * GET /api/liquidations/qr-data/this-month/stream
+     * Exporte toutes les liquidations avec QR code généré ce mois
+     */
+    @GetMapping(value = "/this-month/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<StreamingResponseBody> streamLiquidationsWithQrCodeGeneratedThisMonth() {
+        return ndjson(liquidationQRDataService::streamLiquidationsWithQrCodeGeneratedThisMonth);
+    }
+
+    /**
+     * GET /api/liquidations/qr-data/with-penalties/stream
+     * Exporte toutes les liquidations avec pénalités
+     */
+    @GetMapping(value = "/with-penalties/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<StreamingResponseBody> streamLiquidationsWithPenalties() {
+        return ndjson(liquidationQRDataService::streamLiquidationsWithPenalties);
+    }
+
     // --- ENDPOINTS DE STATISTIQUES ---
 
+    /**
+     * GET /api/liquidations/qr-data/stats/summary
+     * Retourne toutes les statistiques QR calculées en une seule requête
+     */
+    @GetMapping("/stats/summary")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<Map<String, Object>> getStatisticsSummary() {
+        try {
+            QRStatisticsSummary summary = liquidationQRDataService.getStatisticsSummary();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", summary);
+            response.put("message", "Résumé des statistiques QR récupéré avec succès");
+            
+            log.info("Résumé des statistiques QR récupéré: {} liquidations avec QR code", summary.getLiquidationsWithQrCode());
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Erreur lors de la récupération du résumé des statistiques QR: {}", e.getMessage(), e);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Erreur lors de la récupération du résumé des statistiques QR");
+            response.put("error", e.getMessage());
+            
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
     /**
      * GET /api/liquidations/qr-data/stats/count-by-type
      * Compte le nombre de liquidations avec QR code par type
@@ -537,27 +680,31 @@ public class LiquidationQRDataController {
 
     /**
      * PUT /api/liquidations/qr-data/update-all-totals
-     * Met à jour le montant total de toutes les liquidations
+     * Lance le recalcul du montant total de toutes les liquidations (202 Accepted).
+     * L'avancement se consulte via GET /api/jobs/{jobId}
      */
     @PutMapping("/update-all-totals")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Map<String, Object>> updateAllTotalAmounts() {
         try {
-            liquidationQRDataService.updateAllTotalAmounts();
+            BatchJobStatus status = liquidationQRDataService.updateAllTotalAmounts();
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("message", "Montants totaux de toutes les liquidations mis à jour avec succès");
+            response.put("data", status);
+            response.put("jobId", status.getJobId());
+            response.put("statusUrl", "/api/jobs/" + status.getJobId());
+            response.put("message", "Recalcul des montants totaux lancé");
             
-            log.info("Montants totaux de toutes les liquidations mis à jour");
-            return ResponseEntity.ok(response);
+            log.info("Recalcul des montants totaux lancé, job ID: {}", status.getJobId());
+            return ResponseEntity.accepted().body(response);
             
         } catch (Exception e) {
-            log.error("Erreur lors de la mise à jour des montants totaux: {}", e.getMessage(), e);
+            log.error("Erreur lors du lancement du recalcul des montants totaux: {}", e.getMessage(), e);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
-            response.put("message", "Erreur lors de la mise à jour des montants totaux");
+            response.put("message", "Erreur lors du lancement du recalcul des montants totaux");
             response.put("error", e.getMessage());
             
             return ResponseEntity.internalServerError().body(response);
@@ -627,4 +774,25 @@ public class LiquidationQRDataController {
             return ResponseEntity.internalServerError().body(response);
         }
     }
+
+    /**
+     * Ajoute à la réponse les informations de pagination d'une liste
+     */
+    private static void putPageInfo(Map<String, Object> response, Page<?> page) {
+        response.put("page", page.getNumber());
+        response.put("size", page.getSize());
+        response.put("totalElements", page.getTotalElements());
+        response.put("totalPages", page.getTotalPages());
+        response.put("hasNext", page.hasNext());
+    }
+
+    /**
+     * Réponse NDJSON écrite au fil de la lecture du flux, hors du thread de la requête
+     */
+    private ResponseEntity<StreamingResponseBody> ndjson(Supplier<Stream<Liquidation>> source) {
+        StreamingResponseBody body = output -> liquidationQRDataService.exportAsNdjson(source, output);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 }
@@ -1,6 +1,8 @@
 package com.example.demoQrcode.controller;
 
+import com.example.demoQrcode.service.IdempotencyService;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -30,6 +32,20 @@ public class RestExceptionHandler {
 		return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
 	}
 
+	@ExceptionHandler(IdempotencyService.IdempotencyException.class)
+	public ResponseEntity<?> handleIdempotency(IdempotencyService.IdempotencyException ex) {
+		Map<String, String> body = new HashMap<>();
+		body.put("error", ex.getMessage());
+		return ResponseEntity.status(ex.getStatus()).body(body);
+	}
+
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<?> handleOptimisticLocking(OptimisticLockingFailureException ex) {
+		Map<String, String> body = new HashMap<>();
+		body.put("error", "La liquidation a été modifiée par une autre opération, veuillez réessayer");
+		return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+	}
+
 	@ExceptionHandler(DataIntegrityViolationException.class)
 	public ResponseEntity<?> handleDataIntegrity(DataIntegrityViolationException ex) {
 		Map<String, String> body = new HashMap<>();
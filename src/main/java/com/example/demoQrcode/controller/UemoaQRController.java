@@ -1,11 +1,15 @@
 package com.example.demoQrcode.controller;
 
+import com.example.demoQrcode.service.UemoaQRBatchParseService;
 import com.example.demoQrcode.service.UemoaQRIntegrationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -20,6 +24,7 @@ import java.util.Map;
 public class UemoaQRController {
     
     private final UemoaQRIntegrationService uemoaQRService;
+    private final UemoaQRBatchParseService uemoaQRBatchParseService;
     
     /**
      * Génère un QR code statique
@@ -137,6 +142,22 @@ public class UemoaQRController {
         }
     }
     
+    /**
+     * Parse un lot de QR codes UEMOA
+     * 
+     * @param payloads Tableau JSON ou flux NDJSON de payloads (chaînes ou objets {"qrData": ...})
+     * @return Un résultat NDJSON par payload, dans l'ordre d'entrée ; les payloads invalides donnent une ligne d'erreur
+     */
+    @PostMapping(value = "/parse/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> parseQRCodes(InputStream payloads) {
+        StreamingResponseBody body = output -> uemoaQRBatchParseService.parseAsNdjson(payloads, output);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+    
     /**
      * Génère un QR code de test
      * 
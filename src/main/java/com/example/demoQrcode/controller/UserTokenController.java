@@ -0,0 +1,49 @@
+package com.example.demoQrcode.controller;
+
+import com.example.demoQrcode.service.TokenVersionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Contrôleur d'administration des tokens JWT des utilisateurs
+ */
+@RestController
+@RequestMapping("/api/users")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class UserTokenController {
+
+    private final TokenVersionService tokenVersionService;
+
+    /**
+     * POST /api/users/{username}/revoke-tokens
+     * Révoque tous les tokens JWT déjà émis pour l'utilisateur
+     */
+    @PostMapping("/{username}/revoke-tokens")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> revokeTokens(@PathVariable String username) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            if (!tokenVersionService.revokeTokens(username)) {
+                response.put("success", false);
+                response.put("message", "Utilisateur introuvable");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+
+            response.put("success", true);
+            response.put("message", "Tokens révoqués avec succès");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Erreur lors de la révocation des tokens");
+            response.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demoQrcode.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO décrivant l'état d'avancement d'un traitement par lot
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchJobStatus {
+
+    private String jobId;
+    private String type;
+    private String state;
+    private String message;
+
+    // Avancement
+    private long total;
+    private long processed;
+    private long succeeded;
+    private long failed;
+    private double progressPercent;
+
+    // Durée et débit
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long elapsedMs;
+    private double throughputPerSecond;
+
+    // Échecs ligne par ligne (liste tronquée, voir failed pour le total)
+    private List<RowFailure> failures;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowFailure {
+        private Long liquidationId;
+        private String error;
+    }
+}
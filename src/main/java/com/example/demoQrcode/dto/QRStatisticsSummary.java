@@ -0,0 +1,39 @@
+package com.example.demoQrcode.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * DTO regroupant l'ensemble des statistiques QR des liquidations
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QRStatisticsSummary {
+
+    // Compteurs
+    private long liquidationsWithQrCode;
+    private long liquidationsWithoutQrCode;
+    private long liquidationsWithPenalties;
+
+    // Générations par période
+    private long generatedToday;
+    private long generatedThisWeek;
+    private long generatedThisMonth;
+
+    // Répartition par type de QR (STATIC, DYNAMIC, P2P, PENALTY)
+    private Map<String, Long> countByQrType;
+
+    // Montants
+    private BigDecimal totalAmountWithQrCode;
+    private BigDecimal totalPenaltyAmount;
+
+    private LocalDateTime computedAt;
+}
@@ -1,13 +1,19 @@
 package com.example.demoQrcode.entity;
 
 import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.Hibernate;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Objects;
 
 @Entity
 @Table(name = "liquidations")
@@ -46,16 +52,11 @@ public class Liquidation {
     // --- CHAMPS QR CODES UEMOA ---
     
     /**
-     * Données du QR code généré (format EMVCo/BCEAO)
+     * Payload et image du QR code, stockés dans liquidation_qr_artifacts et chargés à la demande
      */
-    @Column(name = "qr_code_data", columnDefinition = "TEXT")
-    private String qrCodeData;
-    
-    /**
-     * Image QR code encodée en Base64
-     */
-    @Column(name = "qr_image_base64", columnDefinition = "TEXT")
-    private String qrImageBase64;
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "qr_artifact_id", unique = true)
+    private LiquidationQRArtifact qrArtifact;
     
     /**
      * Canal marchand UEMOA (ex: "int.bceao.pi")
@@ -66,7 +67,7 @@ public class Liquidation {
     /**
      * Identifiant de transaction unique
      */
-    @Column(name = "transaction_id", length = 128)
+    @Column(name = "transaction_id", length = 128, unique = true)
     private String transactionId;
     
     /**
@@ -93,6 +94,22 @@ public class Liquidation {
     @Column(name = "total_amount", precision = 18, scale = 2)
     private BigDecimal totalAmount;
 
+    /**
+     * Date du dernier recalcul des pénalités par le traitement des retards
+     */
+    @JsonIgnore
+    @Column(name = "penalty_calculated_on")
+    private LocalDate penaltyCalculatedOn;
+
+    /**
+     * Version pour le verrouillage optimiste : deux mises à jour concurrentes ne s'écrasent plus,
+     * la seconde échoue (OptimisticLockingFailureException) et peut être relancée
+     */
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     public Liquidation() {}
 
     public Long getId() { return id; }
@@ -118,11 +135,70 @@ public class Liquidation {
 
     // --- GETTERS ET SETTERS POUR LES CHAMPS QR ---
 
-    public String getQrCodeData() { return qrCodeData; }
-    public void setQrCodeData(String qrCodeData) { this.qrCodeData = qrCodeData; }
+    /**
+     * Données du QR code généré (format EMVCo/BCEAO).
+     * Charge l'artefact QR s'il ne l'est pas encore ; non sérialisé tel quel, voir {@link #getLoadedQrCodeData()}.
+     * Un nouveau payload invalide l'image rendue pour l'ancien.
+     */
+    @JsonIgnore
+    public String getQrCodeData() { return qrArtifact != null ? qrArtifact.getQrCodeData() : null; }
+    public void setQrCodeData(String qrCodeData) {
+        if (qrArtifact == null && isBlank(qrCodeData)) {
+            return;
+        }
+        LiquidationQRArtifact artifact = artifactForWrite();
+        if (!Objects.equals(artifact.getQrCodeData(), qrCodeData)) {
+            artifact.setQrImage(null);
+        }
+        artifact.setQrCodeData(qrCodeData);
+        pruneEmptyArtifact();
+    }
 
-    public String getQrImageBase64() { return qrImageBase64; }
-    public void setQrImageBase64(String qrImageBase64) { this.qrImageBase64 = qrImageBase64; }
+    /**
+     * Image QR code (PNG brut), stockée en binaire.
+     * Charge l'artefact QR s'il ne l'est pas encore.
+     */
+    @JsonIgnore
+    public byte[] getQrImage() { return qrArtifact != null ? qrArtifact.getQrImage() : null; }
+    public void setQrImage(byte[] qrImage) {
+        if (qrArtifact == null && (qrImage == null || qrImage.length == 0)) {
+            return;
+        }
+        artifactForWrite().setQrImage(qrImage);
+        pruneEmptyArtifact();
+    }
+
+    /**
+     * Image QR code encodée en Base64, calculée à partir de l'image binaire.
+     * Non sérialisée telle quelle, voir {@link #getLoadedQrImageBase64()}.
+     */
+    @JsonIgnore
+    public String getQrImageBase64() {
+        byte[] qrImage = getQrImage();
+        return qrImage != null ? Base64.getEncoder().encodeToString(qrImage) : null;
+    }
+    public void setQrImageBase64(String qrImageBase64) {
+        setQrImage(isBlank(qrImageBase64) ? null : Base64.getDecoder().decode(qrImageBase64.trim()));
+    }
+
+    /**
+     * Payload QR exposé en JSON uniquement si l'artefact a déjà été chargé
+     * (consultation unitaire) : les listes ne déclenchent aucun chargement.
+     */
+    @JsonProperty(value = "qrCodeData", access = JsonProperty.Access.READ_ONLY)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getLoadedQrCodeData() {
+        return Hibernate.isInitialized(qrArtifact) ? getQrCodeData() : null;
+    }
+
+    /**
+     * Image QR exposée en JSON uniquement si l'artefact a déjà été chargé
+     */
+    @JsonProperty(value = "qrImageBase64", access = JsonProperty.Access.READ_ONLY)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getLoadedQrImageBase64() {
+        return Hibernate.isInitialized(qrArtifact) ? getQrImageBase64() : null;
+    }
 
     public String getMerchantChannel() { return merchantChannel; }
     public void setMerchantChannel(String merchantChannel) { this.merchantChannel = merchantChannel; }
@@ -142,13 +218,19 @@ public class Liquidation {
     public BigDecimal getTotalAmount() { return totalAmount; }
     public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
 
+    public LocalDate getPenaltyCalculatedOn() { return penaltyCalculatedOn; }
+    public void setPenaltyCalculatedOn(LocalDate penaltyCalculatedOn) { this.penaltyCalculatedOn = penaltyCalculatedOn; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
     // --- MÉTHODES UTILITAIRES ---
 
     /**
      * Vérifie si un QR code a été généré pour cette liquidation
      */
     public boolean hasQrCode() {
-        return qrCodeData != null && !qrCodeData.trim().isEmpty();
+        return !isBlank(getQrCodeData());
     }
 
     /**
@@ -167,6 +249,27 @@ public class Liquidation {
     public void updateTotalAmount() {
         this.totalAmount = calculateTotalAmount();
     }
-}
 
+    private LiquidationQRArtifact artifactForWrite() {
+        if (qrArtifact == null) {
+            if (id == null) {
+                throw new IllegalStateException("La liquidation doit être enregistrée avant de recevoir un QR code");
+            }
+            qrArtifact = new LiquidationQRArtifact(id);
+        }
+        return qrArtifact;
+    }
+
+    /**
+     * Détache l'artefact devenu vide : orphanRemoval supprime alors sa ligne
+     */
+    private void pruneEmptyArtifact() {
+        if (qrArtifact != null && qrArtifact.isEmpty()) {
+            qrArtifact = null;
+        }
+    }
 
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.demoQrcode.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Artefacts volumineux d'un QR code (payload EMVCo et image), stockés hors de la table
+ * liquidations pour que les listes et recherches ne les chargent pas.
+ * L'identifiant est celui de la liquidation propriétaire.
+ */
+@Entity
+@Table(name = "liquidation_qr_artifacts")
+public class LiquidationQRArtifact {
+
+    @Id
+    private Long id;
+
+    /**
+     * Données du QR code généré (format EMVCo/BCEAO)
+     */
+    @Column(name = "qr_code_data", columnDefinition = "TEXT")
+    private String qrCodeData;
+
+    /**
+     * Image QR code (PNG brut)
+     */
+    @Column(name = "qr_image", columnDefinition = "bytea")
+    private byte[] qrImage;
+
+    protected LiquidationQRArtifact() {}
+
+    public LiquidationQRArtifact(Long id) {
+        this.id = id;
+    }
+
+    public Long getId() { return id; }
+
+    public String getQrCodeData() { return qrCodeData; }
+    public void setQrCodeData(String qrCodeData) { this.qrCodeData = qrCodeData; }
+
+    public byte[] getQrImage() { return qrImage; }
+    public void setQrImage(byte[] qrImage) { this.qrImage = qrImage; }
+
+    /**
+     * Vrai lorsque l'artefact ne porte plus aucune donnée et peut être supprimé
+     */
+    public boolean isEmpty() {
+        return isBlank(qrCodeData) && (qrImage == null || qrImage.length == 0);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
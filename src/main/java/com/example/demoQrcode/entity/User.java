@@ -20,6 +20,12 @@ public class User {
 
     private boolean enabled = true;
 
+    /**
+     * Version des tokens JWT de l'utilisateur : l'incrémenter révoque tous les tokens déjà émis
+     */
+    @Column(name = "token_version", nullable = false, columnDefinition = "integer default 0")
+    private int tokenVersion = 0;
+
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(
             name = "users_roles",
@@ -43,6 +49,8 @@ public class User {
     public void setPassword(String password) { this.password = password; }
     public boolean isEnabled() { return enabled; }
     public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    public int getTokenVersion() { return tokenVersion; }
+    public void setTokenVersion(int tokenVersion) { this.tokenVersion = tokenVersion; }
     public Set<Role> getRoles() { return roles; }
     public void setRoles(Set<Role> roles) { this.roles = roles; }
 }
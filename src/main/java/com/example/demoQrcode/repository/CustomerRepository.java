@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
@@ -25,6 +26,11 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
 			"LOWER(c.phone) LIKE LOWER(CONCAT('%', :term, '%')) OR " +
 			"LOWER(c.ifu) LIKE LOWER(CONCAT('%', :term, '%'))")
 	Page<Customer> search(@Param("term") String term, Pageable pageable);
+
+	/**
+	 * Page suivante d'une pagination par clé sur l'identifiant (sans OFFSET ni COUNT)
+	 */
+	List<Customer> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
 }
 
 
@@ -0,0 +1,37 @@
+package com.example.demoQrcode.repository;
+
+import com.example.demoQrcode.entity.LiquidationQRArtifact;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Repository des artefacts QR (payload et image) des liquidations
+ */
+@Repository
+public interface LiquidationQRArtifactRepository extends JpaRepository<LiquidationQRArtifact, Long> {
+
+    /**
+     * Image QR (PNG brut) d'une liquidation, sans charger le payload
+     */
+    @Query("SELECT a.qrImage FROM LiquidationQRArtifact a WHERE a.id = :id AND a.qrImage IS NOT NULL")
+    Optional<byte[]> findQrImageById(@Param("id") Long id);
+
+    /**
+     * Payload QR d'une liquidation, sans charger l'image
+     */
+    @Query("SELECT a.qrCodeData FROM LiquidationQRArtifact a WHERE a.id = :id AND a.qrCodeData IS NOT NULL")
+    Optional<String> findQrCodeDataById(@Param("id") Long id);
+
+    /**
+     * Supprime en une seule requête les artefacts des liquidations données
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("DELETE FROM LiquidationQRArtifact a WHERE a.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -2,19 +2,30 @@ package com.example.demoQrcode.repository;
 
 import com.example.demoQrcode.entity.Liquidation;
 import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.repository.projection.PenaltyCandidate;
+import com.example.demoQrcode.repository.projection.QRStatisticsProjection;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository pour les opérations de liquidation avec support des QR codes
@@ -23,6 +34,12 @@ import java.util.Optional;
 public interface LiquidationRepository extends JpaRepository<Liquidation, Long>, JpaSpecificationExecutor<Liquidation> {
 
     // --- REQUÊTES STANDARD ---
+
+    /**
+     * Trouve une liquidation avec son client et son artefact QR (payload et image) en une requête
+     */
+    @EntityGraph(attributePaths = {"customer", "qrArtifact"})
+    Optional<Liquidation> findWithQrArtifactById(Long id);
     
     /**
      * Trouve toutes les liquidations par statut
@@ -42,12 +59,48 @@ public interface LiquidationRepository extends JpaRepository<Liquidation, Long>,
     /**
      * Trouve toutes les liquidations par client (compatibilité avec l'ancien code)
      */
+    @EntityGraph(attributePaths = "customer")
     List<Liquidation> findByCustomer_Id(Long customerId);
     
+    /**
+     * Page de liquidations avec leur client chargé dans la même requête
+     * (listes et recherche sérialisent le nom du client de chaque ligne)
+     */
+    @Override
+    @EntityGraph(attributePaths = "customer")
+    Page<Liquidation> findAll(Pageable pageable);
+
+    /**
+     * Page de liquidations filtrées avec leur client chargé dans la même requête
+     */
+    @Override
+    @EntityGraph(attributePaths = "customer")
+    Page<Liquidation> findAll(Specification<Liquidation> spec, Pageable pageable);
+
     /**
      * Trouve toutes les liquidations par statut avec pagination
      */
     Page<Liquidation> findByStatus(LiquidationStatus status, Pageable pageable);
+
+    /**
+     * Page suivante d'une pagination par clé sur (issueDate, id) décroissants : seule la position
+     * de la dernière ligne lue est transmise, sans OFFSET ni COUNT (index idx_liquidations_issue_date_id).
+     * Les filtres sont combinés au prédicat de position.
+     *
+     * @param afterIssueDate date d'émission de la dernière ligne lue (null pour la première page)
+     * @param afterId identifiant de la dernière ligne lue (null pour la première page)
+     */
+    default List<Liquidation> findNextPage(Specification<Liquidation> filters, LocalDate afterIssueDate, Long afterId, int limit) {
+        Specification<Liquidation> spec = filters;
+        if (afterIssueDate != null && afterId != null) {
+            spec = spec.and((root, query, cb) -> cb.or(
+                    cb.lessThan(root.get("issueDate"), afterIssueDate),
+                    cb.and(cb.equal(root.get("issueDate"), afterIssueDate), cb.lessThan(root.get("id"), afterId))
+            ));
+        }
+        Sort sort = Sort.by(Sort.Order.desc("issueDate"), Sort.Order.desc("id"));
+        return findBy(spec, query -> query.project("customer").sortBy(sort).limit(limit).all());
+    }
     
     /**
      * Trouve toutes les liquidations par montant supérieur ou égal
@@ -55,23 +108,70 @@ public interface LiquidationRepository extends JpaRepository<Liquidation, Long>,
     List<Liquidation> findByAmountGreaterThanEqual(BigDecimal amount);
     
     // --- REQUÊTES SPÉCIFIQUES AUX QR CODES ---
-    
+
     /**
-     * Trouve toutes les liquidations qui ont un QR code généré
+     * Date de génération du QR code d'une liquidation, sans charger l'artefact
+     * (sert de validateur HTTP pour l'image)
      */
-    @Query("SELECT l FROM Liquidation l WHERE l.qrCodeData IS NOT NULL AND l.qrCodeData != ''")
-    List<Liquidation> findLiquidationsWithQrCode();
+    @Query("SELECT l.qrGeneratedAt FROM Liquidation l WHERE l.id = :id AND l.qrArtifact IS NOT NULL")
+    Optional<LocalDateTime> findQrGeneratedAtById(@Param("id") Long id);
     
     /**
-     * Trouve toutes les liquidations qui n'ont pas de QR code généré
+     * Page de liquidations qui ont un QR code généré
+     */
+    @Query(value = "SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.qrArtifact IS NOT NULL",
+           countQuery = "SELECT COUNT(l) FROM Liquidation l WHERE l.qrArtifact IS NOT NULL")
+    Page<Liquidation> findLiquidationsWithQrCode(Pageable pageable);
+
+    /**
+     * Toutes les liquidations qui ont un QR code généré, lues par lots (export)
      */
-    @Query("SELECT l FROM Liquidation l WHERE l.qrCodeData IS NULL OR l.qrCodeData = ''")
-    List<Liquidation> findLiquidationsWithoutQrCode();
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.qrArtifact IS NOT NULL ORDER BY l.id")
+    Stream<Liquidation> streamLiquidationsWithQrCode();
     
     /**
-     * Trouve toutes les liquidations par type de QR code
+     * Page de liquidations qui n'ont pas de QR code généré
+     */
+    @Query(value = "SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.qrArtifact IS NULL",
+           countQuery = "SELECT COUNT(l) FROM Liquidation l WHERE l.qrArtifact IS NULL")
+    Page<Liquidation> findLiquidationsWithoutQrCode(Pageable pageable);
+
+    /**
+     * Toutes les liquidations qui n'ont pas de QR code généré, lues par lots (export)
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.qrArtifact IS NULL ORDER BY l.id")
+    Stream<Liquidation> streamLiquidationsWithoutQrCode();
+
+    /**
+     * Trouve une page de liquidations non payées sans QR code, par identifiant croissant
+     * (pagination par clé : les lignes traitées sortent du filtre sans décaler les suivantes)
      */
-    List<Liquidation> findByQrType(String qrType);
+    @Query("SELECT l FROM Liquidation l JOIN FETCH l.customer " +
+           "WHERE l.qrArtifact IS NULL AND l.status <> com.example.demoQrcode.entity.LiquidationStatus.PAID " +
+           "AND l.id > :lastId ORDER BY l.id")
+    List<Liquidation> findLiquidationsWithoutQrCodeAfter(@Param("lastId") Long lastId, Pageable pageable);
+
+    /**
+     * Compte les liquidations non payées sans QR code
+     */
+    @Query("SELECT COUNT(l) FROM Liquidation l " +
+           "WHERE l.qrArtifact IS NULL AND l.status <> com.example.demoQrcode.entity.LiquidationStatus.PAID")
+    long countUnpaidLiquidationsWithoutQrCode();
+
+    /**
+     * Page de liquidations par type de QR code
+     */
+    @EntityGraph(attributePaths = "customer")
+    Page<Liquidation> findByQrType(String qrType, Pageable pageable);
+
+    /**
+     * Toutes les liquidations d'un type de QR code, lues par lots (export)
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.qrType = :qrType ORDER BY l.id")
+    Stream<Liquidation> streamByQrType(@Param("qrType") String qrType);
     
     /**
      * Trouve toutes les liquidations par canal marchand
@@ -82,89 +182,254 @@ public interface LiquidationRepository extends JpaRepository<Liquidation, Long>,
      * Trouve une liquidation par identifiant de transaction
      */
     Optional<Liquidation> findByTransactionId(String transactionId);
+
+    /**
+     * Vérifie l'existence d'un identifiant de transaction sans charger l'entité (index unique)
+     */
+    boolean existsByTransactionId(String transactionId);
+
+    /**
+     * Compte les liquidations ayant un identifiant de transaction
+     */
+    long countByTransactionIdIsNotNull();
+
+    /**
+     * Tous les identifiants de transaction, lus en flux (à consommer dans une transaction puis fermer)
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT l.transactionId FROM Liquidation l WHERE l.transactionId IS NOT NULL")
+    Stream<String> streamAllTransactionIds();
+
+    /**
+     * Identifiants de transaction des QR codes générés depuis une date
+     */
+    @Query("SELECT l.transactionId FROM Liquidation l WHERE l.transactionId IS NOT NULL AND l.qrGeneratedAt >= :since")
+    List<String> findTransactionIdsGeneratedSince(@Param("since") LocalDateTime since);
     
     /**
      * Trouve toutes les liquidations générées dans une période donnée
      */
-    @Query("SELECT l FROM Liquidation l WHERE l.qrGeneratedAt BETWEEN :startDate AND :endDate")
+    @Query("SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.qrGeneratedAt BETWEEN :startDate AND :endDate")
     List<Liquidation> findByQrGeneratedAtBetween(@Param("startDate") LocalDateTime startDate, 
                                                 @Param("endDate") LocalDateTime endDate);
     
     /**
-     * Trouve toutes les liquidations avec pénalités
+     * Page de liquidations avec pénalités
+     */
+    @Query(value = "SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.penaltyAmount IS NOT NULL AND l.penaltyAmount > 0",
+           countQuery = "SELECT COUNT(l) FROM Liquidation l WHERE l.penaltyAmount IS NOT NULL AND l.penaltyAmount > 0")
+    Page<Liquidation> findLiquidationsWithPenalties(Pageable pageable);
+
+    /**
+     * Toutes les liquidations avec pénalités, lues par lots (export)
      */
-    @Query("SELECT l FROM Liquidation l WHERE l.penaltyAmount IS NOT NULL AND l.penaltyAmount > 0")
-    List<Liquidation> findLiquidationsWithPenalties();
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.penaltyAmount IS NOT NULL AND l.penaltyAmount > 0 ORDER BY l.id")
+    Stream<Liquidation> streamLiquidationsWithPenalties();
     
     /**
      * Trouve toutes les liquidations par montant total (base + pénalités)
      */
-    @Query("SELECT l FROM Liquidation l WHERE l.totalAmount >= :minAmount AND l.totalAmount <= :maxAmount")
+    @Query("SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.totalAmount >= :minAmount AND l.totalAmount <= :maxAmount")
     List<Liquidation> findByTotalAmountBetween(@Param("minAmount") BigDecimal minAmount, 
                                               @Param("maxAmount") BigDecimal maxAmount);
     
+    // --- RETARDS ET PÉNALITÉS ---
+
+    /**
+     * Lot suivant de liquidations non payées, échues avant la date donnée et dont les pénalités
+     * n'ont pas encore été recalculées ce jour-là (index idx_liquidations_status_due_date).
+     * Les lignes traitées sortent du filtre : un traitement interrompu reprend là où il s'était arrêté.
+     */
+    @Query("SELECT l.id AS id, l.amount AS amount, l.dueDate AS dueDate FROM Liquidation l " +
+           "WHERE l.status IN (com.example.demoQrcode.entity.LiquidationStatus.PENDING, " +
+           "com.example.demoQrcode.entity.LiquidationStatus.OVERDUE) " +
+           "AND l.dueDate < :today " +
+           "AND (l.penaltyCalculatedOn IS NULL OR l.penaltyCalculatedOn < :today) ORDER BY l.id")
+    List<PenaltyCandidate> findPenaltyCandidates(@Param("today") LocalDate today, Pageable pageable);
+
+    /**
+     * Compte les liquidations à traiter par {@link #findPenaltyCandidates}
+     */
+    @Query("SELECT COUNT(l) FROM Liquidation l " +
+           "WHERE l.status IN (com.example.demoQrcode.entity.LiquidationStatus.PENDING, " +
+           "com.example.demoQrcode.entity.LiquidationStatus.OVERDUE) " +
+           "AND l.dueDate < :today " +
+           "AND (l.penaltyCalculatedOn IS NULL OR l.penaltyCalculatedOn < :today)")
+    long countPenaltyCandidates(@Param("today") LocalDate today);
+
     /**
      * Compte le nombre de liquidations avec QR code par type
      */
     @Query("SELECT l.qrType, COUNT(l) FROM Liquidation l WHERE l.qrType IS NOT NULL GROUP BY l.qrType")
     List<Object[]> countLiquidationsByQrType();
+
+    // --- PURGE DES DONNÉES QR PAR LOTS ---
+
+    /**
+     * Identifiants des liquidations dont le QR code a été généré avant la date donnée,
+     * du plus ancien au plus récent (parcours de l'index idx_liquidations_qr_generated_at)
+     */
+    @Query("SELECT l.id FROM Liquidation l WHERE l.qrGeneratedAt < :cutoff ORDER BY l.qrGeneratedAt")
+    List<Long> findIdsWithQrCodeGeneratedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Identifiants des liquidations d'un client qui portent encore des données QR
+     */
+    @Query("SELECT l.id FROM Liquidation l WHERE l.customer.id = :customerId " +
+           "AND (l.qrArtifact IS NOT NULL OR l.qrGeneratedAt IS NOT NULL) ORDER BY l.id")
+    List<Long> findIdsWithQrCodeByCustomerId(@Param("customerId") Long customerId, Pageable pageable);
+
+    /**
+     * Efface en une seule requête les données QR des liquidations données. La date de calcul des
+     * pénalités est effacée avec leurs montants : le traitement des retards les recalcule à son prochain passage.
+     * Les lignes d'artefacts détachées sont à supprimer ensuite via LiquidationQRArtifactRepository.
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Liquidation l SET l.qrArtifact = NULL, l.qrType = NULL, " +
+           "l.qrGeneratedAt = NULL, l.merchantChannel = NULL, l.transactionId = NULL, " +
+           "l.penaltyAmount = NULL, l.totalAmount = NULL, l.penaltyCalculatedOn = NULL, " +
+           "l.version = l.version + 1 WHERE l.id IN :ids")
+    int clearQrCodeDataByIds(@Param("ids") Collection<Long> ids);
+
+    // --- RECALCUL DES MONTANTS TOTAUX ---
+
+    @Query("SELECT MIN(l.id) FROM Liquidation l")
+    Optional<Long> findMinId();
+
+    @Query("SELECT MAX(l.id) FROM Liquidation l")
+    Optional<Long> findMaxId();
+
+    /**
+     * Compte les liquidations dont le montant total ne vaut pas montant + pénalités
+     */
+    @Query("SELECT COUNT(l) FROM Liquidation l " +
+           "WHERE l.totalAmount IS NULL OR l.totalAmount <> l.amount + COALESCE(l.penaltyAmount, 0)")
+    long countLiquidationsWithStaleTotalAmount();
+
+    /**
+     * Recalcule en base total_amount = amount + COALESCE(penalty_amount, 0) sur une plage d'identifiants,
+     * sans charger les entités ; seules les lignes dont le total diffère sont réécrites
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Liquidation l SET l.totalAmount = l.amount + COALESCE(l.penaltyAmount, 0), l.version = l.version + 1 " +
+           "WHERE l.id >= :fromId AND l.id < :toId " +
+           "AND (l.totalAmount IS NULL OR l.totalAmount <> l.amount + COALESCE(l.penaltyAmount, 0))")
+    int updateTotalAmountsInIdRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    // --- STATISTIQUES CALCULÉES CÔTÉ BASE DE DONNÉES ---
+
+    /**
+     * Compte les liquidations avec QR code
+     */
+    @Query("SELECT COUNT(l) FROM Liquidation l WHERE l.qrArtifact IS NOT NULL")
+    long countLiquidationsWithQrCode();
+
+    /**
+     * Compte les liquidations dont le QR code a été généré dans l'intervalle [start, end[
+     */
+    @Query("SELECT COUNT(l) FROM Liquidation l WHERE l.qrGeneratedAt >= :start AND l.qrGeneratedAt < :end")
+    long countQrCodesGeneratedBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * Somme des montants (total, ou montant de base à défaut) des liquidations avec QR code
+     */
+    @Query("SELECT COALESCE(SUM(COALESCE(l.totalAmount, l.amount)), 0) FROM Liquidation l " +
+           "WHERE l.qrArtifact IS NOT NULL")
+    BigDecimal sumTotalAmountOfLiquidationsWithQrCode();
+
+    /**
+     * Somme des pénalités
+     */
+    @Query("SELECT COALESCE(SUM(l.penaltyAmount), 0) FROM Liquidation l WHERE l.penaltyAmount > 0")
+    BigDecimal sumPenaltyAmount();
+
+    /**
+     * Calcule toutes les statistiques QR en un seul parcours de la table.
+     * Les périodes sont des intervalles semi-ouverts [début, fin[.
+     */
+    @Query("SELECT " +
+           "COUNT(CASE WHEN l.qrArtifact IS NOT NULL THEN 1 END) AS withQrCode, " +
+           "COUNT(CASE WHEN l.qrArtifact IS NULL THEN 1 END) AS withoutQrCode, " +
+           "COUNT(CASE WHEN l.qrGeneratedAt >= :startOfDay AND l.qrGeneratedAt < :endOfDay THEN 1 END) AS generatedToday, " +
+           "COUNT(CASE WHEN l.qrGeneratedAt >= :startOfWeek AND l.qrGeneratedAt < :endOfWeek THEN 1 END) AS generatedThisWeek, " +
+           "COUNT(CASE WHEN l.qrGeneratedAt >= :startOfMonth AND l.qrGeneratedAt < :endOfMonth THEN 1 END) AS generatedThisMonth, " +
+           "COUNT(CASE WHEN l.penaltyAmount > 0 THEN 1 END) AS withPenalties, " +
+           "COUNT(CASE WHEN l.qrType = 'STATIC' THEN 1 END) AS staticCount, " +
+           "COUNT(CASE WHEN l.qrType = 'DYNAMIC' THEN 1 END) AS dynamicCount, " +
+           "COUNT(CASE WHEN l.qrType = 'P2P' THEN 1 END) AS p2pCount, " +
+           "COUNT(CASE WHEN l.qrType = 'PENALTY' THEN 1 END) AS penaltyCount, " +
+           "COALESCE(SUM(CASE WHEN l.qrArtifact IS NOT NULL THEN COALESCE(l.totalAmount, l.amount) END), 0) AS totalAmountWithQrCode, " +
+           "COALESCE(SUM(CASE WHEN l.penaltyAmount > 0 THEN l.penaltyAmount END), 0) AS totalPenaltyAmount " +
+           "FROM Liquidation l")
+    QRStatisticsProjection computeQrStatistics(@Param("startOfDay") LocalDateTime startOfDay,
+                                               @Param("endOfDay") LocalDateTime endOfDay,
+                                               @Param("startOfWeek") LocalDateTime startOfWeek,
+                                               @Param("endOfWeek") LocalDateTime endOfWeek,
+                                               @Param("startOfMonth") LocalDateTime startOfMonth,
+                                               @Param("endOfMonth") LocalDateTime endOfMonth);
     
     /**
      * Trouve toutes les liquidations avec QR code par client
      */
-    @Query("SELECT l FROM Liquidation l WHERE l.customer.id = :customerId AND l.qrCodeData IS NOT NULL AND l.qrCodeData != ''")
+    @Query("SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.customer.id = :customerId AND l.qrArtifact IS NOT NULL")
     List<Liquidation> findLiquidationsWithQrCodeByCustomerId(@Param("customerId") Long customerId);
     
     /**
      * Trouve la liquidation la plus récente avec QR code pour un client donné
      */
-    @Query("SELECT l FROM Liquidation l WHERE l.customer.id = :customerId AND l.qrCodeData IS NOT NULL ORDER BY l.qrGeneratedAt DESC")
+    @Query("SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.customer.id = :customerId AND l.qrArtifact IS NOT NULL ORDER BY l.qrGeneratedAt DESC")
     List<Liquidation> findRecentLiquidationsWithQrCodeByCustomerId(@Param("customerId") Long customerId);
     
     /**
-     * Trouve toutes les liquidations avec QR code par statut
+     * Page de liquidations avec QR code par statut
      */
-    @Query("SELECT l FROM Liquidation l WHERE l.status = :status AND l.qrCodeData IS NOT NULL AND l.qrCodeData != ''")
-    List<Liquidation> findLiquidationsWithQrCodeByStatus(@Param("status") LiquidationStatus status);
-    
+    @Query(value = "SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.status = :status AND l.qrArtifact IS NOT NULL",
+           countQuery = "SELECT COUNT(l) FROM Liquidation l WHERE l.status = :status AND l.qrArtifact IS NOT NULL")
+    Page<Liquidation> findLiquidationsWithQrCodeByStatus(@Param("status") LiquidationStatus status, Pageable pageable);
+
     /**
-     * Trouve toutes les liquidations avec QR code par type de taxe
+     * Toutes les liquidations avec QR code d'un statut, lues par lots (export)
      */
-    @Query("SELECT l FROM Liquidation l WHERE l.taxType = :taxType AND l.qrCodeData IS NOT NULL AND l.qrCodeData != ''")
-    List<Liquidation> findLiquidationsWithQrCodeByTaxType(@Param("taxType") String taxType);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.status = :status AND l.qrArtifact IS NOT NULL ORDER BY l.id")
+    Stream<Liquidation> streamLiquidationsWithQrCodeByStatus(@Param("status") LiquidationStatus status);
     
     /**
-     * Trouve toutes les liquidations avec QR code généré aujourd'hui
+     * Trouve toutes les liquidations avec QR code par type de taxe
      */
-    @Query("SELECT l FROM Liquidation l WHERE l.qrGeneratedAt >= :startOfDay AND l.qrGeneratedAt < :endOfDay")
-    List<Liquidation> findLiquidationsWithQrCodeGeneratedToday(@Param("startOfDay") LocalDateTime startOfDay, 
-                                                              @Param("endOfDay") LocalDateTime endOfDay);
+    @Query("SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.taxType = :taxType AND l.qrArtifact IS NOT NULL")
+    List<Liquidation> findLiquidationsWithQrCodeByTaxType(@Param("taxType") String taxType);
     
     /**
-     * Trouve toutes les liquidations avec QR code généré cette semaine
+     * Page de liquidations dont le QR code a été généré dans [start, end)
+     * (aujourd'hui, cette semaine, ce mois)
      */
-    @Query("SELECT l FROM Liquidation l WHERE l.qrGeneratedAt >= :weekStart AND l.qrGeneratedAt <= :weekEnd")
-    List<Liquidation> findLiquidationsWithQrCodeGeneratedThisWeek(@Param("weekStart") LocalDateTime weekStart, 
-                                                                 @Param("weekEnd") LocalDateTime weekEnd);
-    
+    @Query(value = "SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.qrGeneratedAt >= :start AND l.qrGeneratedAt < :end",
+           countQuery = "SELECT COUNT(l) FROM Liquidation l WHERE l.qrGeneratedAt >= :start AND l.qrGeneratedAt < :end")
+    Page<Liquidation> findLiquidationsWithQrCodeGeneratedBetween(@Param("start") LocalDateTime start,
+                                                                 @Param("end") LocalDateTime end,
+                                                                 Pageable pageable);
+
     /**
-     * Trouve toutes les liquidations avec QR code généré ce mois
+     * Toutes les liquidations dont le QR code a été généré dans [start, end), lues par lots (export)
      */
-    @Query("SELECT l FROM Liquidation l WHERE l.qrGeneratedAt >= :startOfMonth AND l.qrGeneratedAt < :endOfMonth")
-    List<Liquidation> findLiquidationsWithQrCodeGeneratedThisMonth(@Param("startOfMonth") LocalDateTime startOfMonth, 
-                                                                  @Param("endOfMonth") LocalDateTime endOfMonth);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.qrGeneratedAt >= :start AND l.qrGeneratedAt < :end ORDER BY l.id")
+    Stream<Liquidation> streamLiquidationsWithQrCodeGeneratedBetween(@Param("start") LocalDateTime start,
+                                                                     @Param("end") LocalDateTime end);
     
     /**
      * Trouve toutes les liquidations avec QR code par canal marchand et type
      */
-    @Query("SELECT l FROM Liquidation l WHERE l.merchantChannel = :merchantChannel AND l.qrType = :qrType")
+    @Query("SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.merchantChannel = :merchantChannel AND l.qrType = :qrType")
     List<Liquidation> findByMerchantChannelAndQrType(@Param("merchantChannel") String merchantChannel, 
                                                     @Param("qrType") String qrType);
     
     /**
      * Trouve toutes les liquidations avec QR code par montant de pénalités
      */
-    @Query("SELECT l FROM Liquidation l WHERE l.penaltyAmount >= :minPenalty AND l.penaltyAmount <= :maxPenalty")
+    @Query("SELECT l FROM Liquidation l JOIN FETCH l.customer WHERE l.penaltyAmount >= :minPenalty AND l.penaltyAmount <= :maxPenalty")
     List<Liquidation> findByPenaltyAmountBetween(@Param("minPenalty") BigDecimal minPenalty, 
                                                 @Param("maxPenalty") BigDecimal maxPenalty);
 }
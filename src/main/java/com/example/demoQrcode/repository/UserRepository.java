@@ -2,8 +2,27 @@ package com.example.demoQrcode.repository;
 
 import com.example.demoQrcode.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+
+    /**
+     * Version courante des tokens d'un utilisateur actif (vide si inconnu ou désactivé)
+     */
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.username = :username AND u.enabled = true")
+    Optional<Integer> findActiveTokenVersionByUsername(@Param("username") String username);
+
+    @Modifying
+    @Query("UPDATE User u SET u.tokenVersion = u.tokenVersion + 1 WHERE u.username = :username")
+    int incrementTokenVersion(@Param("username") String username);
+
+    @Modifying
+    @Query("UPDATE User u SET u.tokenVersion = u.tokenVersion + 1 " +
+           "WHERE u.id IN (SELECT holder.id FROM User holder JOIN holder.roles r WHERE r.id = :roleId)")
+    int incrementTokenVersionForRole(@Param("roleId") Long roleId);
 }
@@ -0,0 +1,16 @@
+package com.example.demoQrcode.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Colonnes nécessaires au recalcul des pénalités d'une liquidation échue
+ */
+public interface PenaltyCandidate {
+
+    Long getId();
+
+    BigDecimal getAmount();
+
+    LocalDate getDueDate();
+}
@@ -0,0 +1,33 @@
+package com.example.demoQrcode.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Projection des agrégats QR calculés côté base de données en une seule requête
+ */
+public interface QRStatisticsProjection {
+
+    Long getWithQrCode();
+
+    Long getWithoutQrCode();
+
+    Long getGeneratedToday();
+
+    Long getGeneratedThisWeek();
+
+    Long getGeneratedThisMonth();
+
+    Long getWithPenalties();
+
+    Long getStaticCount();
+
+    Long getDynamicCount();
+
+    Long getP2pCount();
+
+    Long getPenaltyCount();
+
+    BigDecimal getTotalAmountWithQrCode();
+
+    BigDecimal getTotalPenaltyAmount();
+}
@@ -1,30 +1,39 @@
 package com.example.demoQrcode.security;
 
 import com.example.demoQrcode.service.CustomUserDetailsService;
-import io.jsonwebtoken.ExpiredJwtException;
+import com.example.demoQrcode.service.TokenVersionService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
+    private final TokenVersionService tokenVersionService;
 
     // Utiliser l'injection par constructeur (meilleure pratique)
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, CustomUserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil,
+                                   CustomUserDetailsService userDetailsService,
+                                   TokenVersionService tokenVersionService) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.tokenVersionService = tokenVersionService;
     }
 
     private static final String HEADER = "Authorization";
@@ -46,39 +55,56 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         final String authHeader = request.getHeader(HEADER);
-        String token = null;
-        String username = null;
 
-        if (authHeader != null && authHeader.startsWith(PREFIX)) {
-            token = authHeader.substring(PREFIX.length());
-            try {
-                username = jwtUtil.getUsernameFromToken(token);
-            } catch (ExpiredJwtException e) {
-                // token expiré : log et laisser la chaîne continuer (Spring gérera le 401 via EntryPoint si configuré)
-                logger.info("JWT expired: " + e.getMessage());
-            } catch (Exception e) {
-                logger.warn("Unable to parse JWT token: " + e.getMessage());
-            }
-        }
-
-        // Si on a un username et pas encore d'authentification dans le contexte
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            try {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        if (authHeader != null && authHeader.startsWith(PREFIX)
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // Une seule vérification (signature + expiration) par requête
+            Claims claims = jwtUtil.parseToken(authHeader.substring(PREFIX.length()));
+            String username = claims == null ? null : claims.getSubject();
 
-                if (userDetails != null && jwtUtil.validateToken(token, userDetails.getUsername())) {
+            if (username == null) {
+                logger.info("JWT invalide ou expiré");
+            } else {
+                UserDetails userDetails = resolveUser(username, claims);
+                if (userDetails != null) {
                     UsernamePasswordAuthenticationToken authToken =
                             new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                     SecurityContextHolder.getContext().setAuthentication(authToken);
                 }
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Construit l'utilisateur authentifié à partir des claims du token.
+     * Seuls les tokens émis avant l'ajout de la version (sans claim "ver") rechargent l'utilisateur en base.
+     */
+    private UserDetails resolveUser(String username, Claims claims) {
+        Integer tokenVersion = jwtUtil.getTokenVersionFromClaims(claims);
+
+        if (tokenVersion == null) {
+            try {
+                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                return userDetails.isEnabled() ? userDetails : null;
             } catch (Exception e) {
                 // Si loadUserByUsername lève une exception, on log et on continue
                 logger.warn("UserDetailsService failed to load user '" + username + "': " + e.getMessage());
+                return null;
             }
         }
 
-        filterChain.doFilter(request, response);
+        if (!tokenVersionService.isCurrent(username, tokenVersion)) {
+            logger.info("JWT révoqué pour l'utilisateur '" + username + "'");
+            return null;
+        }
+
+        List<GrantedAuthority> authorities = jwtUtil.getRolesFromClaims(claims).stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role))
+                .toList();
+        return new User(username, "", authorities);
     }
 }
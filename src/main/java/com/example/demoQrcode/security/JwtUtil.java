@@ -5,6 +5,7 @@ import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,12 +13,25 @@ import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
+    /**
+     * Claim contenant les rôles de l'utilisateur (ex: ROLE_ADMIN)
+     */
+    public static final String ROLES_CLAIM = "roles";
+
+    /**
+     * Claim contenant la version des tokens de l'utilisateur au moment de l'émission
+     */
+    public static final String TOKEN_VERSION_CLAIM = "ver";
+
     @Value("${jwt.secret}")
     private String secret;
 
@@ -26,6 +40,8 @@ public class JwtUtil {
     
     private SecretKey secretKey;
 
+    private JwtParser jwtParser;
+
     @PostConstruct
     public void checkSecret() {
         if (secret == null || secret.isEmpty()) {
@@ -48,6 +64,8 @@ public class JwtUtil {
         
         // Initialiser la clé secrète
         this.secretKey = Keys.hmacShaKeyFor(keyBytes);
+        // Le parser est immuable et thread-safe : on le construit une seule fois
+        this.jwtParser = Jwts.parser().verifyWith(secretKey).build();
     }
 
     public String generateToken(String username) {
@@ -62,6 +80,57 @@ public class JwtUtil {
                 .compact();
     }
 
+    /**
+     * Génère un token embarquant les rôles et la version des tokens de l'utilisateur,
+     * ce qui permet d'authentifier les requêtes sans recharger l'utilisateur
+     */
+    public String generateToken(String username, Collection<String> roles, int tokenVersion) {
+        Date now = new Date();
+        Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
+
+        return Jwts.builder()
+                .subject(username)
+                .claim(ROLES_CLAIM, List.copyOf(roles))
+                .claim(TOKEN_VERSION_CLAIM, tokenVersion)
+                .issuedAt(now)
+                .expiration(expiryDate)
+                .signWith(secretKey, Jwts.SIG.HS512)
+                .compact();
+    }
+
+    /**
+     * Vérifie la signature et l'expiration du token en une seule passe
+     *
+     * @return les claims du token, ou null si le token est invalide, malformé ou expiré
+     */
+    public Claims parseToken(String token) {
+        if (token == null || token.isEmpty()) return null;
+        try {
+            return jwtParser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Rôles embarqués dans le token (liste vide pour les tokens émis sans rôles)
+     */
+    public List<String> getRolesFromClaims(Claims claims) {
+        Object roles = claims.get(ROLES_CLAIM);
+        if (!(roles instanceof Collection<?> values)) {
+            return Collections.emptyList();
+        }
+        return values.stream().map(String::valueOf).toList();
+    }
+
+    /**
+     * Version des tokens embarquée dans le token (null pour les tokens émis avant son introduction)
+     */
+    public Integer getTokenVersionFromClaims(Claims claims) {
+        Object version = claims.get(TOKEN_VERSION_CLAIM);
+        return version instanceof Number number ? number.intValue() : null;
+    }
+
     public String getUsernameFromToken(String token) {
         return getClaimFromToken(token, Claims::getSubject);
     }
@@ -72,11 +141,7 @@ public class JwtUtil {
 
     public <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(secretKey)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
             return claimsResolver.apply(claims);
         } catch (ExpiredJwtException e) {
             // token expiré -> on retourne null pour signaler l'état
@@ -0,0 +1,132 @@
+package com.example.demoQrcode.security;
+
+import com.example.demoQrcode.entity.Role;
+import com.example.demoQrcode.entity.User;
+import com.example.demoQrcode.service.CustomUserDetailsService;
+import com.example.demoQrcode.service.TokenVersionService;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Invalide les caches d'authentification quand un utilisateur (rôles, activation, mot de passe)
+ * ou un rôle est modifié. Les événements Hibernate sont utilisés plutôt que les callbacks JPA
+ * car une modification de la seule collection des rôles ne déclenche pas @PostUpdate.
+ * L'éviction est refaite après le commit pour qu'une lecture concurrente ne remette pas
+ * en cache l'état d'avant la transaction.
+ *
+ * Les JWT embarquent les rôles : après le commit d'une modification des rôles d'un utilisateur,
+ * ou d'un rôle, les tokens déjà émis aux utilisateurs concernés sont révoqués.
+ */
+@Component
+public class UserCacheEvictionListener implements PostUpdateEventListener, PostDeleteEventListener,
+        PostCollectionUpdateEventListener, PostCollectionRecreateEventListener {
+
+    private static final String USER_ROLES = User.class.getName() + ".roles";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ObjectProvider<CustomUserDetailsService> userDetailsService;
+    private final ObjectProvider<TokenVersionService> tokenVersionService;
+
+    public UserCacheEvictionListener(EntityManagerFactory entityManagerFactory,
+                                     ObjectProvider<CustomUserDetailsService> userDetailsService,
+                                     ObjectProvider<TokenVersionService> tokenVersionService) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.userDetailsService = userDetailsService;
+        this.tokenVersionService = tokenVersionService;
+    }
+
+    @PostConstruct
+    void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        onChange(event.getEntity(), event.getEntity() instanceof Role);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        onChange(event.getEntity(), false);
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        onChange(event.getAffectedOwnerOrNull(), USER_ROLES.equals(event.getCollection().getRole()));
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        onChange(event.getAffectedOwnerOrNull(), USER_ROLES.equals(event.getCollection().getRole()));
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * @param rolesChanged les rôles portés par les tokens de l'utilisateur (ou du rôle) ont changé
+     */
+    private void onChange(Object entity, boolean rolesChanged) {
+        Runnable eviction;
+        Runnable revocation = null;
+        if (entity instanceof User user) {
+            String username = user.getUsername();
+            eviction = () -> {
+                userDetailsService.ifAvailable(service -> service.evict(username));
+                tokenVersionService.ifAvailable(service -> service.invalidate(username));
+            };
+            if (rolesChanged) {
+                revocation = () -> tokenVersionService.ifAvailable(service -> service.revokeTokensAfterRoleChange(username));
+            }
+        } else if (entity instanceof Role role) {
+            eviction = () -> userDetailsService.ifAvailable(CustomUserDetailsService::evictAll);
+            if (rolesChanged) {
+                Long roleId = role.getId();
+                revocation = () -> tokenVersionService.ifAvailable(service -> service.revokeTokensForRole(roleId));
+            }
+        } else {
+            return;
+        }
+
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Runnable afterCommit = revocation;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                    // Révocation seulement une fois la modification validée : un rollback garde les tokens
+                    if (afterCommit != null) {
+                        afterCommit.run();
+                    }
+                }
+            });
+        } else if (revocation != null) {
+            revocation.run();
+        }
+    }
+}
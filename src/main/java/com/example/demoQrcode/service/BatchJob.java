@@ -0,0 +1,116 @@
+package com.example.demoQrcode.service;
+
+import com.example.demoQrcode.dto.BatchJobStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Suivi thread-safe de l'avancement d'un traitement par lot
+ */
+public class BatchJob {
+
+    /**
+     * Nombre maximal d'échecs conservés en détail (le compteur reste exact)
+     */
+    private static final int MAX_RECORDED_FAILURES = 1000;
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final String id;
+    private final String type;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final long startNanos = System.nanoTime();
+
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final ConcurrentLinkedQueue<BatchJobStatus.RowFailure> failures = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger recordedFailures = new AtomicInteger();
+
+    private volatile State state = State.RUNNING;
+    private volatile String message;
+    private volatile LocalDateTime finishedAt;
+    private volatile long finishedNanos;
+
+    public BatchJob(String id, String type) {
+        this.id = id;
+        this.type = type;
+    }
+
+    public String getId() { return id; }
+    public String getType() { return type; }
+    public State getState() { return state; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+
+    public boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    public void setTotal(long total) {
+        this.total.set(total);
+    }
+
+    public void recordSuccess(long count) {
+        succeeded.addAndGet(count);
+    }
+
+    public void recordFailure(Long liquidationId, String error) {
+        failed.incrementAndGet();
+        if (recordedFailures.incrementAndGet() <= MAX_RECORDED_FAILURES) {
+            failures.add(new BatchJobStatus.RowFailure(liquidationId, error));
+        }
+    }
+
+    public void complete(String message) {
+        finish(State.COMPLETED, message);
+    }
+
+    public void fail(String message) {
+        finish(State.FAILED, message);
+    }
+
+    private void finish(State finalState, String finalMessage) {
+        this.finishedNanos = System.nanoTime();
+        this.finishedAt = LocalDateTime.now();
+        this.message = finalMessage;
+        this.state = finalState;
+    }
+
+    /**
+     * Produit une vue immuable de l'avancement courant
+     */
+    public BatchJobStatus snapshot() {
+        long ok = succeeded.get();
+        long ko = failed.get();
+        long processed = ok + ko;
+        long expected = Math.max(total.get(), processed);
+        long endNanos = state == State.RUNNING ? System.nanoTime() : finishedNanos;
+        long elapsedMs = Math.max(0, (endNanos - startNanos) / 1_000_000);
+
+        return BatchJobStatus.builder()
+                .jobId(id)
+                .type(type)
+                .state(state.name())
+                .message(message)
+                .total(expected)
+                .processed(processed)
+                .succeeded(ok)
+                .failed(ko)
+                .progressPercent(expected == 0 ? 100.0 : processed * 100.0 / expected)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .elapsedMs(elapsedMs)
+                .throughputPerSecond(elapsedMs == 0 ? 0.0 : processed * 1000.0 / elapsedMs)
+                .failures(new ArrayList<>(failures))
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demoQrcode.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registre en mémoire des traitements par lot lancés sur cette instance
+ */
+@Component
+public class BatchJobRegistry {
+
+    /**
+     * Nombre de traitements terminés conservés pour consultation
+     */
+    private static final int MAX_FINISHED_JOBS = 100;
+
+    private final Map<String, BatchJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Crée et enregistre un nouveau traitement
+     */
+    public BatchJob create(String type) {
+        evictFinishedJobs();
+        BatchJob job = new BatchJob(UUID.randomUUID().toString(), type);
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    /**
+     * Retourne le traitement en cours pour un type donné, s'il existe
+     */
+    public Optional<BatchJob> findRunning(String type) {
+        return jobs.values().stream()
+                .filter(job -> job.getType().equals(type) && job.isRunning())
+                .findFirst();
+    }
+
+    public Optional<BatchJob> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    public List<BatchJob> list() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(BatchJob::getStartedAt).reversed())
+                .toList();
+    }
+
+    private void evictFinishedJobs() {
+        List<BatchJob> finished = jobs.values().stream()
+                .filter(job -> !job.isRunning())
+                .sorted(Comparator.comparing(BatchJob::getFinishedAt))
+                .toList();
+        for (int i = 0; i < finished.size() - MAX_FINISHED_JOBS; i++) {
+            jobs.remove(finished.get(i).getId());
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package com.example.demoQrcode.service;
 
 
+import com.example.demoQrcode.entity.Role;
 import com.example.demoQrcode.entity.User;
 import com.example.demoQrcode.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -11,31 +19,96 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
+    static final String CACHE_NAME = "security.user-details";
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.security.user-details-cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${app.security.user-details-cache.ttl:10m}")
+    private Duration cacheTtl;
+
+    /**
+     * Utilisateurs par nom : évite la requête users + users_roles à chaque authentification
+     */
+    private Cache<String, UserSnapshot> cache;
+
+    @PostConstruct
+    void initCache() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder(CACHE_NAME + ".hit.rate", cache, c -> c.stats().hitRate())
+                .description("Taux de succès du cache des utilisateurs")
+                .register(meterRegistry);
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
-
-        Set<GrantedAuthority> authorities = user.getRoles().stream()
-                .map(r -> new SimpleGrantedAuthority(r.getName()))
-                .collect(Collectors.toSet());
+        UserSnapshot snapshot = cache.get(username, this::loadSnapshot);
+        if (snapshot == null) {
+            throw new UsernameNotFoundException("User not found: " + username);
+        }
 
-        // Utilise la classe User de Spring Security pour l'auth
+        // Nouvelle instance à chaque appel : Spring Security efface le mot de passe de l'objet retourné
         return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPassword(),
-                user.isEnabled(),
+                snapshot.username(),
+                snapshot.password(),
+                snapshot.enabled(),
                 true, true, true,
-                authorities
+                snapshot.authorities()
         );
     }
+
+    /**
+     * Retire un utilisateur du cache (inscription, changement de rôles ou d'activation)
+     */
+    public void evict(String username) {
+        if (username != null) {
+            cache.invalidate(username);
+        }
+    }
+
+    /**
+     * Vide le cache (ex: renommage d'un rôle)
+     */
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    private UserSnapshot loadSnapshot(String username) {
+        // Les utilisateurs inconnus ne sont pas mis en cache (null)
+        return userRepository.findByUsername(username)
+                .map(UserSnapshot::of)
+                .orElse(null);
+    }
+
+    /**
+     * Copie immuable des données d'authentification d'un utilisateur
+     */
+    private record UserSnapshot(String username, String password, boolean enabled, Set<GrantedAuthority> authorities) {
+
+        static UserSnapshot of(User user) {
+            Set<GrantedAuthority> authorities = user.getRoles().stream()
+                    .map(Role::getName)
+                    .map(SimpleGrantedAuthority::new)
+                    .collect(Collectors.toUnmodifiableSet());
+            return new UserSnapshot(user.getUsername(), user.getPassword(), user.isEnabled(), authorities);
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.example.demoQrcode.service;
 
+import com.example.demoQrcode.dto.CursorPage;
 import com.example.demoQrcode.entity.Customer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -13,6 +14,7 @@ public interface CustomerService {
 	Optional<Customer> update(Long id, Customer customer);
 	boolean delete(Long id);
 	Page<Customer> search(String term, Pageable pageable);
+	CursorPage<Customer> scroll(String cursor, int size, boolean includeTotal);
 }
 
 
@@ -0,0 +1,218 @@
+package com.example.demoQrcode.service;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lecture d'un payload EMVCo (BCEAO) sans copie : le payload est parcouru une fois et seuls les
+ * offsets des champs sont retenus (un tableau d'entiers par template). Les valeurs ne sont
+ * matérialisées (String, BigDecimal) qu'à la demande ; {@link #valueEquals} compare une valeur
+ * sans l'extraire, pour la vérification d'une référence ou d'un montant attendu.
+ *
+ * {@link #parse} refuse un payload mal formé ou dont le CRC (champ 63) est faux. Les templates
+ * imbriqués (26 à 51 compte marchand, 62 données additionnelles, ...) se lisent avec
+ * {@link #template(int)}, qui partage le même payload.
+ */
+public final class EmvcoPayload {
+
+    public static final int PAYLOAD_FORMAT = 0;
+    public static final int POINT_OF_INITIATION = 1;
+    public static final int MERCHANT_ACCOUNT = 26;
+    public static final int CATEGORY_CODE = 52;
+    public static final int CURRENCY = 53;
+    public static final int AMOUNT = 54;
+    public static final int COUNTRY_CODE = 58;
+    public static final int MERCHANT_NAME = 59;
+    public static final int MERCHANT_CITY = 60;
+    public static final int ADDITIONAL_DATA = 62;
+    public static final int CRC = 63;
+
+    public static final int ACCOUNT_GLOBAL_ID = 0;
+    public static final int ACCOUNT_ALIAS = 1;
+    public static final int REFERENCE_LABEL = 5;
+
+    private static final int TAG_COUNT = 100;
+
+    /**
+     * Codes ISO 4217 alphabétiques par code numérique (champ 53 : 952 -> XOF)
+     */
+    private static final Map<Integer, String> CURRENCIES = currencies();
+
+    private final CharSequence payload;
+
+    /**
+     * Par numéro de champ : (début de la valeur << 8) | longueur, 0 si le champ est absent
+     */
+    private final int[] fields = new int[TAG_COUNT];
+
+    private EmvcoPayload(CharSequence payload, int from, int to) {
+        this.payload = payload;
+        int position = from;
+        while (position < to) {
+            if (position + 4 > to) {
+                throw invalid(position, "champ tronqué");
+            }
+            int tag = digits(position);
+            int length = digits(position + 2);
+            int valueStart = position + 4;
+            if (length == 0 || valueStart + length > to) {
+                throw invalid(position, "longueur du champ " + tag + " invalide");
+            }
+            if (fields[tag] != 0) {
+                throw invalid(position, "champ " + tag + " répété");
+            }
+            fields[tag] = valueStart << 8 | length;
+            position = valueStart + length;
+        }
+    }
+
+    /**
+     * Lit un payload complet et vérifie son CRC16-CCITT (dernier champ, 6304XXXX)
+     *
+     * @throws IllegalArgumentException si le payload est mal formé ou si le CRC est faux
+     */
+    public static EmvcoPayload parse(CharSequence payload) {
+        if (payload == null || payload.length() < 8) {
+            throw new IllegalArgumentException("Payload EMVCo trop court");
+        }
+        int crcField = payload.length() - 8;
+        if (payload.charAt(crcField) != '6' || payload.charAt(crcField + 1) != '3'
+                || payload.charAt(crcField + 2) != '0' || payload.charAt(crcField + 3) != '4') {
+            throw new IllegalArgumentException("Payload EMVCo sans CRC final (6304)");
+        }
+        EmvcoPayload parsed = new EmvcoPayload(payload, 0, payload.length());
+        if (parsed.fields[CRC] != ((payload.length() - 4) << 8 | 4)) {
+            throw new IllegalArgumentException("Payload EMVCo sans CRC final (6304)");
+        }
+        int expected = EmvcoQREncoder.crc16(payload, 0, payload.length() - 4, 0xFFFF);
+        if (hex(payload, payload.length() - 4) != expected) {
+            throw new IllegalArgumentException("CRC invalide");
+        }
+        return parsed;
+    }
+
+    public boolean has(int tag) {
+        return fields[tag] != 0;
+    }
+
+    /**
+     * Valeur du champ, matérialisée à l'appel ; null si le champ est absent
+     */
+    public String value(int tag) {
+        int field = fields[tag];
+        if (field == 0) {
+            return null;
+        }
+        int start = field >>> 8;
+        return payload.subSequence(start, start + (field & 0xFF)).toString();
+    }
+
+    /**
+     * Compare la valeur du champ à la valeur attendue, sans l'extraire
+     */
+    public boolean valueEquals(int tag, CharSequence expected) {
+        int field = fields[tag];
+        if (field == 0 || expected == null) {
+            return field == 0 && expected == null;
+        }
+        int start = field >>> 8;
+        int length = field & 0xFF;
+        if (expected.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (payload.charAt(start + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Template imbriqué (ex. 26 compte marchand, 62 données additionnelles) ; null s'il est absent
+     */
+    public EmvcoPayload template(int tag) {
+        int field = fields[tag];
+        if (field == 0) {
+            return null;
+        }
+        int start = field >>> 8;
+        return new EmvcoPayload(payload, start, start + (field & 0xFF));
+    }
+
+    /**
+     * STATIC (01 = 11) ou DYNAMIC (01 = 12)
+     */
+    public String type() {
+        if (valueEquals(POINT_OF_INITIATION, "11")) {
+            return "STATIC";
+        }
+        return valueEquals(POINT_OF_INITIATION, "12") ? "DYNAMIC" : null;
+    }
+
+    public BigDecimal amount() {
+        String amount = value(AMOUNT);
+        return amount != null ? new BigDecimal(amount) : null;
+    }
+
+    /**
+     * Devise en code ISO 4217 alphabétique (XOF), ou la valeur brute du champ 53 si elle est inconnue
+     */
+    public String currency() {
+        String numeric = value(CURRENCY);
+        if (numeric == null) {
+            return null;
+        }
+        String code = numeric.length() == 3 && numeric.chars().allMatch(Character::isDigit)
+                ? CURRENCIES.get(Integer.parseInt(numeric)) : null;
+        return code != null ? code : numeric;
+    }
+
+    /**
+     * Référence de transaction (62, sous-champ 05)
+     */
+    public String reference() {
+        EmvcoPayload additionalData = template(ADDITIONAL_DATA);
+        return additionalData != null ? additionalData.value(REFERENCE_LABEL) : null;
+    }
+
+    public boolean referenceEquals(CharSequence expected) {
+        EmvcoPayload additionalData = template(ADDITIONAL_DATA);
+        return additionalData != null ? additionalData.valueEquals(REFERENCE_LABEL, expected) : expected == null;
+    }
+
+    private int digits(int position) {
+        char tens = payload.charAt(position);
+        char units = payload.charAt(position + 1);
+        if (tens < '0' || tens > '9' || units < '0' || units > '9') {
+            throw invalid(position, "deux chiffres attendus");
+        }
+        return (tens - '0') * 10 + (units - '0');
+    }
+
+    private static int hex(CharSequence payload, int from) {
+        int value = 0;
+        for (int i = from; i < from + 4; i++) {
+            int digit = Character.digit(payload.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("CRC invalide");
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    private static Map<Integer, String> currencies() {
+        Map<Integer, String> currencies = new HashMap<>();
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            currencies.putIfAbsent(currency.getNumericCode(), currency.getCurrencyCode());
+        }
+        return currencies;
+    }
+
+    private static IllegalArgumentException invalid(int position, String reason) {
+        return new IllegalArgumentException("Payload EMVCo invalide à la position " + position + " : " + reason);
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.demoQrcode.service;
+
+import com.aveplus.uemoa.qr.model.MerchantInfo;
+import com.aveplus.uemoa.qr.model.QRPaymentData;
+import com.aveplus.uemoa.qr.service.UemoaQRService;
+import com.example.demoQrcode.config.UemoaConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Encodeur EMVCo (BCEAO) interne : voie rapide de la génération des payloads de QR code.
+ *
+ * Pour un profil marchand donné (nom, ville, pays, catégorie, alias, système de paiement, devise),
+ * tout le payload est fixe sauf le montant, la référence et le CRC. Les TLV fixes sont construits une
+ * fois par profil (gabarit), avec l'état du CRC après le préfixe ; chaque génération ne fait qu'ajouter
+ * les champs variables dans un tampon réutilisé par thread et calculer le CRC16-CCITT par table.
+ *
+ * Le module uemoa-qrcode-module reste la référence. Les générations sont classées par forme : type,
+ * présence d'alias, classe de caractères et troncature du nom et de la ville, échelle du montant
+ * (50000, 50000.00, 1234.5) et longueur de la référence. La première génération de chaque forme est
+ * produite par le module et comparée octet par octet à celle de l'encodeur ; la forme ne passe en voie
+ * rapide qu'en cas d'égalité, sinon (montée de version du module, formatage différent) elle reste servie
+ * par le module. Une forme vérifiée l'est pour tous les marchands. Ensuite, une fraction des générations
+ * (app.qr.encoder.verify-sample-rate) est encore comparée au module : un écart repasse la forme sur le
+ * module et incrémente qr.encoder.verifications{result=mismatch}.
+ * app.qr.encoder.fast-path.enabled=false désactive entièrement la voie rapide.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EmvcoQREncoder {
+
+    /**
+     * Longueur maximale d'une valeur TLV : la longueur est écrite sur deux chiffres
+     */
+    private static final int MAX_VALUE_LENGTH = 99;
+    private static final int MAX_NAME_LENGTH = 25;
+    private static final int MAX_CITY_LENGTH = 15;
+
+    private static final int[] CRC_TABLE = crcTable();
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    public static final String VERIFICATIONS = "qr.encoder.verifications";
+
+    private final UemoaQRService uemoaQRService;
+    private final UemoaConfig uemoaConfig;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.qr.encoder.fast-path.enabled:true}")
+    private boolean fastPathEnabled;
+
+    @Value("${app.qr.encoder.template-cache.max-size:10000}")
+    private long templateCacheMaxSize;
+
+    @Value("${app.qr.encoder.verify-sample-rate:0.01}")
+    private double verifySampleRate;
+
+    private Cache<TemplateKey, Template> templates;
+
+    /**
+     * État de vérification par forme de génération, partagé par tous les marchands
+     */
+    private Cache<Shape, ShapeState> shapes;
+
+    @PostConstruct
+    void initTemplates() {
+        templates = Caffeine.newBuilder()
+                .maximumSize(templateCacheMaxSize)
+                .build();
+        shapes = Caffeine.newBuilder()
+                .maximumSize(templateCacheMaxSize)
+                .build();
+    }
+
+    public String generateStaticQR(QRPaymentData paymentData) {
+        return generate(paymentData, false);
+    }
+
+    public String generateDynamicQR(QRPaymentData paymentData) {
+        return generate(paymentData, true);
+    }
+
+    private String generate(QRPaymentData paymentData, boolean dynamic) {
+        if (!fastPathEnabled) {
+            return module(paymentData, dynamic);
+        }
+        Template template;
+        try {
+            template = template(paymentData, dynamic);
+        } catch (IllegalArgumentException e) {
+            // Profil marchand hors des limites de l'encodeur : le module décide
+            return module(paymentData, dynamic);
+        }
+        Shape shape = Shape.of(template, paymentData, dynamic);
+        ShapeState state = shapes.get(shape, key -> ShapeState.UNVERIFIED);
+        if (state == ShapeState.MISMATCH) {
+            return module(paymentData, dynamic);
+        }
+        if (state == ShapeState.VERIFIED && ThreadLocalRandom.current().nextDouble() >= verifySampleRate) {
+            try {
+                return encode(template, paymentData, dynamic);
+            } catch (IllegalArgumentException e) {
+                // Champ hors des limites de l'encodeur : le module décide
+                return module(paymentData, dynamic);
+            }
+        }
+
+        // Première génération de la forme, ou échantillon de contrôle d'une forme déjà vérifiée
+        String expected = module(paymentData, dynamic);
+        String actual = encodeOrNull(template, paymentData, dynamic);
+        String kind = state == ShapeState.VERIFIED ? "sample" : "first";
+        if (expected.equals(actual)) {
+            shapes.asMap().replace(shape, ShapeState.UNVERIFIED, ShapeState.VERIFIED);
+            recordVerification(kind, "match");
+        } else {
+            shapes.put(shape, ShapeState.MISMATCH);
+            recordVerification(kind, "mismatch");
+            log.warn("Encodeur EMVCo différent du module UEMOA ({}, marchand {}) : voie rapide désactivée pour cette forme {}",
+                    dynamic ? "dynamique" : "statique", paymentData.getMerchantInfo().getName(), shape);
+            log.debug("Module: {} / encodeur: {}", expected, actual);
+        }
+        return expected;
+    }
+
+    private void recordVerification(String kind, String result) {
+        Counter.builder(VERIFICATIONS)
+                .description("Comparaisons de l'encodeur EMVCo interne avec le module UEMOA")
+                .tag("kind", kind)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private String encodeOrNull(Template template, QRPaymentData paymentData, boolean dynamic) {
+        try {
+            return encode(template, paymentData, dynamic);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Encode le payload sans le comparer au module (benchmarks, tests d'équivalence)
+     */
+    public String encode(QRPaymentData paymentData, boolean dynamic) {
+        return encode(template(paymentData, dynamic), paymentData, dynamic);
+    }
+
+    private String encode(Template template, QRPaymentData paymentData, boolean dynamic) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        buffer.append(template.prefix());
+
+        BigDecimal amount = paymentData.getAmount();
+        if (amount != null) {
+            appendTlv(buffer, "54", formatAmount(amount));
+        }
+        buffer.append(template.merchantFields());
+        String reference = paymentData.getTransactionId();
+        if (dynamic && reference != null && !reference.isEmpty()) {
+            if (reference.length() > MAX_VALUE_LENGTH - 4) {
+                throw new IllegalArgumentException("Référence de transaction trop longue pour le champ EMVCo 62");
+            }
+            appendLength(buffer.append("62"), reference.length() + 4);
+            appendTlv(buffer, "05", reference);
+        }
+        buffer.append("6304");
+
+        int crc = crc16(buffer, template.prefix().length(), buffer.length(), template.prefixCrc());
+        buffer.append(HEX[(crc >> 12) & 0xF]).append(HEX[(crc >> 8) & 0xF])
+                .append(HEX[(crc >> 4) & 0xF]).append(HEX[crc & 0xF]);
+        return buffer.toString();
+    }
+
+    private Template template(QRPaymentData paymentData, boolean dynamic) {
+        MerchantInfo merchant = paymentData.getMerchantInfo();
+        if (merchant == null) {
+            throw new IllegalArgumentException("Informations marchand manquantes");
+        }
+        TemplateKey key = new TemplateKey(merchant.getName(), merchant.getCity(), merchant.getCountryCode(),
+                merchant.getCategoryCode(), merchant.getAlias(), dynamic);
+        return templates.get(key, this::buildTemplate);
+    }
+
+    private Template buildTemplate(TemplateKey key) {
+        StringBuilder accountInfo = new StringBuilder();
+        appendTlv(accountInfo, "00", uemoaConfig.getPaymentSystem().getIdentifier());
+        if (key.alias() != null && !key.alias().isEmpty()) {
+            appendTlv(accountInfo, "01", key.alias());
+        }
+
+        StringBuilder prefix = new StringBuilder();
+        appendTlv(prefix, "00", "01");
+        appendTlv(prefix, "01", key.dynamic() ? "12" : "11");
+        appendTlv(prefix, "26", accountInfo.toString());
+        appendTlv(prefix, "52", key.categoryCode());
+        appendTlv(prefix, "53", numericCurrency(uemoaConfig.getCurrency()));
+
+        StringBuilder merchantFields = new StringBuilder();
+        appendTlv(merchantFields, "58", key.countryCode());
+        appendTlv(merchantFields, "59", truncate(key.name(), MAX_NAME_LENGTH));
+        appendTlv(merchantFields, "60", truncate(key.city(), MAX_CITY_LENGTH));
+
+        String prefixValue = prefix.toString();
+        int profile = (key.alias() != null && !key.alias().isEmpty() ? 1 : 0)
+                | textClass(key.name(), MAX_NAME_LENGTH) << 1
+                | textClass(key.city(), MAX_CITY_LENGTH) << 4;
+        return new Template(prefixValue, crc16(prefixValue, 0, prefixValue.length(), 0xFFFF), merchantFields.toString(), profile);
+    }
+
+    private String module(QRPaymentData paymentData, boolean dynamic) {
+        return dynamic ? uemoaQRService.generateDynamicQR(paymentData) : uemoaQRService.generateStaticQR(paymentData);
+    }
+
+    /**
+     * CRC16-CCITT (polynôme 0x1021, sans réflexion) des caractères [from, to) encodés en UTF-8,
+     * à partir de l'état crc (0xFFFF pour un payload complet)
+     */
+    public static int crc16(CharSequence value, int from, int to, int crc) {
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                crc = update(crc, c);
+            } else if (c < 0x800) {
+                crc = update(crc, 0xC0 | (c >> 6));
+                crc = update(crc, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                crc = update(crc, 0xF0 | (codePoint >> 18));
+                crc = update(crc, 0x80 | ((codePoint >> 12) & 0x3F));
+                crc = update(crc, 0x80 | ((codePoint >> 6) & 0x3F));
+                crc = update(crc, 0x80 | (codePoint & 0x3F));
+            } else {
+                crc = update(crc, 0xE0 | (c >> 12));
+                crc = update(crc, 0x80 | ((c >> 6) & 0x3F));
+                crc = update(crc, 0x80 | (c & 0x3F));
+            }
+        }
+        return crc;
+    }
+
+    private static int update(int crc, int octet) {
+        return ((crc << 8) ^ CRC_TABLE[((crc >> 8) ^ octet) & 0xFF]) & 0xFFFF;
+    }
+
+    private static int[] crcTable() {
+        int[] table = new int[256];
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            table[i] = crc & 0xFFFF;
+        }
+        return table;
+    }
+
+    private static void appendTlv(StringBuilder buffer, String tag, String value) {
+        checkLength(tag, value);
+        appendLength(buffer.append(tag), value.length());
+        buffer.append(value);
+    }
+
+    private static void appendLength(StringBuilder buffer, int length) {
+        buffer.append((char) ('0' + length / 10)).append((char) ('0' + length % 10));
+    }
+
+    private static void checkLength(String tag, String value) {
+        if (value == null || value.isEmpty() || value.length() > MAX_VALUE_LENGTH) {
+            throw new IllegalArgumentException("Valeur EMVCo invalide pour le champ " + tag);
+        }
+    }
+
+    /**
+     * Montant sans zéros décimaux inutiles (50000.00 -> 50000)
+     */
+    private static String formatAmount(BigDecimal amount) {
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("Le montant doit être positif");
+        }
+        return amount.stripTrailingZeros().toPlainString();
+    }
+
+    private static String numericCurrency(String currency) {
+        if (currency != null && currency.matches("\\d{3}")) {
+            return currency;
+        }
+        return String.format("%03d", Currency.getInstance(currency).getNumericCode());
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    /**
+     * Classe d'un texte marchand, sur 3 bits : tronqué, ponctuation ASCII, caractères non ASCII
+     */
+    private static int textClass(String value, int maxLength) {
+        if (value == null) {
+            return 0;
+        }
+        int textClass = value.length() > maxLength ? 1 : 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                textClass |= 4;
+            } else if (!Character.isLetterOrDigit(c) && c != ' ') {
+                textClass |= 2;
+            }
+        }
+        return textClass;
+    }
+
+    private enum ShapeState {
+        UNVERIFIED, VERIFIED, MISMATCH
+    }
+
+    /**
+     * TLV fixes d'un profil marchand : préfixe (00 à 53) et son CRC, champs marchand (58 à 60),
+     * et les caractéristiques du profil qui entrent dans la forme de génération
+     */
+    private record Template(String prefix, int prefixCrc, String merchantFields, int profile) {
+    }
+
+    /**
+     * Forme d'une génération : tout ce qui peut changer le formatage du module à contenu égal
+     *
+     * @param amountScale échelle du montant reçu (-1 sans montant)
+     * @param amountFractionDigits décimales significatives du montant (50000.00 -> 0, 1234.50 -> 1)
+     */
+    private record Shape(boolean dynamic, int profile, int amountScale, int amountFractionDigits, int referenceLength) {
+
+        static Shape of(Template template, QRPaymentData paymentData, boolean dynamic) {
+            BigDecimal amount = paymentData.getAmount();
+            String reference = paymentData.getTransactionId();
+            return new Shape(dynamic, template.profile(),
+                    amount != null ? amount.scale() : -1,
+                    amount != null ? Math.max(amount.stripTrailingZeros().scale(), 0) : -1,
+                    dynamic && reference != null ? reference.length() : 0);
+        }
+    }
+
+    private record TemplateKey(String name, String city, String countryCode, String categoryCode, String alias,
+                               boolean dynamic) {
+    }
+}
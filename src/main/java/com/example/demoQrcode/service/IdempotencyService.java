@@ -0,0 +1,220 @@
+package com.example.demoQrcode.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Déduplication des générations de QR code rejouées par les clients (en-tête Idempotency-Key).
+ *
+ * Une requête portant une clé déjà vue renvoie la réponse d'origine tant que la clé est conservée
+ * (app.qr.idempotency.ttl, au plus app.qr.idempotency.max-size clés). Avec ou sans clé, les requêtes
+ * identiques simultanées sur une même ressource sont regroupées : une seule génération s'exécute
+ * et les autres attendent son résultat. Les clés sont propres à chaque utilisateur et à l'instance.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.qr.idempotency.max-size:10000}")
+    private long maxSize;
+
+    @Value("${app.qr.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${app.qr.idempotency.wait-timeout:30s}")
+    private Duration waitTimeout;
+
+    private Cache<StoredKey, StoredResponse> responses;
+    private final Map<InFlightKey, CompletableFuture<ResponseEntity<?>>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void initCache() {
+        responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "qr.idempotency");
+    }
+
+    /**
+     * Exécute une génération au plus une fois par clé d'idempotence.
+     *
+     * @param scope ressource visée (ex. "generate-qr:42") : une clé n'est valable que pour cette ressource
+     * @param idempotencyKey valeur de l'en-tête Idempotency-Key (optionnelle)
+     * @param fingerprint contenu de la requête : une clé réutilisée avec un autre contenu est refusée (422)
+     * @param generation génération à exécuter
+     * @param storable réponses conservées pour être rejouées ; les autres (erreurs, conflits) peuvent être retentées
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ResponseEntity<T> execute(String scope, String idempotencyKey, Object fingerprint,
+                                         Supplier<ResponseEntity<T>> generation,
+                                         Predicate<ResponseEntity<T>> storable) {
+        String principal = currentPrincipal();
+        if (idempotencyKey == null) {
+            return (ResponseEntity<T>) coalesce(new InFlightKey(principal, scope, fingerprint), generation);
+        }
+        validate(idempotencyKey);
+
+        StoredKey key = new StoredKey(principal, scope, idempotencyKey);
+        StoredResponse mine = new StoredResponse(fingerprint, new CompletableFuture<>());
+        StoredResponse existing = responses.asMap().putIfAbsent(key, mine);
+        if (existing != null) {
+            if (!Objects.equals(existing.fingerprint(), fingerprint)) {
+                throw new IdempotencyException(HttpStatus.UNPROCESSABLE_ENTITY,
+                        "La clé d'idempotence a déjà été utilisée avec une requête différente");
+            }
+            log.info("Requête rejouée avec la clé d'idempotence {} sur {}", idempotencyKey, scope);
+            record("replayed");
+            return replayed((ResponseEntity<T>) await(existing.response()));
+        }
+
+        try {
+            ResponseEntity<T> response = (ResponseEntity<T>) coalesce(new InFlightKey(principal, scope, fingerprint), generation);
+            mine.response().complete(response);
+            if (!storable.test(response)) {
+                // Échec : la clé est libérée pour qu'une nouvelle tentative relance la génération
+                responses.asMap().remove(key, mine);
+            }
+            return response;
+        } catch (RuntimeException e) {
+            mine.response().completeExceptionally(e);
+            responses.asMap().remove(key, mine);
+            throw e;
+        }
+    }
+
+    /**
+     * Seules les réponses 2xx sont conservées : un 409 (conflit, « veuillez réessayer »), un 404 ou un 400
+     * rejoué pendant toute la durée de la clé empêcherait le client de réussir en la réutilisant
+     */
+    public <T> ResponseEntity<T> execute(String scope, String idempotencyKey, Object fingerprint,
+                                         Supplier<ResponseEntity<T>> generation) {
+        return execute(scope, idempotencyKey, fingerprint, generation, response -> response.getStatusCode().is2xxSuccessful());
+    }
+
+    /**
+     * Regroupe les requêtes identiques simultanées : la première exécute, les suivantes attendent son résultat
+     */
+    private ResponseEntity<?> coalesce(InFlightKey key, Supplier<? extends ResponseEntity<?>> generation) {
+        CompletableFuture<ResponseEntity<?>> mine = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<?>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            log.info("Génération identique déjà en cours sur {} : attente de son résultat", key.scope());
+            record("coalesced");
+            return replayed(await(running));
+        }
+
+        try {
+            ResponseEntity<?> response = generation.get();
+            mine.complete(response);
+            record("executed");
+            return response;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private ResponseEntity<?> await(CompletableFuture<ResponseEntity<?>> response) {
+        try {
+            return response.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyException(HttpStatus.CONFLICT, "Une requête identique est toujours en cours de traitement");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyException(HttpStatus.CONFLICT, "Attente de la requête identique interrompue");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static <T> ResponseEntity<T> replayed(ResponseEntity<T> response) {
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.getBody());
+    }
+
+    private static void validate(String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyException(HttpStatus.BAD_REQUEST,
+                    "L'en-tête " + HEADER + " doit contenir entre 1 et " + MAX_KEY_LENGTH + " caractères");
+        }
+    }
+
+    private static String currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "anonymous";
+    }
+
+    private void record(String result) {
+        Counter.builder("qr.idempotency.requests")
+                .description("Générations exécutées, rejouées depuis une clé d'idempotence ou regroupées")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Refus d'une requête idempotente (clé invalide, réutilisée ou requête identique toujours en cours)
+     */
+    public static class IdempotencyException extends RuntimeException {
+
+        private final HttpStatus status;
+
+        public IdempotencyException(HttpStatus status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public HttpStatus getStatus() {
+            return status;
+        }
+    }
+
+    private record StoredKey(String principal, String scope, String idempotencyKey) {
+    }
+
+    private record StoredResponse(Object fingerprint, CompletableFuture<ResponseEntity<?>> response) {
+    }
+
+    private record InFlightKey(String principal, String scope, Object fingerprint) {
+    }
+}
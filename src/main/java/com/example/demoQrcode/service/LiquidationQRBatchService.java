@@ -0,0 +1,18 @@
+package com.example.demoQrcode.service;
+
+import com.example.demoQrcode.dto.BatchJobStatus;
+
+/**
+ * Service de génération de QR codes en masse pour les liquidations
+ */
+public interface LiquidationQRBatchService {
+
+    /**
+     * Lance en arrière-plan la génération de QR codes statiques pour toutes les
+     * liquidations non payées qui n'en ont pas encore.
+     * Si un traitement du même type est déjà en cours, son état est retourné.
+     *
+     * @return État initial du traitement lancé
+     */
+    BatchJobStatus startStaticQRGeneration();
+}
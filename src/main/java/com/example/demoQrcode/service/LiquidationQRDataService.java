@@ -1,13 +1,21 @@
 package com.example.demoQrcode.service;
 
+import com.example.demoQrcode.dto.BatchJobStatus;
+import com.example.demoQrcode.dto.QRStatisticsSummary;
 import com.example.demoQrcode.entity.Liquidation;
 import com.example.demoQrcode.entity.LiquidationStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Service pour gérer les opérations de base de données liées aux QR codes des liquidations
@@ -17,19 +25,19 @@ public interface LiquidationQRDataService {
     // --- OPÉRATIONS DE RECHERCHE ---
     
     /**
-     * Trouve toutes les liquidations qui ont un QR code généré
+     * Page de liquidations qui ont un QR code généré
      */
-    List<Liquidation> findLiquidationsWithQrCode();
+    Page<Liquidation> findLiquidationsWithQrCode(Pageable pageable);
     
     /**
-     * Trouve toutes les liquidations qui n'ont pas de QR code généré
+     * Page de liquidations qui n'ont pas de QR code généré
      */
-    List<Liquidation> findLiquidationsWithoutQrCode();
+    Page<Liquidation> findLiquidationsWithoutQrCode(Pageable pageable);
     
     /**
-     * Trouve toutes les liquidations par type de QR code
+     * Page de liquidations par type de QR code
      */
-    List<Liquidation> findByQrType(String qrType);
+    Page<Liquidation> findByQrType(String qrType, Pageable pageable);
     
     /**
      * Trouve une liquidation par identifiant de transaction
@@ -42,9 +50,9 @@ public interface LiquidationQRDataService {
     List<Liquidation> findLiquidationsWithQrCodeByCustomerId(Long customerId);
     
     /**
-     * Trouve toutes les liquidations avec QR code par statut
+     * Page de liquidations avec QR code par statut
      */
-    List<Liquidation> findLiquidationsWithQrCodeByStatus(LiquidationStatus status);
+    Page<Liquidation> findLiquidationsWithQrCodeByStatus(LiquidationStatus status, Pageable pageable);
     
     /**
      * Trouve toutes les liquidations avec QR code par type de taxe
@@ -52,24 +60,24 @@ public interface LiquidationQRDataService {
     List<Liquidation> findLiquidationsWithQrCodeByTaxType(String taxType);
     
     /**
-     * Trouve toutes les liquidations avec QR code généré aujourd'hui
+     * Page de liquidations avec QR code généré aujourd'hui
      */
-    List<Liquidation> findLiquidationsWithQrCodeGeneratedToday();
+    Page<Liquidation> findLiquidationsWithQrCodeGeneratedToday(Pageable pageable);
     
     /**
-     * Trouve toutes les liquidations avec QR code généré cette semaine
+     * Page de liquidations avec QR code généré cette semaine
      */
-    List<Liquidation> findLiquidationsWithQrCodeGeneratedThisWeek();
+    Page<Liquidation> findLiquidationsWithQrCodeGeneratedThisWeek(Pageable pageable);
     
     /**
-     * Trouve toutes les liquidations avec QR code généré ce mois
+     * Page de liquidations avec QR code généré ce mois
      */
-    List<Liquidation> findLiquidationsWithQrCodeGeneratedThisMonth();
+    Page<Liquidation> findLiquidationsWithQrCodeGeneratedThisMonth(Pageable pageable);
     
     /**
-     * Trouve toutes les liquidations avec pénalités
+     * Page de liquidations avec pénalités
      */
-    List<Liquidation> findLiquidationsWithPenalties();
+    Page<Liquidation> findLiquidationsWithPenalties(Pageable pageable);
     
     /**
      * Trouve toutes les liquidations par montant total (base + pénalités)
@@ -81,6 +89,72 @@ public interface LiquidationQRDataService {
      */
     List<Liquidation> findByPenaltyAmountBetween(BigDecimal minPenalty, BigDecimal maxPenalty);
     
+    /**
+     * Date de génération du QR code d'une liquidation qui en possède un
+     */
+    Optional<LocalDateTime> findQrGeneratedAt(Long liquidationId);
+    
+    /**
+     * Image QR (PNG brut) d'une liquidation, rendue à la demande si elle n'est pas encore enregistrée
+     */
+    Optional<byte[]> findQrImage(Long liquidationId);
+    
+    /**
+     * Image QR d'une liquidation au format SVG (document UTF-8)
+     */
+    Optional<byte[]> findQrImageSvg(Long liquidationId);
+    
+    // --- EXPORTS NDJSON ---
+    // Les flux ci-dessous tiennent une connexion ouverte : ils se consomment dans exportAsNdjson
+
+    /**
+     * Flux de toutes les liquidations qui ont un QR code généré
+     */
+    Stream<Liquidation> streamLiquidationsWithQrCode();
+
+    /**
+     * Flux de toutes les liquidations qui n'ont pas de QR code généré
+     */
+    Stream<Liquidation> streamLiquidationsWithoutQrCode();
+
+    /**
+     * Flux de toutes les liquidations d'un type de QR code
+     */
+    Stream<Liquidation> streamByQrType(String qrType);
+
+    /**
+     * Flux de toutes les liquidations avec QR code d'un statut
+     */
+    Stream<Liquidation> streamLiquidationsWithQrCodeByStatus(LiquidationStatus status);
+
+    /**
+     * Flux de toutes les liquidations avec QR code généré aujourd'hui
+     */
+    Stream<Liquidation> streamLiquidationsWithQrCodeGeneratedToday();
+
+    /**
+     * Flux de toutes les liquidations avec QR code généré cette semaine
+     */
+    Stream<Liquidation> streamLiquidationsWithQrCodeGeneratedThisWeek();
+
+    /**
+     * Flux de toutes les liquidations avec QR code généré ce mois
+     */
+    Stream<Liquidation> streamLiquidationsWithQrCodeGeneratedThisMonth();
+
+    /**
+     * Flux de toutes les liquidations avec pénalités
+     */
+    Stream<Liquidation> streamLiquidationsWithPenalties();
+
+    /**
+     * Écrit les liquidations du flux au format NDJSON (un objet JSON par ligne), dans une
+     * transaction en lecture seule et en mémoire constante
+     *
+     * @return nombre de liquidations écrites
+     */
+    long exportAsNdjson(Supplier<Stream<Liquidation>> source, OutputStream output) throws IOException;
+
     // --- OPÉRATIONS DE STATISTIQUES ---
     
     /**
@@ -118,6 +192,11 @@ public interface LiquidationQRDataService {
      */
     BigDecimal calculateTotalPenaltyAmount();
     
+    /**
+     * Calcule l'ensemble des statistiques QR en une seule requête
+     */
+    QRStatisticsSummary getStatisticsSummary();
+    
     // --- OPÉRATIONS DE MAINTENANCE ---
     
     /**
@@ -141,9 +220,13 @@ public interface LiquidationQRDataService {
     void updateTotalAmount(Long liquidationId);
     
     /**
-     * Met à jour le montant total de toutes les liquidations
+     * Lance en arrière-plan le recalcul du montant total de toutes les liquidations
+     * (par plages d'identifiants, une transaction par plage). L'avancement se consulte
+     * via le registre des traitements ; un recalcul déjà en cours est renvoyé tel quel.
+     *
+     * @return État initial du traitement
      */
-    void updateAllTotalAmounts();
+    BatchJobStatus updateAllTotalAmounts();
     
     // --- OPÉRATIONS DE VALIDATION ---
     
@@ -28,8 +28,9 @@ public interface LiquidationQRService {
      * Génère un QR code dynamique pour une liquidation avec référence de transaction
      * 
      * @param liquidation La liquidation pour laquelle générer le QR code
-     * @param transactionReference Référence de transaction unique
-     * @return Données du QR code généré
+     * @param transactionReference Référence de transaction ; une référence fournie par un client est enregistrée
+     *                             avec un identifiant horodaté en suffixe (voir TransactionReferenceGenerator#adopt)
+     * @return Données du QR code généré (transactionReference : référence enregistrée)
      * @throws IllegalArgumentException si la liquidation ou la référence est invalide
      */
     Map<String, Object> generateDynamicQRForLiquidation(Liquidation liquidation, String transactionReference);
@@ -54,6 +55,22 @@ public interface LiquidationQRService {
      */
     Map<String, Object> generateQRWithPenalty(Liquidation liquidation, BigDecimal penaltyAmount);
 
+    /**
+     * Régénère le QR code d'une liquidation en une seule transaction : la liquidation est relue,
+     * l'ancien QR remplacé par le nouveau, et l'opération relancée si une autre mise à jour
+     * concurrente l'a modifiée entre-temps
+     *
+     * @param liquidationId ID de la liquidation
+     * @param qrType Type de QR code (STATIC, DYNAMIC, P2P, PENALTY)
+     * @param transactionReference Référence de transaction (QR dynamique, optionnelle)
+     * @param penaltyAmount Montant des pénalités (QR avec pénalités, optionnel)
+     * @return Données du nouveau QR code, vide si la liquidation n'existe pas
+     * @throws IllegalArgumentException si le type de QR ou la liquidation sont invalides
+     * @throws org.springframework.dao.OptimisticLockingFailureException si le conflit persiste après les nouvelles tentatives
+     */
+    Optional<Map<String, Object>> regenerateQRForLiquidation(Long liquidationId, String qrType,
+                                                            String transactionReference, BigDecimal penaltyAmount);
+
     /**
      * Valide une liquidation pour la génération de QR code
      * 
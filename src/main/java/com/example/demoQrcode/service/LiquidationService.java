@@ -1,5 +1,6 @@
 package com.example.demoQrcode.service;
 
+import com.example.demoQrcode.dto.CursorPage;
 import com.example.demoQrcode.entity.Liquidation;
 import com.example.demoQrcode.entity.LiquidationStatus;
 import org.springframework.data.domain.Page;
@@ -24,6 +25,9 @@ public interface LiquidationService {
 
     Page<Liquidation> searchWithFilters(Long customerId, LiquidationStatus status, LocalDate startDate, LocalDate endDate, Pageable pageable);
 
+    CursorPage<Liquidation> scrollWithFilters(Long customerId, LiquidationStatus status, LocalDate startDate, LocalDate endDate,
+                                              String cursor, int size, boolean includeTotal);
+
     List<Liquidation> findByCustomer(Long customerId);
 
     BigDecimal calculatePenalty(Liquidation liquidation, BigDecimal dailyRate);
@@ -0,0 +1,67 @@
+package com.example.demoQrcode.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Exécute une mise à jour de liquidation dans sa propre transaction et la relance en cas de conflit
+ * de version (@Version) avec une autre instance ou un autre opérateur.
+ *
+ * Chaque tentative relit la liquidation : le travail passé doit donc charger l'entité lui-même.
+ * Après app.liquidation.optimistic-lock.max-attempts échecs, l'exception est propagée (409).
+ * À appeler hors transaction : une transaction englobante serait marquée rollback-only au premier conflit.
+ * {@link #retry} relance sans ouvrir de transaction, pour un travail qui gère les siennes.
+ */
+@Slf4j
+@Component
+public class OptimisticLockRetry {
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.liquidation.optimistic-lock.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.liquidation.optimistic-lock.backoff-ms:50}")
+    private long backoffMs;
+
+    public OptimisticLockRetry(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public <T> T execute(String operation, Supplier<T> work) {
+        return retry(operation, () -> transactionTemplate.execute(status -> work.get()));
+    }
+
+    public <T> T retry(String operation, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("Conflit de mise à jour persistant sur {} après {} tentatives", operation, attempt);
+                    throw e;
+                }
+                log.info("Conflit de mise à jour concurrente sur {} (tentative {}/{}), nouvel essai", operation, attempt, maxAttempts);
+                pause(attempt);
+            }
+        }
+    }
+
+    /**
+     * Attente croissante entre deux tentatives, pour laisser passer la transaction concurrente
+     */
+    private void pause(int attempt) {
+        try {
+            Thread.sleep(backoffMs * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Nouvel essai interrompu", e);
+        }
+    }
+}
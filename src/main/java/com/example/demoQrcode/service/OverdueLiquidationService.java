@@ -0,0 +1,27 @@
+package com.example.demoQrcode.service;
+
+import com.example.demoQrcode.dto.BatchJobStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Traitement des retards : passe les liquidations échues en OVERDUE et enregistre
+ * leurs pénalités et montant total, par lots validés chacun dans leur transaction
+ */
+public interface OverdueLiquidationService {
+
+    /**
+     * Recalcule les liquidations non payées échues avant la date donnée et pas encore recalculées ce jour-là
+     *
+     * @param today Date d'évaluation des retards
+     * @return État final du traitement
+     */
+    BatchJobStatus recalculateOverdueLiquidations(LocalDate today);
+
+    /**
+     * Recalcule les retards à la date du jour
+     *
+     * @return État final du traitement
+     */
+    BatchJobStatus recalculateOverdueLiquidations();
+}
@@ -0,0 +1,35 @@
+package com.example.demoQrcode.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Règle de calcul des pénalités de retard, partagée par le calcul à la demande
+ * et par le traitement planifié des retards
+ */
+public final class PenaltyCalculator {
+
+    private PenaltyCalculator() {
+    }
+
+    /**
+     * pénalité = montant × taux journalier × jours de retard (arrondie au centime)
+     *
+     * @param asOf date à laquelle le retard est évalué
+     * @return zéro si l'échéance n'est pas dépassée ou si le taux n'est pas positif
+     */
+    public static BigDecimal penalty(BigDecimal amount, BigDecimal dailyRate, LocalDate dueDate, LocalDate asOf) {
+        if (amount == null || dailyRate == null || dailyRate.compareTo(BigDecimal.ZERO) <= 0 || dueDate == null) {
+            return BigDecimal.ZERO;
+        }
+        long overdueDays = ChronoUnit.DAYS.between(dueDate, asOf);
+        if (overdueDays <= 0) {
+            return BigDecimal.ZERO;
+        }
+        return amount.multiply(dailyRate)
+                .multiply(BigDecimal.valueOf(overdueDays))
+                .setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demoQrcode.service;
+
+/**
+ * Service de rendu des QR codes en image (PNG ou SVG) selon la configuration uemoa.qr.qr.*
+ */
+public interface QRImageRenderService {
+
+    String FORMAT_PNG = "PNG";
+    String FORMAT_SVG = "SVG";
+
+    /**
+     * Rend un payload EMVCo dans le format demandé.
+     * Le résultat est mis en cache par empreinte SHA-256 du payload : un payload identique
+     * n'est jamais rendu deux fois.
+     *
+     * @param payload Données du QR code
+     * @param format PNG ou SVG
+     * @return Image rendue (octets PNG, ou document SVG encodé en UTF-8)
+     */
+    byte[] render(String payload, String format);
+
+    /**
+     * Rend un payload EMVCo en PNG
+     */
+    default byte[] renderPng(String payload) {
+        return render(payload, FORMAT_PNG);
+    }
+
+    /**
+     * Rend l'image PNG d'une liquidation en arrière-plan puis l'enregistre dans son artefact QR.
+     * Dans une transaction, le rendu ne démarre qu'après le commit ; l'image n'est enregistrée
+     * que si le payload n'a pas changé entre-temps.
+     *
+     * @param liquidationId ID de la liquidation
+     * @param payload Données du QR code à rendre
+     */
+    void renderAndStoreAsync(Long liquidationId, String payload);
+}
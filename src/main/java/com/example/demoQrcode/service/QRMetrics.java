@@ -0,0 +1,171 @@
+package com.example.demoQrcode.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Métriques Micrometer de la génération, du parsing et de la consultation des QR codes.
+ * Les timers publient un histogramme de percentiles pour les tableaux de bord SLO (Prometheus).
+ */
+@Component
+@RequiredArgsConstructor
+public class QRMetrics {
+
+    public static final String GENERATION = "qr.generation";
+    public static final String GENERATION_PHASE = "qr.generation.phase";
+    public static final String GENERATION_FAILURES = "qr.generation.failures";
+    public static final String PARSE = "qr.parse";
+    public static final String DATA_OPERATION = "qr.data.operation";
+    public static final String EXPORTED_ROWS = "qr.data.export.rows";
+
+    public static final String SOURCE_LIQUIDATION = "liquidation";
+    public static final String SOURCE_UEMOA = "uemoa";
+
+    public static final String PHASE_VALIDATION = "validation";
+    public static final String PHASE_ENCODE = "encode";
+    public static final String PHASE_PERSIST = "persist";
+
+    public static final String TYPE_ALL = "ALL";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_REJECTED = "rejected";
+    public static final String OUTCOME_ERROR = "error";
+
+    /**
+     * Bornes des histogrammes : limitent le nombre de buckets publiés par timer
+     */
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(30);
+
+    private static final String DATA_OPERATION_DESCRIPTION = "Durée d'une lecture des données QR";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Chronomètre une génération complète, étiquetée par type de QR et par résultat
+     */
+    public <T> T timeGeneration(String source, String qrType, Supplier<T> generation) {
+        try {
+            return time(GENERATION, "Durée d'une génération de QR code", Tags.of("source", source, "type", qrType), generation);
+        } catch (RuntimeException e) {
+            Counter.builder(GENERATION_FAILURES)
+                    .description("Générations de QR code en échec, par cause")
+                    .tags("source", source, "type", qrType, "exception", rootCause(e).getClass().getSimpleName())
+                    .register(meterRegistry)
+                    .increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Chronomètre une étape de la génération (validation, encodage, sauvegarde)
+     */
+    public <T> T phase(String source, String qrType, String phase, Supplier<T> step) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return step.get();
+        } finally {
+            sample.stop(timer(GENERATION_PHASE, "Durée d'une étape de la génération de QR code",
+                    Tags.of("source", source, "type", qrType, "phase", phase)));
+        }
+    }
+
+    public void phase(String source, String qrType, String phase, Runnable step) {
+        phase(source, qrType, phase, () -> {
+            step.run();
+            return null;
+        });
+    }
+
+    /**
+     * Chronomètre le parsing d'un payload EMVCo
+     */
+    public <T> T timeParse(Supplier<T> parsing) {
+        return time(PARSE, "Durée du parsing d'un QR code", Tags.empty(), parsing);
+    }
+
+    /**
+     * Chronomètre une lecture des données QR (listes, images, statistiques, exports)
+     */
+    public <T> T timeDataOperation(String operation, String qrType, Supplier<T> query) {
+        return time(DATA_OPERATION, DATA_OPERATION_DESCRIPTION,
+                Tags.of("operation", operation, "type", typeTag(qrType)), query);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Enregistre la durée d'un export NDJSON et le nombre de liquidations écrites
+     */
+    public void recordExport(Timer.Sample sample, String outcome, long rows) {
+        sample.stop(timer(DATA_OPERATION, DATA_OPERATION_DESCRIPTION,
+                Tags.of("operation", "export", "type", TYPE_ALL, "outcome", outcome)));
+        Counter.builder(EXPORTED_ROWS)
+                .description("Liquidations écrites par les exports NDJSON")
+                .register(meterRegistry)
+                .increment(rows);
+    }
+
+    /**
+     * Le type de QR vient parfois d'un paramètre de requête : seules les valeurs connues deviennent des tags
+     */
+    static String typeTag(String qrType) {
+        if (qrType == null) {
+            return TYPE_ALL;
+        }
+        return switch (qrType) {
+            case "STATIC", "DYNAMIC", "P2P", "PENALTY", TYPE_ALL -> qrType;
+            default -> "OTHER";
+        };
+    }
+
+    private <T> T time(String name, String description, Tags tags, Supplier<T> operation) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = OUTCOME_ERROR;
+        try {
+            T result = operation.get();
+            outcome = OUTCOME_SUCCESS;
+            return result;
+        } catch (RuntimeException e) {
+            outcome = outcome(e);
+            throw e;
+        } finally {
+            sample.stop(timer(name, description, tags.and("outcome", outcome)));
+        }
+    }
+
+    private Timer timer(String name, String description, Tags tags) {
+        // Le registre renvoie le timer déjà enregistré pour ce nom et ces tags
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Les erreurs de validation (paramètres, liquidation non éligible) sont comptées à part des pannes
+     */
+    private static String outcome(Throwable error) {
+        return rootCause(error) instanceof IllegalArgumentException ? OUTCOME_REJECTED : OUTCOME_ERROR;
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demoQrcode.service;
+
+import com.example.demoQrcode.dto.BatchJobStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Service de rétention des données QR : efface les QR codes par lots,
+ * chaque lot étant validé dans sa propre transaction
+ */
+public interface QRRetentionService {
+
+    /**
+     * Efface les données QR des liquidations dont le QR code a été généré avant la date donnée
+     *
+     * @param cutoff Date limite (exclue)
+     * @return État final du traitement
+     */
+    BatchJobStatus purgeQrCodeDataOlderThan(LocalDateTime cutoff);
+
+    /**
+     * Efface les données QR de toutes les liquidations d'un client
+     *
+     * @param customerId ID du client
+     * @return État final du traitement
+     */
+    BatchJobStatus purgeQrCodeDataByCustomerId(Long customerId);
+
+    /**
+     * Efface les données QR plus anciennes que la fenêtre de rétention configurée
+     *
+     * @return État final du traitement
+     */
+    BatchJobStatus purgeExpiredQrCodeData();
+}
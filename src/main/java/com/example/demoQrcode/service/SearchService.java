@@ -0,0 +1,30 @@
+package com.example.demoQrcode.service;
+
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Recherche plein texte des clients et des liquidations.
+ * Sur PostgreSQL (extension pg_trgm), les recherches utilisent les index trigrammes
+ * de la migration V7 et sont triées par pertinence ; sinon (H2, extension absente)
+ * une recherche LIKE équivalente est utilisée.
+ */
+public interface SearchService {
+
+    /**
+     * Recherche des clients sur le nom, le prénom, l'adresse, l'IFU, l'e-mail et le téléphone
+     */
+    Page<Customer> searchCustomers(String term, Pageable pageable);
+
+    /**
+     * Recherche des liquidations sur le type de taxe, le statut et les champs de recherche du client
+     */
+    Page<Liquidation> searchLiquidations(String term, Pageable pageable);
+
+    /**
+     * Indique si la recherche trigramme (index + pertinence) est active
+     */
+    boolean isRankedSearchAvailable();
+}
@@ -0,0 +1,107 @@
+package com.example.demoQrcode.service;
+
+import com.example.demoQrcode.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+
+/**
+ * Versions des tokens JWT par utilisateur, gardées en mémoire pour éviter une requête
+ * en base à chaque appel authentifié. Un token n'est accepté que si sa version correspond
+ * à la version courante de l'utilisateur : l'incrémenter révoque tous les tokens émis.
+ *
+ * Avec plusieurs instances, une révocation est visible partout au plus tard après
+ * l'expiration de l'entrée du cache (app.security.token-version-cache.ttl).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenVersionService {
+
+    /**
+     * Valeur mise en cache pour un utilisateur inconnu ou désactivé (aucun token accepté)
+     */
+    private static final int NO_VERSION = -1;
+
+    private final UserRepository userRepository;
+
+    @Value("${app.security.token-version-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${app.security.token-version-cache.ttl:5m}")
+    private Duration ttl;
+
+    private LoadingCache<String, Integer> versions;
+
+    @PostConstruct
+    void initCache() {
+        versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build(username -> userRepository.findActiveTokenVersionByUsername(username).orElse(NO_VERSION));
+    }
+
+    /**
+     * Version courante des tokens de l'utilisateur (à embarquer dans les nouveaux tokens)
+     */
+    public int currentVersion(String username) {
+        return versions.get(username);
+    }
+
+    /**
+     * Indique si un token portant cette version est encore valide pour l'utilisateur
+     */
+    public boolean isCurrent(String username, int tokenVersion) {
+        int current = versions.get(username);
+        return current != NO_VERSION && current == tokenVersion;
+    }
+
+    /**
+     * Révoque tous les tokens émis pour l'utilisateur
+     *
+     * @return false si l'utilisateur est introuvable
+     */
+    @Transactional
+    public boolean revokeTokens(String username) {
+        boolean revoked = userRepository.incrementTokenVersion(username) > 0;
+        invalidate(username);
+        if (revoked) {
+            log.info("Tokens révoqués pour l'utilisateur: {}", username);
+        }
+        return revoked;
+    }
+
+    /**
+     * Révoque les tokens de l'utilisateur après une modification de ses rôles. Appelée après le commit
+     * de cette modification : la révocation a sa propre transaction
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void revokeTokensAfterRoleChange(String username) {
+        revokeTokens(username);
+    }
+
+    /**
+     * Révoque les tokens de tous les détenteurs d'un rôle modifié (après le commit de la modification)
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void revokeTokensForRole(Long roleId) {
+        int revoked = userRepository.incrementTokenVersionForRole(roleId);
+        versions.invalidateAll();
+        log.info("Tokens révoqués pour {} utilisateurs du rôle ID: {}", revoked, roleId);
+    }
+
+    /**
+     * Retire l'utilisateur du cache (à appeler après toute modification de son compte)
+     */
+    public void invalidate(String username) {
+        versions.invalidate(username);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.demoQrcode.service;
+
+import com.example.demoQrcode.repository.LiquidationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Filtre de Bloom des identifiants de transaction connus : les références inconnues ou forgées
+ * (callbacks de paiement, contrôles de doublon) sont écartées sans requête en base.
+ *
+ * Le filtre est chargé au démarrage puis alimenté à chaque génération. Les références créées
+ * par une autre instance sont récupérées par un rafraîchissement périodique sur qr_generated_at
+ * (app.qr.transaction-filter.refresh-interval-ms). Tant que le chargement n'est pas terminé,
+ * toutes les recherches vont en base.
+ *
+ * Un filtre de Bloom ne doit jamais donner de faux négatif : une référence absente du filtre mais générée
+ * après le début du dernier rafraîchissement (horodatage contenu dans la référence, voir
+ * {@link TransactionReferenceGenerator#generatedAtMillis}) peut venir d'une autre instance et n'est pas
+ * écartée ; elle est vérifiée en base. Toute référence enregistrée porte l'instant de son enregistrement
+ * (références client comprises, voir {@link TransactionReferenceGenerator#adopt}) ; une référence
+ * horodatée dans le futur est forgée et écartée sans requête.
+ */
+@Slf4j
+@Service
+public class TransactionIdFilter {
+
+    /**
+     * Recouvrement des rafraîchissements (décalage d'horloge entre instances, transactions longues)
+     */
+    private static final Duration REFRESH_OVERLAP = TransactionReferenceGenerator.CLOCK_TOLERANCE;
+
+    private final LiquidationRepository liquidationRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Counter negativeLookups;
+    private final Counter positiveLookups;
+
+    @Value("${app.qr.transaction-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.qr.transaction-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${app.qr.transaction-filter.false-positive-probability:0.01}")
+    private double falsePositiveProbability;
+
+    private volatile BloomFilter filter;
+    private volatile boolean ready;
+    private volatile LocalDateTime lastRefresh;
+    private volatile long lastRefreshMillis;
+
+    public TransactionIdFilter(LiquidationRepository liquidationRepository,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry) {
+        this.liquidationRepository = liquidationRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.negativeLookups = Counter.builder("qr.transaction_filter.lookups")
+                .description("Recherches de transaction ID filtrées par le filtre de Bloom")
+                .tag("result", "negative")
+                .register(meterRegistry);
+        this.positiveLookups = Counter.builder("qr.transaction_filter.lookups")
+                .description("Recherches de transaction ID filtrées par le filtre de Bloom")
+                .tag("result", "positive")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Charge toutes les références existantes (lecture en flux, sans charger les entités)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            log.info("Filtre des transaction IDs désactivé");
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        LocalDateTime refreshFrom = LocalDateTime.now().minus(REFRESH_OVERLAP);
+        long refreshFromMillis = startedAt - REFRESH_OVERLAP.toMillis();
+
+        long existing = liquidationRepository.countByTransactionIdIsNotNull();
+        // Marge x2 pour absorber les générations à venir sans dégrader le taux de faux positifs
+        BloomFilter loading = new BloomFilter(Math.max(expectedInsertions, existing * 2), falsePositiveProbability);
+        filter = loading;
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<String> transactionIds = liquidationRepository.streamAllTransactionIds()) {
+                transactionIds.forEach(loading::put);
+            }
+        });
+
+        lastRefresh = refreshFrom;
+        lastRefreshMillis = refreshFromMillis;
+        ready = true;
+        log.info("Filtre des transaction IDs chargé: {} références, {} bits, {} hachages en {} ms",
+                existing, loading.bitCount(), loading.hashCount(), System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * Ajoute les références générées depuis le dernier rafraîchissement (dont celles des autres instances)
+     */
+    @Scheduled(fixedDelayString = "${app.qr.transaction-filter.refresh-interval-ms:30000}")
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+        LocalDateTime refreshFrom = LocalDateTime.now().minus(REFRESH_OVERLAP);
+        long refreshFromMillis = System.currentTimeMillis() - REFRESH_OVERLAP.toMillis();
+        liquidationRepository.findTransactionIdsGeneratedSince(lastRefresh).forEach(this::register);
+        lastRefresh = refreshFrom;
+        lastRefreshMillis = refreshFromMillis;
+    }
+
+    /**
+     * Enregistre une référence nouvellement générée (appelé avant le commit : au pire un faux positif)
+     */
+    public void register(String transactionId) {
+        BloomFilter current = filter;
+        if (current != null && transactionId != null) {
+            current.put(transactionId);
+        }
+    }
+
+    /**
+     * @return false si la référence n'existe certainement pas en base ; true si elle doit être vérifiée
+     */
+    public boolean mightExist(String transactionId) {
+        if (!ready || transactionId == null) {
+            return true;
+        }
+        // Référence plus récente que le dernier rafraîchissement : peut-être générée par une autre instance,
+        // sauf si son horodatage est dans le futur (référence forgée)
+        long generatedAt = TransactionReferenceGenerator.generatedAtMillis(transactionId);
+        boolean mightExist = filter.mightContain(transactionId)
+                || (generatedAt >= lastRefreshMillis && generatedAt <= System.currentTimeMillis() + REFRESH_OVERLAP.toMillis());
+        (mightExist ? positiveLookups : negativeLookups).increment();
+        return mightExist;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.demoQrcode.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Générateur des références de transaction des QR codes : identifiants 64 bits croissants, uniques
+ * sur l'ensemble des instances, sans verrou ni SecureRandom.
+ *
+ * Un identifiant se compose de 41 bits de millisecondes depuis le 01/01/2024, de 10 bits de numéro
+ * d'instance (app.qr.reference.node-id, 0 à 1023) et de 12 bits de séquence. Le couple
+ * (milliseconde, séquence) avance par une seule opération atomique : au-delà de 4096 références dans
+ * la même milliseconde, ou si l'horloge recule, la génération continue sur les millisecondes suivantes
+ * plutôt que d'attendre. L'unicité entre instances suppose un node-id distinct par instance ; à défaut,
+ * il est dérivé du nom d'hôte et du PID.
+ *
+ * Toute référence enregistrée passe par ce générateur ({@link #next}, ou {@link #adopt} pour une
+ * référence fournie par un client) et porte donc l'instant de son enregistrement.
+ */
+@Slf4j
+@Component
+public class TransactionReferenceGenerator {
+
+    static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    /**
+     * Écart toléré entre l'horodatage d'une référence et l'horloge d'une instance
+     * (décalage d'horloge entre instances, transactions longues)
+     */
+    public static final Duration CLOCK_TOLERANCE = Duration.ofMinutes(2);
+
+    /**
+     * Référence client acceptée : la référence enregistrée (suffixe compris) tient dans le champ 62-05
+     */
+    private static final Pattern CLIENT_REFERENCE = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeBits;
+    private final LongSupplier currentMillis;
+
+    /**
+     * Millisecondes depuis EPOCH_MILLIS (bits de poids fort) et séquence de la dernière référence émise
+     */
+    private final AtomicLong lastTick = new AtomicLong();
+
+    @Autowired
+    public TransactionReferenceGenerator(@Value("${app.qr.reference.node-id:-1}") int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    public TransactionReferenceGenerator(int nodeId, LongSupplier currentMillis) {
+        int node = nodeId < 0 ? derivedNodeId() : nodeId;
+        if (node > MAX_NODE_ID) {
+            throw new IllegalArgumentException("app.qr.reference.node-id doit être compris entre 0 et " + MAX_NODE_ID);
+        }
+        this.nodeBits = (long) node << SEQUENCE_BITS;
+        this.currentMillis = currentMillis;
+        log.info("Références de transaction générées pour l'instance {}", node);
+    }
+
+    /**
+     * Prochain identifiant, strictement supérieur aux précédents de cette instance
+     */
+    public long nextId() {
+        long now = (currentMillis.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long tick = lastTick.accumulateAndGet(now, (last, candidate) -> Math.max(last + 1, candidate));
+        return (tick & ~SEQUENCE_MASK) << NODE_BITS | nodeBits | (tick & SEQUENCE_MASK);
+    }
+
+    /**
+     * Référence de transaction {prefix}-{identifiant}, ex. LIQ-42-1234567890123456789
+     */
+    public String next(String prefix) {
+        return prefix + '-' + nextId();
+    }
+
+    /**
+     * Référence à enregistrer pour une référence fournie par un client. Une référence que {@link #next}
+     * vient de produire (horodatage à moins de CLOCK_TOLERANCE de l'horloge locale) est conservée ;
+     * toute autre reçoit un nouvel identifiant en suffixe : {référence}-{identifiant}. Une référence
+     * enregistrée n'est ainsi jamais plus ancienne que son enregistrement, ce dont dépend
+     * {@link TransactionIdFilter} pour les références créées par une autre instance.
+     *
+     * @throws IllegalArgumentException si la référence est vide, trop longue ou contient des caractères non autorisés
+     */
+    public String adopt(String clientReference) {
+        if (clientReference == null || !CLIENT_REFERENCE.matcher(clientReference).matches()) {
+            throw new IllegalArgumentException("Référence de transaction invalide : 1 à 64 caractères parmi A-Z, a-z, 0-9, '.', '_' et '-'");
+        }
+        long generatedAt = generatedAtMillis(clientReference);
+        long now = currentMillis.getAsLong();
+        if (generatedAt >= now - CLOCK_TOLERANCE.toMillis() && generatedAt <= now + CLOCK_TOLERANCE.toMillis()) {
+            return clientReference;
+        }
+        return next(clientReference);
+    }
+
+    /**
+     * Instant de génération (ms epoch) d'une référence produite par {@link #next}, ou -1 si la référence
+     * n'est pas dans ce format (références antérieures, références forgées)
+     */
+    public static long generatedAtMillis(String reference) {
+        int separator = reference != null ? reference.lastIndexOf('-') : -1;
+        if (separator < 0 || separator == reference.length() - 1) {
+            return -1;
+        }
+        long id;
+        try {
+            id = Long.parseLong(reference, separator + 1, reference.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        return id < 0 ? -1 : (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    private static int derivedNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        long hash = 31L * host.hashCode() + ProcessHandle.current().pid();
+        log.warn("app.qr.reference.node-id non défini : numéro d'instance dérivé de l'hôte {}, à fixer en cluster", host);
+        return (int) (hash & MAX_NODE_ID);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.demoQrcode.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing en masse de QR codes UEMOA pour les outils de rapprochement.
+ *
+ * Les payloads sont lus au fil de l'eau (tableau JSON ou NDJSON, une chaîne ou un objet {"qrData": ...}
+ * par élément), parsés en parallèle sur un pool borné, et les résultats sont écrits en NDJSON dans
+ * l'ordre d'entrée. Au plus app.qr.parse.batch.window payloads sont en cours par requête : la mémoire
+ * reste constante quelle que soit la taille du lot. Un payload invalide produit une ligne d'erreur
+ * sans interrompre le lot ; seul un JSON d'entrée illisible arrête la lecture. Les payloads ne sont
+ * pas journalisés un par un : une seule ligne récapitule le lot.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UemoaQRBatchParseService {
+
+    private static final int FLUSH_SIZE = 100;
+
+    private final UemoaQRIntegrationService uemoaQRIntegrationService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.qr.parse.batch.worker-threads:4}")
+    private int workerThreads;
+
+    @Value("${app.qr.parse.batch.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.qr.parse.batch.window:256}")
+    private int window;
+
+    private ExecutorService parsePool;
+
+    @PostConstruct
+    void initExecutor() {
+        // Pool borné partagé par les requêtes : quand la file est pleine, le thread de la requête parse lui-même
+        parsePool = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("qr-parse-worker-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        parsePool.shutdownNow();
+    }
+
+    /**
+     * Parse les payloads lus sur input et écrit un résultat NDJSON par payload, dans l'ordre :
+     * {"index", "success": true, "parsedData"} ou {"index", "success": false, "error"}
+     *
+     * @return nombre de résultats écrits
+     */
+    public long parseAsNdjson(InputStream input, OutputStream output) throws IOException {
+        ObjectWriter writer = objectMapper.writer();
+        Deque<CompletableFuture<Map<String, Object>>> inFlight = new ArrayDeque<>();
+        long index = 0;
+        long written = 0;
+        long failed = 0;
+
+        // Un tableau JSON racine est déroulé : ses éléments sont lus comme les lignes d'un flux NDJSON
+        try (MappingIterator<JsonNode> payloads = objectMapper.readerFor(JsonNode.class).readValues(input)) {
+            while (true) {
+                JsonNode node;
+                try {
+                    if (!payloads.hasNextValue()) {
+                        break;
+                    }
+                    node = payloads.nextValue();
+                } catch (JsonProcessingException e) {
+                    log.warn("Lot de QR codes illisible après {} payloads: {}", index, e.getOriginalMessage());
+                    inFlight.add(CompletableFuture.completedFuture(failure(index, "JSON invalide : " + e.getOriginalMessage())));
+                    break;
+                }
+
+                long position = index++;
+                String qrData = qrData(node);
+                inFlight.add(CompletableFuture.supplyAsync(() -> parse(position, qrData), parsePool));
+                // Fenêtre pleine : on attend le plus ancien résultat pour conserver l'ordre d'entrée
+                if (inFlight.size() >= window) {
+                    failed += write(writer, output, inFlight.poll().join(), ++written);
+                }
+            }
+
+            while (!inFlight.isEmpty()) {
+                failed += write(writer, output, inFlight.poll().join(), ++written);
+            }
+        } finally {
+            // Client déconnecté : les payloads restants ne sont pas parsés
+            inFlight.forEach(future -> future.cancel(false));
+        }
+        output.flush();
+        log.info("Parsing en masse de {} QR codes terminé : {} échecs", written, failed);
+        return written;
+    }
+
+    private Map<String, Object> parse(long index, String qrData) {
+        if (qrData == null || qrData.isBlank()) {
+            return failure(index, "Les données du QR code sont requises");
+        }
+        try {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("index", index);
+            result.put("success", true);
+            result.put("parsedData", uemoaQRIntegrationService.parseQRCodeQuietly(qrData));
+            return result;
+        } catch (Exception e) {
+            // Payload invalide (CRC faux, champ tronqué, ...) : une ligne d'erreur, sans journalisation
+            return failure(index, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private static Map<String, Object> failure(long index, String error) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("index", index);
+        result.put("success", false);
+        result.put("error", error);
+        return result;
+    }
+
+    private static String qrData(JsonNode node) {
+        if (node.isTextual()) {
+            return node.textValue();
+        }
+        JsonNode qrData = node.get("qrData");
+        return qrData != null && qrData.isTextual() ? qrData.textValue() : null;
+    }
+
+    /**
+     * @return 1 si le résultat écrit est un échec
+     */
+    private static int write(ObjectWriter writer, OutputStream output, Map<String, Object> result, long written) throws IOException {
+        output.write(writer.writeValueAsBytes(result));
+        output.write('\n');
+        if (written % FLUSH_SIZE == 0) {
+            output.flush();
+        }
+        return Boolean.TRUE.equals(result.get("success")) ? 0 : 1;
+    }
+}
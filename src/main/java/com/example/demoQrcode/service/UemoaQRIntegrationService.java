@@ -3,11 +3,19 @@ package com.example.demoQrcode.service;
 import com.aveplus.uemoa.qr.model.QRPaymentData;
 import com.aveplus.uemoa.qr.service.UemoaQRService;
 import com.example.demoQrcode.config.UemoaConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -22,6 +30,48 @@ public class UemoaQRIntegrationService {
     
     private final UemoaQRService uemoaQRService;
     private final UemoaConfig uemoaConfig;
+    private final MeterRegistry meterRegistry;
+    private final QRMetrics qrMetrics;
+
+    @Value("${app.qr.cache.parse.max-size:10000}")
+    private long parseCacheMaxSize;
+
+    @Value("${app.qr.cache.parse.ttl:10m}")
+    private Duration parseCacheTtl;
+
+    @Value("${app.qr.cache.static.max-size:5000}")
+    private long staticCacheMaxSize;
+
+    @Value("${app.qr.cache.static.ttl:1h}")
+    private Duration staticCacheTtl;
+
+    /**
+     * Résultats de parsing par payload (les terminaux re-scannent sans cesse les mêmes codes) ;
+     * un échec de lecture n'est jamais mis en cache
+     */
+    private Cache<String, Map<String, Object>> parseCache;
+
+    /**
+     * QR codes statiques par (marchand, montant) : le payload est identique à chaque génération
+     */
+    private Cache<StaticQRKey, String> staticQRCache;
+
+    @PostConstruct
+    void initCaches() {
+        parseCache = Caffeine.newBuilder()
+                .maximumSize(parseCacheMaxSize)
+                .expireAfterWrite(parseCacheTtl)
+                .recordStats()
+                .build();
+        staticQRCache = Caffeine.newBuilder()
+                .maximumSize(staticCacheMaxSize)
+                .expireAfterWrite(staticCacheTtl)
+                .recordStats()
+                .build();
+        // Exposition des hits/miss/évictions (cache.gets, cache.evictions, ...) via Micrometer
+        CaffeineCacheMetrics.monitor(meterRegistry, parseCache, "uemoa.qr.parse");
+        CaffeineCacheMetrics.monitor(meterRegistry, staticQRCache, "uemoa.qr.static");
+    }
     
     /**
      * Génère un QR code statique pour un montant donné
@@ -31,6 +81,10 @@ public class UemoaQRIntegrationService {
      * @return Données du QR code généré
      */
     public Map<String, Object> generateStaticQR(int amount, String merchantName) {
+        return qrMetrics.timeGeneration(QRMetrics.SOURCE_UEMOA, "STATIC", () -> doGenerateStaticQR(amount, merchantName));
+    }
+
+    private Map<String, Object> doGenerateStaticQR(int amount, String merchantName) {
         try {
             log.info("Génération d'un QR code statique pour le montant: {} centimes", amount);
             
@@ -47,20 +101,21 @@ public class UemoaQRIntegrationService {
                     .filter(name -> !name.trim().isEmpty())
                     .orElse(uemoaConfig.getMerchantName());
             
-            // Création des données de paiement
-            QRPaymentData paymentData = QRPaymentData.builder()
-                    .merchantInfo(com.aveplus.uemoa.qr.model.MerchantInfo.builder()
-                            .name(merchant)
-                            .city(uemoaConfig.getMerchantCity())
-                            .countryCode(uemoaConfig.getCountryCode())
-                            .categoryCode(uemoaConfig.getMerchantCategoryCode())
-                            .alias(uemoaConfig.getTest().getMerchantId())
-                            .build())
-                    .amount(new BigDecimal(amount).divide(new BigDecimal(100))) // Conversion centimes -> unités
-                    .build();
-            
-            // Génération du QR code
-            String qrData = uemoaQRService.generateStaticQR(paymentData);
+            // Génération du QR code (ou réutilisation du payload déjà généré pour ce marchand et ce montant)
+            String qrData = qrMetrics.phase(QRMetrics.SOURCE_UEMOA, "STATIC", QRMetrics.PHASE_ENCODE, () -> staticQRCache.get(new StaticQRKey(merchant, amount), key -> {
+                // Création des données de paiement
+                QRPaymentData paymentData = QRPaymentData.builder()
+                        .merchantInfo(com.aveplus.uemoa.qr.model.MerchantInfo.builder()
+                                .name(key.merchantName())
+                                .city(uemoaConfig.getMerchantCity())
+                                .countryCode(uemoaConfig.getCountryCode())
+                                .categoryCode(uemoaConfig.getMerchantCategoryCode())
+                                .alias(uemoaConfig.getTest().getMerchantId())
+                                .build())
+                        .amount(new BigDecimal(key.amount()).divide(new BigDecimal(100))) // Conversion centimes -> unités
+                        .build();
+                return uemoaQRService.generateStaticQR(paymentData);
+            }));
             
             // Création de la réponse
             Map<String, Object> result = new HashMap<>();
@@ -89,6 +144,10 @@ public class UemoaQRIntegrationService {
      * @return Données du QR code généré
      */
     public Map<String, Object> generateDynamicQR(int amount, String merchantName, String reference) {
+        return qrMetrics.timeGeneration(QRMetrics.SOURCE_UEMOA, "DYNAMIC", () -> doGenerateDynamicQR(amount, merchantName, reference));
+    }
+
+    private Map<String, Object> doGenerateDynamicQR(int amount, String merchantName, String reference) {
         try {
             log.info("Génération d'un QR code dynamique pour le montant: {} centimes, référence: {}", amount, reference);
             
@@ -123,8 +182,8 @@ public class UemoaQRIntegrationService {
                     .transactionId(reference)
                     .build();
             
-            // Génération du QR code
-            String qrData = uemoaQRService.generateDynamicQR(paymentData);
+            // Génération du QR code (jamais mise en cache : chaque référence produit un payload unique)
+            String qrData = qrMetrics.phase(QRMetrics.SOURCE_UEMOA, "DYNAMIC", QRMetrics.PHASE_ENCODE, () -> uemoaQRService.generateDynamicQR(paymentData));
             
             // Création de la réponse
             Map<String, Object> result = new HashMap<>();
@@ -146,31 +205,23 @@ public class UemoaQRIntegrationService {
     }
     
     /**
-     * Parse un QR code UEMOA
+     * Parse un QR code UEMOA : cache par payload, puis {@link EmvcoPayload} (CRC vérifié, sans passer par le module)
      * 
      * @param qrData Données du QR code à parser
      * @return Données de paiement parsées
      */
     public Map<String, Object> parseQRCode(String qrData) {
+        return qrMetrics.timeParse(() -> doParseQRCode(qrData));
+    }
+
+    private Map<String, Object> doParseQRCode(String qrData) {
         try {
             log.info("Parsing d'un QR code UEMOA");
-            
-            QRPaymentData parsedData = uemoaQRService.parseQRCode(qrData);
-            
-            // Création de la réponse
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("parsedData", parsedData);
-            
-            if (parsedData.getMerchantInfo() != null) {
-                result.put("merchantName", parsedData.getMerchantInfo().getName());
-                result.put("merchantCity", parsedData.getMerchantInfo().getCity());
-                result.put("countryCode", parsedData.getMerchantInfo().getCountryCode());
+            if (qrData == null || qrData.trim().isEmpty()) {
+                throw new IllegalArgumentException("Les données du QR code sont requises");
             }
-            
-            result.put("amount", parsedData.getAmount());
-            result.put("type", parsedData.getType());
-            
+            // Seules les lectures réussies sont mises en cache
+            Map<String, Object> result = parseCache.get(qrData, UemoaQRIntegrationService::read);
             log.info("QR code parsé avec succès");
             return result;
             
@@ -179,6 +230,54 @@ public class UemoaQRIntegrationService {
             throw new RuntimeException("Erreur lors du parsing du QR code", e);
         }
     }
+
+    /**
+     * Parse un QR code sans rien journaliser, pour le parsing en masse qui ne journalise
+     * qu'un récapitulatif par lot. Le cache est consulté mais pas alimenté : un lot de payloads
+     * uniques n'en évince pas les codes re-scannés par les terminaux.
+     *
+     * @throws IllegalArgumentException si les données sont absentes, mal formées ou si le CRC est faux
+     */
+    public Map<String, Object> parseQRCodeQuietly(String qrData) {
+        if (qrData == null || qrData.trim().isEmpty()) {
+            throw new IllegalArgumentException("Les données du QR code sont requises");
+        }
+        Map<String, Object> cached = parseCache.getIfPresent(qrData);
+        return cached != null ? cached : read(qrData);
+    }
+
+    /**
+     * Lecture sans copie : CRC vérifié, seuls les champs restitués sont extraits du payload.
+     * Le résultat, partagé par le cache, n'est pas modifiable.
+     */
+    private static Map<String, Object> read(String qrData) {
+        EmvcoPayload payload = EmvcoPayload.parse(qrData);
+        Map<String, Object> merchantInfo = new HashMap<>();
+        merchantInfo.put("name", payload.value(EmvcoPayload.MERCHANT_NAME));
+        merchantInfo.put("city", payload.value(EmvcoPayload.MERCHANT_CITY));
+        merchantInfo.put("countryCode", payload.value(EmvcoPayload.COUNTRY_CODE));
+        merchantInfo.put("categoryCode", payload.value(EmvcoPayload.CATEGORY_CODE));
+        EmvcoPayload merchantAccount = payload.template(EmvcoPayload.MERCHANT_ACCOUNT);
+        merchantInfo.put("alias", merchantAccount != null ? merchantAccount.value(EmvcoPayload.ACCOUNT_ALIAS) : null);
+
+        Map<String, Object> parsedData = new HashMap<>();
+        parsedData.put("merchantInfo", Collections.unmodifiableMap(merchantInfo));
+        parsedData.put("amount", payload.amount());
+        parsedData.put("transactionId", payload.reference());
+        parsedData.put("type", payload.type());
+
+        // Création de la réponse
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("parsedData", Collections.unmodifiableMap(parsedData));
+        result.put("merchantName", merchantInfo.get("name"));
+        result.put("merchantCity", merchantInfo.get("city"));
+        result.put("countryCode", merchantInfo.get("countryCode"));
+        result.put("currency", payload.currency());
+        result.put("amount", parsedData.get("amount"));
+        result.put("type", parsedData.get("type"));
+        return Collections.unmodifiableMap(result);
+    }
     
     /**
      * Génère un QR code de test
@@ -192,4 +291,10 @@ public class UemoaQRIntegrationService {
         
         return generateStaticQR(uemoaConfig.getAmount().getDefaultAmount(), "TEST MERCHANT");
     }
+
+    /**
+     * Clé du cache des QR codes statiques
+     */
+    private record StaticQRKey(String merchantName, int amount) {
+    }
 }
@@ -1,13 +1,17 @@
 package com.example.demoQrcode.service.impl;
 
+import com.example.demoQrcode.dto.CursorPage;
 import com.example.demoQrcode.entity.Customer;
 import com.example.demoQrcode.repository.CustomerRepository;
 import com.example.demoQrcode.service.CustomerService;
+import com.example.demoQrcode.service.SearchService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -16,11 +20,29 @@ public class CustomerServiceImpl implements CustomerService {
 	@Autowired
 	private CustomerRepository customerRepository;
 
+	@Autowired
+	private SearchService searchService;
+
 	@Override
 	public Page<Customer> list(Pageable pageable) {
 		return customerRepository.findAll(pageable);
 	}
 
+	@Override
+	public CursorPage<Customer> scroll(String cursor, int size, boolean includeTotal) {
+		long afterId = 0L;
+		if (cursor != null && !cursor.isBlank()) {
+			try {
+				afterId = Long.parseLong(CursorPage.decodeCursor(cursor, 1)[0]);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Curseur de pagination invalide", e);
+			}
+		}
+		List<Customer> rows = customerRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, size + 1));
+		Long total = includeTotal ? customerRepository.count() : null;
+		return CursorPage.of(rows, size, c -> CursorPage.encodeCursor(c.getId()), total);
+	}
+
 	@Override
 	public Optional<Customer> get(Long id) {
 		return customerRepository.findById(id);
@@ -68,7 +90,7 @@ public class CustomerServiceImpl implements CustomerService {
 
 	@Override
 	public Page<Customer> search(String term, Pageable pageable) {
-		return customerRepository.search(term == null ? "" : term, pageable);
+		return searchService.searchCustomers(term, pageable);
 	}
 }
 
@@ -0,0 +1,261 @@
+package com.example.demoQrcode.service.impl;
+
+import com.aveplus.uemoa.qr.model.QRPaymentData;
+import com.aveplus.uemoa.qr.service.UemoaQRService;
+import com.example.demoQrcode.config.UemoaConfig;
+import com.example.demoQrcode.dto.BatchJobStatus;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import com.example.demoQrcode.service.BatchJob;
+import com.example.demoQrcode.service.BatchJobRegistry;
+import com.example.demoQrcode.service.LiquidationQRBatchService;
+import com.example.demoQrcode.service.LiquidationQRService;
+import com.example.demoQrcode.service.QRImageRenderService;
+import com.example.demoQrcode.service.TransactionIdFilter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implémentation de la génération de QR codes en masse.
+ * Les liquidations sont lues par pages (pagination par clé sur l'identifiant),
+ * les payloads EMVCo et leurs images PNG sont construits en parallèle sur un pool borné puis
+ * écrits en base par lots JDBC, une transaction par page.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LiquidationQRBatchServiceImpl implements LiquidationQRBatchService {
+
+    public static final String JOB_TYPE = "QR_STATIC_GENERATION";
+
+    /**
+     * L'artefact n'est inséré que s'il n'existe pas encore : un QR code généré entre-temps
+     * par un autre appel n'est jamais écrasé (son identifiant est celui de la liquidation)
+     */
+    private static final String INSERT_ARTIFACT_SQL =
+            "INSERT INTO liquidation_qr_artifacts (id, qr_code_data, qr_image) " +
+            "SELECT CAST(? AS BIGINT), CAST(? AS VARCHAR), CAST(? AS BYTEA) " +
+            "WHERE NOT EXISTS (SELECT 1 FROM liquidation_qr_artifacts WHERE id = ?)";
+
+    /**
+     * La liquidation n'est liée que si elle n'a toujours pas de QR code et n'a pas été payée depuis sa lecture
+     */
+    private static final String UPDATE_QR_SQL =
+            "UPDATE liquidations SET qr_artifact_id = id, qr_type = ?, qr_generated_at = ?, merchant_channel = ?, transaction_id = ?, " +
+            "version = version + 1 " +
+            "WHERE id = ? AND qr_artifact_id IS NULL AND status <> 'PAID'";
+
+    /**
+     * Supprime l'artefact inséré pour une liquidation finalement non liée. Un artefact lié à une
+     * liquidation (généré par un autre traitement) n'est jamais supprimé
+     */
+    private static final String DELETE_ORPHAN_ARTIFACT_SQL =
+            "DELETE FROM liquidation_qr_artifacts WHERE id = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM liquidations WHERE qr_artifact_id = ?)";
+
+    private final LiquidationRepository liquidationRepository;
+    private final LiquidationQRService liquidationQRService;
+    private final UemoaQRService uemoaQRService;
+    private final QRImageRenderService qrImageRenderService;
+    private final UemoaConfig uemoaConfig;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BatchJobRegistry batchJobRegistry;
+    private final TransactionIdFilter transactionIdFilter;
+
+    @Value("${app.qr.batch.page-size:500}")
+    private int pageSize;
+
+    @Value("${app.qr.batch.worker-threads:4}")
+    private int workerThreads;
+
+    @Value("${app.qr.batch.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private ExecutorService workerPool;
+    private ExecutorService jobRunner;
+
+    @PostConstruct
+    void initExecutors() {
+        // Pool borné : quand la file est pleine, le thread du job construit lui-même le payload
+        workerPool = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("qr-batch-worker-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        jobRunner = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("qr-batch-job-"));
+    }
+
+    @PreDestroy
+    void shutdownExecutors() {
+        jobRunner.shutdownNow();
+        workerPool.shutdownNow();
+    }
+
+    @Override
+    public synchronized BatchJobStatus startStaticQRGeneration() {
+        Optional<BatchJob> running = batchJobRegistry.findRunning(JOB_TYPE);
+        if (running.isPresent()) {
+            log.info("Génération de QR codes en masse déjà en cours, job ID: {}", running.get().getId());
+            return running.get().snapshot();
+        }
+
+        BatchJob job = batchJobRegistry.create(JOB_TYPE);
+        job.setTotal(liquidationRepository.countUnpaidLiquidationsWithoutQrCode());
+        log.info("Lancement de la génération de QR codes en masse, job ID: {}", job.getId());
+
+        jobRunner.submit(() -> run(job));
+        return job.snapshot();
+    }
+
+    private void run(BatchJob job) {
+        long lastId = 0L;
+        try {
+            while (true) {
+                List<Liquidation> page = liquidationRepository.findLiquidationsWithoutQrCodeAfter(lastId, PageRequest.of(0, pageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                lastId = page.get(page.size() - 1).getId();
+
+                // Construction parallèle des payloads EMVCo et rendu de leurs images
+                List<CompletableFuture<RowResult>> futures = new ArrayList<>(page.size());
+                for (Liquidation liquidation : page) {
+                    futures.add(CompletableFuture.supplyAsync(() -> buildPayload(liquidation), workerPool));
+                }
+
+                List<RowResult> generated = new ArrayList<>(page.size());
+                for (CompletableFuture<RowResult> future : futures) {
+                    RowResult result = future.join();
+                    if (result.error() != null) {
+                        job.recordFailure(result.liquidationId(), result.error());
+                    } else {
+                        generated.add(result);
+                    }
+                }
+
+                writePage(job, generated);
+                log.debug("Job {} : page traitée jusqu'à la liquidation ID {}", job.getId(), lastId);
+            }
+
+            BatchJobStatus status = job.snapshot();
+            job.complete("Génération terminée");
+            log.info("Génération de QR codes en masse terminée, job ID: {} - {} succès, {} échecs, {} lignes/s",
+                    job.getId(), status.getSucceeded(), status.getFailed(), String.format("%.1f", status.getThroughputPerSecond()));
+
+        } catch (Exception e) {
+            log.error("Erreur lors de la génération de QR codes en masse, job ID: {}: {}", job.getId(), e.getMessage(), e);
+            job.fail(e.getMessage());
+        }
+    }
+
+    private RowResult buildPayload(Liquidation liquidation) {
+        try {
+            if (!liquidationQRService.validateLiquidationForQR(liquidation)) {
+                return RowResult.failure(liquidation.getId(), "Liquidation invalide pour la génération de QR code");
+            }
+            QRPaymentData paymentData = liquidationQRService.mapLiquidationToQRPaymentData(liquidation);
+            String qrCode = uemoaQRService.generateStaticQR(paymentData);
+            byte[] qrImage = qrImageRenderService.renderPng(qrCode);
+            String transactionId = liquidationQRService.generateTransactionReference(liquidation);
+            return new RowResult(liquidation.getId(), qrCode, qrImage, transactionId, null);
+        } catch (Exception e) {
+            return RowResult.failure(liquidation.getId(), e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private void writePage(BatchJob job, List<RowResult> generated) {
+        if (generated.isEmpty()) {
+            return;
+        }
+        Timestamp generatedAt = Timestamp.valueOf(LocalDateTime.now());
+        String merchantChannel = uemoaConfig.getPaymentSystem().getIdentifier();
+
+        long written = transactionTemplate.execute(status -> {
+            int[][] inserted = jdbcTemplate.batchUpdate(INSERT_ARTIFACT_SQL, generated, generated.size(), (ps, row) -> {
+                ps.setLong(1, row.liquidationId());
+                ps.setString(2, row.qrCode());
+                ps.setBytes(3, row.qrImage());
+                ps.setLong(4, row.liquidationId());
+            });
+
+            List<RowResult> linked = new ArrayList<>(generated.size());
+            int index = 0;
+            for (int[] batch : inserted) {
+                for (int count : batch) {
+                    RowResult row = generated.get(index++);
+                    // Le pilote peut renvoyer SUCCESS_NO_INFO (-2) lorsqu'il ne connaît pas le nombre de lignes
+                    if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                        linked.add(row);
+                    } else {
+                        job.recordFailure(row.liquidationId(), "QR code déjà généré par un autre traitement");
+                    }
+                }
+            }
+            if (linked.isEmpty()) {
+                return 0L;
+            }
+
+            int[][] updated = jdbcTemplate.batchUpdate(UPDATE_QR_SQL, linked, linked.size(), (ps, row) -> {
+                ps.setString(1, "STATIC");
+                ps.setTimestamp(2, generatedAt);
+                ps.setString(3, merchantChannel);
+                ps.setString(4, row.transactionId());
+                ps.setLong(5, row.liquidationId());
+            });
+
+            // Seules les liquidations effectivement liées comptent : une liquidation payée ou liée
+            // entre la lecture et l'écriture est un échec et son artefact est retiré
+            List<RowResult> updatedRows = new ArrayList<>(linked.size());
+            List<RowResult> orphans = new ArrayList<>();
+            index = 0;
+            for (int[] batch : updated) {
+                for (int count : batch) {
+                    RowResult row = linked.get(index++);
+                    if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                        updatedRows.add(row);
+                    } else {
+                        orphans.add(row);
+                        job.recordFailure(row.liquidationId(), "Liquidation payée ou liée à un QR code pendant la génération");
+                    }
+                }
+            }
+            if (!orphans.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_ORPHAN_ARTIFACT_SQL, orphans, orphans.size(), (ps, row) -> {
+                    ps.setLong(1, row.liquidationId());
+                    ps.setLong(2, row.liquidationId());
+                });
+            }
+            updatedRows.forEach(row -> transactionIdFilter.register(row.transactionId()));
+            return (long) updatedRows.size();
+        });
+
+        job.recordSuccess(written);
+    }
+
+    private record RowResult(Long liquidationId, String qrCode, byte[] qrImage, String transactionId, String error) {
+        static RowResult failure(Long liquidationId, String error) {
+            return new RowResult(liquidationId, null, null, null, error);
+        }
+    }
+}
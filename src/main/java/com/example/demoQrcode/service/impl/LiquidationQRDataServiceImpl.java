@@ -1,21 +1,53 @@
 package com.example.demoQrcode.service.impl;
 
+import com.example.demoQrcode.dto.BatchJobStatus;
+import com.example.demoQrcode.dto.QRStatisticsSummary;
 import com.example.demoQrcode.entity.Liquidation;
 import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.repository.LiquidationQRArtifactRepository;
 import com.example.demoQrcode.repository.LiquidationRepository;
+import com.example.demoQrcode.repository.projection.QRStatisticsProjection;
+import com.example.demoQrcode.service.BatchJob;
+import com.example.demoQrcode.service.BatchJobRegistry;
 import com.example.demoQrcode.service.LiquidationQRDataService;
+import com.example.demoQrcode.service.QRImageRenderService;
+import com.example.demoQrcode.service.QRMetrics;
+import com.example.demoQrcode.service.QRRetentionService;
+import com.example.demoQrcode.service.TransactionIdFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.TemporalAdjusters;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Implémentation du service de gestion des données QR codes des liquidations
@@ -25,31 +57,67 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class LiquidationQRDataServiceImpl implements LiquidationQRDataService {
 
+    public static final String TOTALS_JOB_TYPE = "TOTAL_AMOUNT_RECALCULATION";
+
+    /**
+     * Nombre de lignes écrites entre deux vidages du contexte de persistance pendant un export
+     */
+    private static final int EXPORT_FLUSH_SIZE = 500;
+
     private final LiquidationRepository liquidationRepository;
+    private final LiquidationQRArtifactRepository liquidationQRArtifactRepository;
+    private final QRRetentionService qrRetentionService;
+    private final QRImageRenderService qrImageRenderService;
+    private final TransactionIdFilter transactionIdFilter;
+    private final ObjectMapper objectMapper;
+    private final BatchJobRegistry batchJobRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final QRMetrics qrMetrics;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.qr.totals.chunk-size:5000}")
+    private int totalsChunkSize;
+
+    private ExecutorService totalsJobRunner;
+
+    @PostConstruct
+    void initExecutor() {
+        totalsJobRunner = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("qr-totals-job-"));
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        totalsJobRunner.shutdownNow();
+    }
 
     // --- OPÉRATIONS DE RECHERCHE ---
 
     @Override
-    public List<Liquidation> findLiquidationsWithQrCode() {
-        log.debug("Recherche de toutes les liquidations avec QR code");
-        return liquidationRepository.findLiquidationsWithQrCode();
+    public Page<Liquidation> findLiquidationsWithQrCode(Pageable pageable) {
+        log.debug("Recherche des liquidations avec QR code, page {}", pageable.getPageNumber());
+        return liquidationRepository.findLiquidationsWithQrCode(pageable);
     }
 
     @Override
-    public List<Liquidation> findLiquidationsWithoutQrCode() {
-        log.debug("Recherche de toutes les liquidations sans QR code");
-        return liquidationRepository.findLiquidationsWithoutQrCode();
+    public Page<Liquidation> findLiquidationsWithoutQrCode(Pageable pageable) {
+        log.debug("Recherche des liquidations sans QR code, page {}", pageable.getPageNumber());
+        return liquidationRepository.findLiquidationsWithoutQrCode(pageable);
     }
 
     @Override
-    public List<Liquidation> findByQrType(String qrType) {
+    public Page<Liquidation> findByQrType(String qrType, Pageable pageable) {
         log.debug("Recherche de liquidations par type de QR: {}", qrType);
-        return liquidationRepository.findByQrType(qrType);
+        return qrMetrics.timeDataOperation("list", qrType, () -> liquidationRepository.findByQrType(qrType, pageable));
     }
 
     @Override
     public Optional<Liquidation> findByTransactionId(String transactionId) {
         log.debug("Recherche de liquidation par transaction ID: {}", transactionId);
+        if (!transactionIdFilter.mightExist(transactionId)) {
+            return Optional.empty();
+        }
         return liquidationRepository.findByTransactionId(transactionId);
     }
 
@@ -60,9 +128,9 @@ public class LiquidationQRDataServiceImpl implements LiquidationQRDataService {
     }
 
     @Override
-    public List<Liquidation> findLiquidationsWithQrCodeByStatus(LiquidationStatus status) {
+    public Page<Liquidation> findLiquidationsWithQrCodeByStatus(LiquidationStatus status, Pageable pageable) {
         log.debug("Recherche de liquidations avec QR code par statut: {}", status);
-        return liquidationRepository.findLiquidationsWithQrCodeByStatus(status);
+        return liquidationRepository.findLiquidationsWithQrCodeByStatus(status, pageable);
     }
 
     @Override
@@ -72,33 +140,30 @@ public class LiquidationQRDataServiceImpl implements LiquidationQRDataService {
     }
 
     @Override
-    public List<Liquidation> findLiquidationsWithQrCodeGeneratedToday() {
+    public Page<Liquidation> findLiquidationsWithQrCodeGeneratedToday(Pageable pageable) {
         log.debug("Recherche de liquidations avec QR code généré aujourd'hui");
-        LocalDateTime startOfDay = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
-        LocalDateTime endOfDay = startOfDay.plusDays(1);
-        return liquidationRepository.findLiquidationsWithQrCodeGeneratedToday(startOfDay, endOfDay);
+        LocalDateTime startOfDay = startOfDay();
+        return liquidationRepository.findLiquidationsWithQrCodeGeneratedBetween(startOfDay, startOfDay.plusDays(1), pageable);
     }
 
     @Override
-    public List<Liquidation> findLiquidationsWithQrCodeGeneratedThisWeek() {
+    public Page<Liquidation> findLiquidationsWithQrCodeGeneratedThisWeek(Pageable pageable) {
         log.debug("Recherche de liquidations avec QR code généré cette semaine");
-        LocalDateTime weekStart = LocalDateTime.now().with(TemporalAdjusters.previousOrSame(java.time.DayOfWeek.MONDAY)).withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime weekEnd = LocalDateTime.now().with(TemporalAdjusters.nextOrSame(java.time.DayOfWeek.SUNDAY)).withHour(23).withMinute(59).withSecond(59);
-        return liquidationRepository.findLiquidationsWithQrCodeGeneratedThisWeek(weekStart, weekEnd);
+        LocalDateTime startOfWeek = startOfWeek();
+        return liquidationRepository.findLiquidationsWithQrCodeGeneratedBetween(startOfWeek, startOfWeek.plusWeeks(1), pageable);
     }
 
     @Override
-    public List<Liquidation> findLiquidationsWithQrCodeGeneratedThisMonth() {
+    public Page<Liquidation> findLiquidationsWithQrCodeGeneratedThisMonth(Pageable pageable) {
         log.debug("Recherche de liquidations avec QR code généré ce mois");
-        LocalDateTime startOfMonth = LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0).withNano(0);
-        LocalDateTime endOfMonth = startOfMonth.plusMonths(1);
-        return liquidationRepository.findLiquidationsWithQrCodeGeneratedThisMonth(startOfMonth, endOfMonth);
+        LocalDateTime startOfMonth = startOfMonth();
+        return liquidationRepository.findLiquidationsWithQrCodeGeneratedBetween(startOfMonth, startOfMonth.plusMonths(1), pageable);
     }
 
     @Override
-    public List<Liquidation> findLiquidationsWithPenalties() {
+    public Page<Liquidation> findLiquidationsWithPenalties(Pageable pageable) {
         log.debug("Recherche de liquidations avec pénalités");
-        return liquidationRepository.findLiquidationsWithPenalties();
+        return liquidationRepository.findLiquidationsWithPenalties(pageable);
     }
 
     @Override
@@ -113,6 +178,115 @@ public class LiquidationQRDataServiceImpl implements LiquidationQRDataService {
         return liquidationRepository.findByPenaltyAmountBetween(minPenalty, maxPenalty);
     }
 
+    @Override
+    public Optional<LocalDateTime> findQrGeneratedAt(Long liquidationId) {
+        log.debug("Recherche de la date de génération du QR code de la liquidation ID: {}", liquidationId);
+        return liquidationRepository.findQrGeneratedAtById(liquidationId);
+    }
+
+    @Override
+    public Optional<byte[]> findQrImage(Long liquidationId) {
+        log.debug("Recherche de l'image QR de la liquidation ID: {}", liquidationId);
+        return qrMetrics.timeDataOperation("image.png", QRMetrics.TYPE_ALL, () -> loadQrImage(liquidationId));
+    }
+
+    private Optional<byte[]> loadQrImage(Long liquidationId) {
+        Optional<byte[]> image = liquidationQRArtifactRepository.findQrImageById(liquidationId);
+        if (image.isPresent()) {
+            return image;
+        }
+        // Rendu pas encore enregistré (en cours, ou file saturée) : rendu à la demande depuis le payload
+        return liquidationQRArtifactRepository.findQrCodeDataById(liquidationId)
+                .map(qrImageRenderService::renderPng);
+    }
+
+    @Override
+    public Optional<byte[]> findQrImageSvg(Long liquidationId) {
+        log.debug("Rendu SVG du QR code de la liquidation ID: {}", liquidationId);
+        return qrMetrics.timeDataOperation("image.svg", QRMetrics.TYPE_ALL, () -> liquidationQRArtifactRepository.findQrCodeDataById(liquidationId)
+                .map(payload -> qrImageRenderService.render(payload, QRImageRenderService.FORMAT_SVG)));
+    }
+
+    // --- EXPORTS NDJSON ---
+
+    @Override
+    public Stream<Liquidation> streamLiquidationsWithQrCode() {
+        return liquidationRepository.streamLiquidationsWithQrCode();
+    }
+
+    @Override
+    public Stream<Liquidation> streamLiquidationsWithoutQrCode() {
+        return liquidationRepository.streamLiquidationsWithoutQrCode();
+    }
+
+    @Override
+    public Stream<Liquidation> streamByQrType(String qrType) {
+        return liquidationRepository.streamByQrType(qrType);
+    }
+
+    @Override
+    public Stream<Liquidation> streamLiquidationsWithQrCodeByStatus(LiquidationStatus status) {
+        return liquidationRepository.streamLiquidationsWithQrCodeByStatus(status);
+    }
+
+    @Override
+    public Stream<Liquidation> streamLiquidationsWithQrCodeGeneratedToday() {
+        LocalDateTime startOfDay = startOfDay();
+        return liquidationRepository.streamLiquidationsWithQrCodeGeneratedBetween(startOfDay, startOfDay.plusDays(1));
+    }
+
+    @Override
+    public Stream<Liquidation> streamLiquidationsWithQrCodeGeneratedThisWeek() {
+        LocalDateTime startOfWeek = startOfWeek();
+        return liquidationRepository.streamLiquidationsWithQrCodeGeneratedBetween(startOfWeek, startOfWeek.plusWeeks(1));
+    }
+
+    @Override
+    public Stream<Liquidation> streamLiquidationsWithQrCodeGeneratedThisMonth() {
+        LocalDateTime startOfMonth = startOfMonth();
+        return liquidationRepository.streamLiquidationsWithQrCodeGeneratedBetween(startOfMonth, startOfMonth.plusMonths(1));
+    }
+
+    @Override
+    public Stream<Liquidation> streamLiquidationsWithPenalties() {
+        return liquidationRepository.streamLiquidationsWithPenalties();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportAsNdjson(Supplier<Stream<Liquidation>> source, OutputStream output) throws IOException {
+        Timer.Sample sample = qrMetrics.start();
+        long exported = 0;
+        String outcome = QRMetrics.OUTCOME_ERROR;
+        try {
+            exported = writeNdjson(source, output);
+            outcome = QRMetrics.OUTCOME_SUCCESS;
+            return exported;
+        } finally {
+            qrMetrics.recordExport(sample, outcome, exported);
+        }
+    }
+
+    private long writeNdjson(Supplier<Stream<Liquidation>> source, OutputStream output) throws IOException {
+        ObjectWriter writer = objectMapper.writer();
+        long exported = 0;
+        try (Stream<Liquidation> liquidations = source.get()) {
+            Iterator<Liquidation> iterator = liquidations.iterator();
+            while (iterator.hasNext()) {
+                output.write(writer.writeValueAsBytes(iterator.next()));
+                output.write('\n');
+                // Mémoire constante : les entités déjà écrites sont détachées par lot
+                if (++exported % EXPORT_FLUSH_SIZE == 0) {
+                    entityManager.clear();
+                    output.flush();
+                }
+            }
+        }
+        output.flush();
+        log.info("Export NDJSON de {} liquidations terminé", exported);
+        return exported;
+    }
+
     // --- OPÉRATIONS DE STATISTIQUES ---
 
     @Override
@@ -133,43 +307,92 @@ public class LiquidationQRDataServiceImpl implements LiquidationQRDataService {
     @Override
     public long countLiquidationsWithQrCode() {
         log.debug("Comptage du nombre total de liquidations avec QR code");
-        return liquidationRepository.findLiquidationsWithQrCode().size();
+        return liquidationRepository.countLiquidationsWithQrCode();
     }
 
     @Override
     public long countLiquidationsWithQrCodeGeneratedToday() {
         log.debug("Comptage des liquidations avec QR code généré aujourd'hui");
-        return findLiquidationsWithQrCodeGeneratedToday().size();
+        LocalDateTime startOfDay = startOfDay();
+        return liquidationRepository.countQrCodesGeneratedBetween(startOfDay, startOfDay.plusDays(1));
     }
 
     @Override
     public long countLiquidationsWithQrCodeGeneratedThisWeek() {
         log.debug("Comptage des liquidations avec QR code généré cette semaine");
-        return findLiquidationsWithQrCodeGeneratedThisWeek().size();
+        LocalDateTime startOfWeek = startOfWeek();
+        return liquidationRepository.countQrCodesGeneratedBetween(startOfWeek, startOfWeek.plusWeeks(1));
     }
 
     @Override
     public long countLiquidationsWithQrCodeGeneratedThisMonth() {
         log.debug("Comptage des liquidations avec QR code généré ce mois");
-        return findLiquidationsWithQrCodeGeneratedThisMonth().size();
+        LocalDateTime startOfMonth = startOfMonth();
+        return liquidationRepository.countQrCodesGeneratedBetween(startOfMonth, startOfMonth.plusMonths(1));
     }
 
     @Override
     public BigDecimal calculateTotalAmountOfLiquidationsWithQrCode() {
         log.debug("Calcul du montant total des liquidations avec QR code");
-        return liquidationRepository.findLiquidationsWithQrCode()
-                .stream()
-                .map(liquidation -> liquidation.getTotalAmount() != null ? liquidation.getTotalAmount() : liquidation.getAmount())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return liquidationRepository.sumTotalAmountOfLiquidationsWithQrCode();
     }
 
     @Override
     public BigDecimal calculateTotalPenaltyAmount() {
         log.debug("Calcul du montant total des pénalités");
-        return liquidationRepository.findLiquidationsWithPenalties()
-                .stream()
-                .map(liquidation -> liquidation.getPenaltyAmount() != null ? liquidation.getPenaltyAmount() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return liquidationRepository.sumPenaltyAmount();
+    }
+
+    @Override
+    public QRStatisticsSummary getStatisticsSummary() {
+        log.debug("Calcul du résumé des statistiques QR");
+        return qrMetrics.timeDataOperation("statistics", QRMetrics.TYPE_ALL, this::computeStatisticsSummary);
+    }
+
+    private QRStatisticsSummary computeStatisticsSummary() {
+        LocalDateTime startOfDay = startOfDay();
+        LocalDateTime startOfWeek = startOfWeek();
+        LocalDateTime startOfMonth = startOfMonth();
+
+        QRStatisticsProjection stats = liquidationRepository.computeQrStatistics(
+                startOfDay, startOfDay.plusDays(1),
+                startOfWeek, startOfWeek.plusWeeks(1),
+                startOfMonth, startOfMonth.plusMonths(1));
+
+        Map<String, Long> countByQrType = new LinkedHashMap<>();
+        countByQrType.put("STATIC", valueOf(stats.getStaticCount()));
+        countByQrType.put("DYNAMIC", valueOf(stats.getDynamicCount()));
+        countByQrType.put("P2P", valueOf(stats.getP2pCount()));
+        countByQrType.put("PENALTY", valueOf(stats.getPenaltyCount()));
+
+        return QRStatisticsSummary.builder()
+                .liquidationsWithQrCode(valueOf(stats.getWithQrCode()))
+                .liquidationsWithoutQrCode(valueOf(stats.getWithoutQrCode()))
+                .liquidationsWithPenalties(valueOf(stats.getWithPenalties()))
+                .generatedToday(valueOf(stats.getGeneratedToday()))
+                .generatedThisWeek(valueOf(stats.getGeneratedThisWeek()))
+                .generatedThisMonth(valueOf(stats.getGeneratedThisMonth()))
+                .countByQrType(countByQrType)
+                .totalAmountWithQrCode(stats.getTotalAmountWithQrCode() != null ? stats.getTotalAmountWithQrCode() : BigDecimal.ZERO)
+                .totalPenaltyAmount(stats.getTotalPenaltyAmount() != null ? stats.getTotalPenaltyAmount() : BigDecimal.ZERO)
+                .computedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static long valueOf(Long count) {
+        return count != null ? count : 0L;
+    }
+
+    private static LocalDateTime startOfDay() {
+        return LocalDate.now().atStartOfDay();
+    }
+
+    private static LocalDateTime startOfWeek() {
+        return LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+    }
+
+    private static LocalDateTime startOfMonth() {
+        return LocalDate.now().withDayOfMonth(1).atStartOfDay();
     }
 
     // --- OPÉRATIONS DE MAINTENANCE ---
@@ -190,6 +413,8 @@ public class LiquidationQRDataServiceImpl implements LiquidationQRDataService {
             liquidation.setTransactionId(null);
             liquidation.setPenaltyAmount(null);
             liquidation.setTotalAmount(null);
+            // Pénalités recalculées au prochain passage du traitement des retards
+            liquidation.setPenaltyCalculatedOn(null);
             
             liquidationRepository.save(liquidation);
             log.info("Données QR supprimées avec succès pour la liquidation ID: {}", liquidationId);
@@ -199,50 +424,18 @@ public class LiquidationQRDataServiceImpl implements LiquidationQRDataService {
     }
 
     @Override
-    @Transactional
     public void removeQrCodeDataByCustomerId(Long customerId) {
         log.info("Suppression des données QR de toutes les liquidations du client ID: {}", customerId);
-        List<Liquidation> liquidations = liquidationRepository.findLiquidationsWithQrCodeByCustomerId(customerId);
-        
-        for (Liquidation liquidation : liquidations) {
-            liquidation.setQrCodeData(null);
-            liquidation.setQrImageBase64(null);
-            liquidation.setQrType(null);
-            liquidation.setQrGeneratedAt(null);
-            liquidation.setMerchantChannel(null);
-            liquidation.setTransactionId(null);
-            liquidation.setPenaltyAmount(null);
-            liquidation.setTotalAmount(null);
-        }
-        
-        liquidationRepository.saveAll(liquidations);
-        log.info("Données QR supprimées pour {} liquidations du client ID: {}", liquidations.size(), customerId);
+        BatchJobStatus status = qrRetentionService.purgeQrCodeDataByCustomerId(customerId);
+        log.info("Données QR supprimées pour {} liquidations du client ID: {}", status.getSucceeded(), customerId);
     }
 
     @Override
-    @Transactional
     public void removeQrCodeDataOlderThan(LocalDateTime date) {
         log.info("Suppression des données QR des liquidations plus anciennes que: {}", date);
-        List<Liquidation> liquidations = liquidationRepository.findLiquidationsWithQrCode();
-        
-        int count = 0;
-        for (Liquidation liquidation : liquidations) {
-            if (liquidation.getQrGeneratedAt() != null && liquidation.getQrGeneratedAt().isBefore(date)) {
-                liquidation.setQrCodeData(null);
-                liquidation.setQrImageBase64(null);
-                liquidation.setQrType(null);
-                liquidation.setQrGeneratedAt(null);
-                liquidation.setMerchantChannel(null);
-                liquidation.setTransactionId(null);
-                liquidation.setPenaltyAmount(null);
-                liquidation.setTotalAmount(null);
-                count++;
-            }
-        }
-        
-        if (count > 0) {
-            liquidationRepository.saveAll(liquidations);
-            log.info("Données QR supprimées pour {} liquidations plus anciennes que {}", count, date);
+        BatchJobStatus status = qrRetentionService.purgeQrCodeDataOlderThan(date);
+        if (status.getSucceeded() > 0) {
+            log.info("Données QR supprimées pour {} liquidations plus anciennes que {}", status.getSucceeded(), date);
         } else {
             log.info("Aucune liquidation trouvée plus ancienne que {}", date);
         }
@@ -265,17 +458,49 @@ public class LiquidationQRDataServiceImpl implements LiquidationQRDataService {
     }
 
     @Override
-    @Transactional
-    public void updateAllTotalAmounts() {
-        log.info("Mise à jour du montant total de toutes les liquidations");
-        List<Liquidation> liquidations = liquidationRepository.findAll();
-        
-        for (Liquidation liquidation : liquidations) {
-            liquidation.updateTotalAmount();
+    public synchronized BatchJobStatus updateAllTotalAmounts() {
+        Optional<BatchJob> running = batchJobRegistry.findRunning(TOTALS_JOB_TYPE);
+        if (running.isPresent()) {
+            log.info("Recalcul des montants totaux déjà en cours, job ID: {}", running.get().getId());
+            return running.get().snapshot();
+        }
+
+        BatchJob job = batchJobRegistry.create(TOTALS_JOB_TYPE);
+        job.setTotal(liquidationRepository.countLiquidationsWithStaleTotalAmount());
+        log.info("Lancement du recalcul des montants totaux, job ID: {}", job.getId());
+
+        totalsJobRunner.submit(() -> recalculateTotalAmounts(job));
+        return job.snapshot();
+    }
+
+    /**
+     * Parcourt la table par plages d'identifiants [fromId, fromId + chunk) : chaque plage est un
+     * UPDATE en base validé dans sa propre transaction, quelle que soit la densité des identifiants
+     */
+    private void recalculateTotalAmounts(BatchJob job) {
+        try {
+            Optional<Long> minId = liquidationRepository.findMinId();
+            Optional<Long> maxId = liquidationRepository.findMaxId();
+            if (minId.isPresent() && maxId.isPresent()) {
+                for (long fromId = minId.get(); fromId <= maxId.get(); fromId += totalsChunkSize) {
+                    long from = fromId;
+                    Integer updated = transactionTemplate.execute(status ->
+                            liquidationRepository.updateTotalAmountsInIdRange(from, from + totalsChunkSize));
+                    if (updated != null && updated > 0) {
+                        job.recordSuccess(updated);
+                    }
+                }
+            }
+
+            job.complete("Recalcul des montants totaux terminé");
+            BatchJobStatus status = job.snapshot();
+            log.info("Recalcul des montants totaux terminé, job ID: {} - {} liquidations mises à jour en {} ms",
+                    job.getId(), status.getSucceeded(), status.getElapsedMs());
+
+        } catch (RuntimeException e) {
+            log.error("Erreur lors du recalcul des montants totaux, job ID: {}: {}", job.getId(), e.getMessage(), e);
+            job.fail(e.getMessage());
         }
-        
-        liquidationRepository.saveAll(liquidations);
-        log.info("Montant total mis à jour pour {} liquidations", liquidations.size());
     }
 
     // --- OPÉRATIONS DE VALIDATION ---
@@ -296,7 +521,7 @@ public class LiquidationQRDataServiceImpl implements LiquidationQRDataService {
     @Override
     public boolean transactionIdExists(String transactionId) {
         log.debug("Vérification de l'existence du transaction ID: {}", transactionId);
-        return liquidationRepository.findByTransactionId(transactionId).isPresent();
+        return transactionIdFilter.mightExist(transactionId) && liquidationRepository.existsByTransactionId(transactionId);
     }
 
     @Override
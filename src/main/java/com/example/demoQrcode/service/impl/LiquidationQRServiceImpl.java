@@ -2,40 +2,87 @@ package com.example.demoQrcode.service.impl;
 
 import com.aveplus.uemoa.qr.model.QRPaymentData;
 import com.aveplus.uemoa.qr.model.MerchantInfo;
-import com.aveplus.uemoa.qr.service.UemoaQRService;
 import com.example.demoQrcode.config.UemoaConfig;
 import com.example.demoQrcode.entity.Liquidation;
 import com.example.demoQrcode.entity.Customer;
 import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.service.EmvcoQREncoder;
 import com.example.demoQrcode.service.LiquidationQRService;
+import com.example.demoQrcode.service.OptimisticLockRetry;
+import com.example.demoQrcode.service.QRImageRenderService;
+import com.example.demoQrcode.service.QRMetrics;
+import com.example.demoQrcode.service.TransactionIdFilter;
+import com.example.demoQrcode.service.TransactionReferenceGenerator;
 import com.example.demoQrcode.repository.LiquidationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
- * Implémentation du service de génération de QR codes pour les liquidations
+ * Implémentation du service de génération de QR codes pour les liquidations.
+ *
+ * Les générations ne sont pas transactionnelles : la validation, le mapping et l'encodage EMVCo
+ * s'exécutent sans connexion JDBC, sur la liquidation lue par l'appelant. Seule l'écriture du
+ * résultat (colonnes QR et artefact) ouvre une courte transaction, refusée si la liquidation a été
+ * modifiée depuis sa lecture (ObjectOptimisticLockingFailureException, 409). La liquidation passée
+ * doit donc être détachée : les endpoints de génération sont exclus de l'Open Session In View.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class LiquidationQRServiceImpl implements LiquidationQRService {
 
-    private final UemoaQRService uemoaQRService;
+    /**
+     * Seules les colonnes QR sont écrites, et uniquement si la liquidation n'a pas changé depuis
+     * sa lecture (même version) ni été payée entre-temps
+     */
+    private static final String UPDATE_QR_SQL =
+            "UPDATE liquidations SET qr_type = ?, qr_generated_at = ?, merchant_channel = ?, transaction_id = ?, " +
+            "penalty_amount = ?, total_amount = ?, penalty_calculated_on = ?, version = version + 1 " +
+            "WHERE id = ? AND version = ? AND status <> 'PAID'";
+
+    /**
+     * L'artefact porte l'identifiant de la liquidation : le nouveau payload remplace l'ancien et invalide son image
+     */
+    private static final String UPDATE_ARTIFACT_SQL =
+            "UPDATE liquidation_qr_artifacts SET qr_code_data = ?, qr_image = NULL WHERE id = ?";
+
+    private static final String INSERT_ARTIFACT_SQL =
+            "INSERT INTO liquidation_qr_artifacts (id, qr_code_data) VALUES (?, ?)";
+
+    private static final String LINK_ARTIFACT_SQL =
+            "UPDATE liquidations SET qr_artifact_id = id WHERE id = ? AND qr_artifact_id IS NULL";
+
     private final UemoaConfig uemoaConfig;
     private final LiquidationRepository liquidationRepository;
+    private final QRImageRenderService qrImageRenderService;
+    private final TransactionIdFilter transactionIdFilter;
+    private final QRMetrics qrMetrics;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionReferenceGenerator transactionReferenceGenerator;
+    private final EmvcoQREncoder emvcoQREncoder;
 
     @Override
-    @Transactional
     public Map<String, Object> generateStaticQRForLiquidation(Liquidation liquidation) {
+        return qrMetrics.timeGeneration(QRMetrics.SOURCE_LIQUIDATION, "STATIC", () -> generateStatic(liquidation));
+    }
+
+    private Map<String, Object> generateStatic(Liquidation liquidation) {
         // Validation de la liquidation
         if (liquidation == null) {
             throw new IllegalArgumentException("La liquidation ne peut pas être null");
@@ -43,7 +90,7 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
         
         log.info("Génération d'un QR code statique pour la liquidation ID: {}", liquidation.getId());
         
-        if (!validateLiquidationForQR(liquidation)) {
+        if (!phase("STATIC", QRMetrics.PHASE_VALIDATION, () -> validateLiquidationForQR(liquidation))) {
             throw new IllegalArgumentException("Liquidation invalide pour la génération de QR code");
         }
 
@@ -52,7 +99,7 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
             QRPaymentData paymentData = mapLiquidationToQRPaymentData(liquidation);
             
             // Génération du QR code statique
-            String qrCode = uemoaQRService.generateStaticQR(paymentData);
+            String qrCode = phase("STATIC", QRMetrics.PHASE_ENCODE, () -> emvcoQREncoder.generateStaticQR(paymentData));
             
             // Sauvegarde des données QR dans l'entité Liquidation
             liquidation.setQrCodeData(qrCode);
@@ -61,14 +108,14 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
             liquidation.setMerchantChannel(uemoaConfig.getPaymentSystem().getIdentifier());
             liquidation.setTransactionId(generateTransactionReference(liquidation));
             
-            // Sauvegarde en base de données
-            liquidationRepository.save(liquidation);
+            // Écriture des seules colonnes QR, dans une transaction courte
+            persist(liquidation, "STATIC");
             
             // Création de la réponse
             Map<String, Object> result = new HashMap<>();
             result.put("qrCode", qrCode);
             result.put("liquidationId", liquidation.getId());
-            result.put("customerName", liquidation.getCustomer().getFirstName() + " " + liquidation.getCustomer().getLastName());
+            result.put("customerName", customerName(liquidation));
             result.put("amount", liquidation.getAmount());
             result.put("currency", uemoaConfig.getCurrency());
             result.put("taxType", liquidation.getTaxType());
@@ -81,6 +128,9 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
             log.info("QR code statique généré et sauvegardé avec succès pour la liquidation ID: {}", liquidation.getId());
             return result;
             
+        } catch (OptimisticLockingFailureException e) {
+            // Conflit de version : propagé tel quel (409, ou nouvel essai pour la régénération)
+            throw e;
         } catch (Exception e) {
             log.error("Erreur lors de la génération du QR code statique pour la liquidation ID: {}: {}", 
                      liquidation.getId(), e.getMessage(), e);
@@ -89,8 +139,11 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
     }
 
     @Override
-    @Transactional
     public Map<String, Object> generateDynamicQRForLiquidation(Liquidation liquidation, String transactionReference) {
+        return qrMetrics.timeGeneration(QRMetrics.SOURCE_LIQUIDATION, "DYNAMIC", () -> generateDynamic(liquidation, transactionReference));
+    }
+
+    private Map<String, Object> generateDynamic(Liquidation liquidation, String transactionReference) {
         // Validation des paramètres
         if (liquidation == null) {
             throw new IllegalArgumentException("La liquidation ne peut pas être null");
@@ -99,52 +152,57 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
         if (transactionReference == null || transactionReference.trim().isEmpty()) {
             throw new IllegalArgumentException("La référence de transaction est requise");
         }
+        // Référence fournie par un client : enregistrée horodatée (voir TransactionReferenceGenerator#adopt)
+        String reference = transactionReferenceGenerator.adopt(transactionReference);
         
         log.info("Génération d'un QR code dynamique pour la liquidation ID: {} avec référence: {}", 
-                liquidation.getId(), transactionReference);
+                liquidation.getId(), reference);
         
         // Validation de la liquidation
-        if (!validateLiquidationForQR(liquidation)) {
+        if (!phase("DYNAMIC", QRMetrics.PHASE_VALIDATION, () -> validateLiquidationForQR(liquidation))) {
             throw new IllegalArgumentException("Liquidation invalide pour la génération de QR code");
         }
 
         try {
             // Mapping de la liquidation vers QRPaymentData avec référence
             QRPaymentData paymentData = mapLiquidationToQRPaymentData(liquidation);
-            paymentData.setTransactionId(transactionReference);
+            paymentData.setTransactionId(reference);
             
             // Génération du QR code dynamique
-            String qrCode = uemoaQRService.generateDynamicQR(paymentData);
+            String qrCode = phase("DYNAMIC", QRMetrics.PHASE_ENCODE, () -> emvcoQREncoder.generateDynamicQR(paymentData));
             
             // Sauvegarde des données QR dans l'entité Liquidation
             liquidation.setQrCodeData(qrCode);
             liquidation.setQrType("DYNAMIC");
             liquidation.setQrGeneratedAt(LocalDateTime.now());
             liquidation.setMerchantChannel(uemoaConfig.getPaymentSystem().getIdentifier());
-            liquidation.setTransactionId(transactionReference);
+            liquidation.setTransactionId(reference);
             
-            // Sauvegarde en base de données
-            liquidationRepository.save(liquidation);
+            // Écriture des seules colonnes QR, dans une transaction courte
+            persist(liquidation, "DYNAMIC");
             
             // Création de la réponse
             Map<String, Object> result = new HashMap<>();
             result.put("qrCode", qrCode);
             result.put("liquidationId", liquidation.getId());
-            result.put("customerName", liquidation.getCustomer().getFirstName() + " " + liquidation.getCustomer().getLastName());
+            result.put("customerName", customerName(liquidation));
             result.put("amount", liquidation.getAmount());
             result.put("currency", uemoaConfig.getCurrency());
             result.put("taxType", liquidation.getTaxType());
             result.put("dueDate", liquidation.getDueDate());
-            result.put("transactionReference", transactionReference);
+            result.put("transactionReference", reference);
             result.put("type", "DYNAMIC");
             result.put("transactionId", liquidation.getTransactionId());
             result.put("merchantChannel", liquidation.getMerchantChannel());
             result.put("generatedAt", liquidation.getQrGeneratedAt());
             
             log.info("QR code dynamique généré et sauvegardé avec succès pour la liquidation ID: {} avec référence: {}", 
-                    liquidation.getId(), transactionReference);
+                    liquidation.getId(), reference);
             return result;
             
+        } catch (OptimisticLockingFailureException e) {
+            // Conflit de version : propagé tel quel (409, ou nouvel essai pour la régénération)
+            throw e;
         } catch (Exception e) {
             log.error("Erreur lors de la génération du QR code dynamique pour la liquidation ID: {}: {}", 
                      liquidation.getId(), e.getMessage(), e);
@@ -153,8 +211,11 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
     }
 
     @Override
-    @Transactional
     public Map<String, Object> generateP2PQRForLiquidation(Liquidation liquidation, String beneficiaryPhone) {
+        return qrMetrics.timeGeneration(QRMetrics.SOURCE_LIQUIDATION, "P2P", () -> generateP2P(liquidation, beneficiaryPhone));
+    }
+
+    private Map<String, Object> generateP2P(Liquidation liquidation, String beneficiaryPhone) {
         // Validation des paramètres
         if (liquidation == null) {
             throw new IllegalArgumentException("La liquidation ne peut pas être null");
@@ -168,7 +229,7 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
                 liquidation.getId(), beneficiaryPhone);
         
         // Validation de la liquidation
-        if (!validateLiquidationForQR(liquidation)) {
+        if (!phase("P2P", QRMetrics.PHASE_VALIDATION, () -> validateLiquidationForQR(liquidation))) {
             throw new IllegalArgumentException("Liquidation invalide pour la génération de QR code");
         }
 
@@ -178,11 +239,11 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
             
             // Pour P2P, on utilise le téléphone comme identifiant du bénéficiaire
             // Note: Cette implémentation peut nécessiter des ajustements selon les spécifications UEMOA P2P
-            String p2pReference = "P2P-" + liquidation.getId() + "-" + beneficiaryPhone;
+            String p2pReference = transactionReferenceGenerator.next("P2P-" + liquidation.getId() + "-" + beneficiaryPhone);
             paymentData.setTransactionId(p2pReference);
             
             // Génération du QR code (utilise le service dynamique pour P2P)
-            String qrCode = uemoaQRService.generateDynamicQR(paymentData);
+            String qrCode = phase("P2P", QRMetrics.PHASE_ENCODE, () -> emvcoQREncoder.generateDynamicQR(paymentData));
             
             // Sauvegarde des données QR dans l'entité Liquidation
             liquidation.setQrCodeData(qrCode);
@@ -191,14 +252,14 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
             liquidation.setMerchantChannel(uemoaConfig.getPaymentSystem().getIdentifier());
             liquidation.setTransactionId(p2pReference);
             
-            // Sauvegarde en base de données
-            liquidationRepository.save(liquidation);
+            // Écriture des seules colonnes QR, dans une transaction courte
+            persist(liquidation, "P2P");
             
             // Création de la réponse
             Map<String, Object> result = new HashMap<>();
             result.put("qrCode", qrCode);
             result.put("liquidationId", liquidation.getId());
-            result.put("customerName", liquidation.getCustomer().getFirstName() + " " + liquidation.getCustomer().getLastName());
+            result.put("customerName", customerName(liquidation));
             result.put("amount", liquidation.getAmount());
             result.put("currency", uemoaConfig.getCurrency());
             result.put("taxType", liquidation.getTaxType());
@@ -213,6 +274,9 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
                     liquidation.getId(), beneficiaryPhone);
             return result;
             
+        } catch (OptimisticLockingFailureException e) {
+            // Conflit de version : propagé tel quel (409, ou nouvel essai pour la régénération)
+            throw e;
         } catch (Exception e) {
             log.error("Erreur lors de la génération du QR code P2P pour la liquidation ID: {}: {}", 
                      liquidation.getId(), e.getMessage(), e);
@@ -221,8 +285,11 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
     }
 
     @Override
-    @Transactional
     public Map<String, Object> generateQRWithPenalty(Liquidation liquidation, BigDecimal penaltyAmount) {
+        return qrMetrics.timeGeneration(QRMetrics.SOURCE_LIQUIDATION, "PENALTY", () -> generateWithPenalty(liquidation, penaltyAmount));
+    }
+
+    private Map<String, Object> generateWithPenalty(Liquidation liquidation, BigDecimal penaltyAmount) {
         // Validation des paramètres
         if (liquidation == null) {
             throw new IllegalArgumentException("La liquidation ne peut pas être null");
@@ -236,7 +303,7 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
                 liquidation.getId(), penaltyAmount);
         
         // Validation de la liquidation
-        if (!validateLiquidationForQR(liquidation)) {
+        if (!phase("PENALTY", QRMetrics.PHASE_VALIDATION, () -> validateLiquidationForQR(liquidation))) {
             throw new IllegalArgumentException("Liquidation invalide pour la génération de QR code");
         }
 
@@ -249,11 +316,11 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
             paymentData.setAmount(totalAmount);
             
             // Ajout d'une référence spéciale pour les pénalités
-            String penaltyReference = "PENALTY-" + liquidation.getId() + "-" + System.currentTimeMillis();
+            String penaltyReference = transactionReferenceGenerator.next("PENALTY-" + liquidation.getId());
             paymentData.setTransactionId(penaltyReference);
             
             // Génération du QR code dynamique
-            String qrCode = uemoaQRService.generateDynamicQR(paymentData);
+            String qrCode = phase("PENALTY", QRMetrics.PHASE_ENCODE, () -> emvcoQREncoder.generateDynamicQR(paymentData));
             
             // Sauvegarde des données QR dans l'entité Liquidation
             liquidation.setQrCodeData(qrCode);
@@ -264,14 +331,14 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
             liquidation.setPenaltyAmount(penaltyAmount);
             liquidation.setTotalAmount(totalAmount);
             
-            // Sauvegarde en base de données
-            liquidationRepository.save(liquidation);
+            // Écriture des seules colonnes QR, dans une transaction courte
+            persist(liquidation, "PENALTY");
             
             // Création de la réponse
             Map<String, Object> result = new HashMap<>();
             result.put("qrCode", qrCode);
             result.put("liquidationId", liquidation.getId());
-            result.put("customerName", liquidation.getCustomer().getFirstName() + " " + liquidation.getCustomer().getLastName());
+            result.put("customerName", customerName(liquidation));
             result.put("baseAmount", liquidation.getAmount());
             result.put("penaltyAmount", penaltyAmount);
             result.put("totalAmount", totalAmount);
@@ -288,6 +355,9 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
                     liquidation.getId(), totalAmount);
             return result;
             
+        } catch (OptimisticLockingFailureException e) {
+            // Conflit de version : propagé tel quel (409, ou nouvel essai pour la régénération)
+            throw e;
         } catch (Exception e) {
             log.error("Erreur lors de la génération du QR code avec pénalités pour la liquidation ID: {}: {}", 
                      liquidation.getId(), e.getMessage(), e);
@@ -295,6 +365,48 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
         }
     }
 
+    /**
+     * Chaque tentative relit la liquidation puis la régénère : l'encodage reste hors transaction,
+     * seule l'écriture finale en ouvre une (voir {@link #persist})
+     */
+    @Override
+    public Optional<Map<String, Object>> regenerateQRForLiquidation(Long liquidationId, String qrType,
+                                                                   String transactionReference, BigDecimal penaltyAmount) {
+        return optimisticLockRetry.retry("régénération du QR code de la liquidation " + liquidationId,
+                () -> liquidationRepository.findWithQrArtifactById(liquidationId)
+                        .map(liquidation -> regenerate(liquidation, qrType, transactionReference, penaltyAmount)));
+    }
+
+    private Map<String, Object> regenerate(Liquidation liquidation, String qrType,
+                                           String transactionReference, BigDecimal penaltyAmount) {
+        log.info("Régénération du QR code {} pour la liquidation ID: {} (version {})",
+                qrType, liquidation.getId(), liquidation.getVersion());
+
+        // Le nouveau payload remplace l'ancien (et invalide son image) en une seule écriture ;
+        // seuls les montants propres aux QR avec pénalités sont remis à zéro. Hors QR PENALTY, la date
+        // de calcul l'est aussi dans la même écriture : le traitement des retards recalcule alors la
+        // pénalité dès son prochain passage, même le jour où il l'avait déjà calculée
+        liquidation.setPenaltyAmount(null);
+        liquidation.setTotalAmount(null);
+        if (!"PENALTY".equalsIgnoreCase(qrType)) {
+            liquidation.setPenaltyCalculatedOn(null);
+        }
+
+        switch (qrType == null ? "" : qrType.toUpperCase()) {
+            case "STATIC":
+                return generateStaticQRForLiquidation(liquidation);
+            case "DYNAMIC":
+                String reference = transactionReference != null ? transactionReference : generateTransactionReference(liquidation);
+                return generateDynamicQRForLiquidation(liquidation, reference);
+            case "P2P":
+                return generateP2PQRForLiquidation(liquidation, liquidation.getCustomer().getPhone());
+            case "PENALTY":
+                return generateQRWithPenalty(liquidation, penaltyAmount != null ? penaltyAmount : new BigDecimal("5000.00"));
+            default:
+                throw new IllegalArgumentException("Type de QR code non supporté: " + qrType);
+        }
+    }
+
     @Override
     public boolean validateLiquidationForQR(Liquidation liquidation) {
         if (liquidation == null) {
@@ -376,11 +488,57 @@ public class LiquidationQRServiceImpl implements LiquidationQRService {
             throw new IllegalArgumentException("Liquidation invalide pour la génération de référence");
         }
         
-        // Format: LIQ-{ID}-{TIMESTAMP}-{UUID}
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String uuid = UUID.randomUUID().toString().substring(0, 8);
-        
-        return String.format("LIQ-%d-%s-%s", liquidation.getId(), timestamp, uuid);
+        // Format: LIQ-{ID}-{identifiant croissant, unique sur toutes les instances}
+        return transactionReferenceGenerator.next("LIQ-" + liquidation.getId());
+    }
+
+    /**
+     * Phase d'écriture d'une génération : colonnes QR de la liquidation et artefact, en une transaction
+     * qui ne couvre aucun appel au module UEMOA. Les montants écrits sont ceux de la liquidation lue,
+     * inchangés sauf pour les QR avec pénalités ou une régénération.
+     *
+     * @throws ObjectOptimisticLockingFailureException si la liquidation a été modifiée ou payée depuis sa lecture
+     */
+    private void persist(Liquidation liquidation, String qrType) {
+        Long id = liquidation.getId();
+        Long version = liquidation.getVersion();
+        qrMetrics.phase(QRMetrics.SOURCE_LIQUIDATION, qrType, QRMetrics.PHASE_PERSIST, () -> transactionTemplate.executeWithoutResult(status -> {
+            int updated = jdbcTemplate.update(UPDATE_QR_SQL, qrType, Timestamp.valueOf(liquidation.getQrGeneratedAt()),
+                    liquidation.getMerchantChannel(), liquidation.getTransactionId(),
+                    liquidation.getPenaltyAmount(), liquidation.getTotalAmount(),
+                    liquidation.getPenaltyCalculatedOn() != null ? Date.valueOf(liquidation.getPenaltyCalculatedOn()) : null,
+                    id, version);
+            if (updated == 0) {
+                throw new ObjectOptimisticLockingFailureException(Liquidation.class, id);
+            }
+            if (jdbcTemplate.update(UPDATE_ARTIFACT_SQL, liquidation.getQrCodeData(), id) == 0) {
+                jdbcTemplate.update(INSERT_ARTIFACT_SQL, id, liquidation.getQrCodeData());
+            }
+            jdbcTemplate.update(LINK_ARTIFACT_SQL, id);
+        }));
+        // La copie détachée reflète la ligne écrite
+        liquidation.setVersion(version + 1);
+        transactionIdFilter.register(liquidation.getTransactionId());
+
+        // Rendu de l'image en arrière-plan, la transaction étant validée
+        qrImageRenderService.renderAndStoreAsync(id, liquidation.getQrCodeData());
+    }
+
+    /**
+     * Chronomètre une étape de génération (tags : source liquidation, type de QR, étape)
+     */
+    private <T> T phase(String qrType, String phase, Supplier<T> step) {
+        return qrMetrics.phase(QRMetrics.SOURCE_LIQUIDATION, qrType, phase, step);
+    }
+
+    /**
+     * Nom complet du client de la liquidation, pour la réponse de génération.
+     * Les contrôleurs chargent la liquidation avec son client (findWithQrArtifactById) :
+     * aucun SELECT supplémentaire n'est émis ici.
+     */
+    private static String customerName(Liquidation liquidation) {
+        Customer customer = liquidation.getCustomer();
+        return customer.getFirstName() + " " + customer.getLastName();
     }
 
     /**
@@ -1,11 +1,15 @@
 package com.example.demoQrcode.service.impl;
 
+import com.example.demoQrcode.dto.CursorPage;
 import com.example.demoQrcode.entity.Customer;
 import com.example.demoQrcode.entity.Liquidation;
 import com.example.demoQrcode.entity.LiquidationStatus;
 import com.example.demoQrcode.repository.CustomerRepository;
 import com.example.demoQrcode.repository.LiquidationRepository;
 import com.example.demoQrcode.service.LiquidationService;
+import com.example.demoQrcode.service.OptimisticLockRetry;
+import com.example.demoQrcode.service.PenaltyCalculator;
+import com.example.demoQrcode.service.SearchService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -13,9 +17,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +30,12 @@ public class LiquidationServiceImpl implements LiquidationService {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private OptimisticLockRetry optimisticLockRetry;
+
     @Override
     public Page<Liquidation> list(Pageable pageable) {
         return liquidationRepository.findAll(pageable);
@@ -35,7 +43,7 @@ public class LiquidationServiceImpl implements LiquidationService {
 
     @Override
     public Optional<Liquidation> get(Long id) {
-        return liquidationRepository.findById(id);
+        return liquidationRepository.findWithQrArtifactById(id);
     }
 
     @Override
@@ -82,14 +90,41 @@ public class LiquidationServiceImpl implements LiquidationService {
 
     @Override
     public Optional<Liquidation> markAsPaid(Long id) {
-        return liquidationRepository.findById(id).map(l -> {
-            l.setStatus(LiquidationStatus.PAID);
-            return liquidationRepository.save(l);
-        });
+        // Relu à chaque tentative : un paiement concurrent d'une régénération ne l'écrase plus
+        return optimisticLockRetry.execute("paiement de la liquidation " + id,
+                () -> liquidationRepository.findById(id).map(l -> {
+                    l.setStatus(LiquidationStatus.PAID);
+                    return liquidationRepository.save(l);
+                }));
     }
 
     @Override
     public Page<Liquidation> searchWithFilters(Long customerId, LiquidationStatus status, LocalDate startDate, LocalDate endDate, Pageable pageable) {
+        return liquidationRepository.findAll(filters(customerId, status, startDate, endDate), pageable);
+    }
+
+    @Override
+    public CursorPage<Liquidation> scrollWithFilters(Long customerId, LiquidationStatus status, LocalDate startDate, LocalDate endDate,
+                                                     String cursor, int size, boolean includeTotal) {
+        LocalDate afterIssueDate = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] keys = CursorPage.decodeCursor(cursor, 2);
+            try {
+                afterIssueDate = LocalDate.parse(keys[0]);
+                afterId = Long.valueOf(keys[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Curseur de pagination invalide", e);
+            }
+        }
+
+        Specification<Liquidation> spec = filters(customerId, status, startDate, endDate);
+        List<Liquidation> rows = liquidationRepository.findNextPage(spec, afterIssueDate, afterId, size + 1);
+        Long total = includeTotal ? liquidationRepository.count(spec) : null;
+        return CursorPage.of(rows, size, l -> CursorPage.encodeCursor(l.getIssueDate(), l.getId()), total);
+    }
+
+    private Specification<Liquidation> filters(Long customerId, LiquidationStatus status, LocalDate startDate, LocalDate endDate) {
         Specification<Liquidation> spec = Specification.where(null);
         if (customerId != null) {
             spec = spec.and((root, query, cb) -> cb.equal(root.get("customer").get("id"), customerId));
@@ -103,7 +138,7 @@ public class LiquidationServiceImpl implements LiquidationService {
         if (endDate != null) {
             spec = spec.and((root, query, cb) -> cb.lessThanOrEqualTo(root.get("issueDate"), endDate));
         }
-        return liquidationRepository.findAll(spec, pageable);
+        return spec;
     }
 
     @Override
@@ -113,39 +148,15 @@ public class LiquidationServiceImpl implements LiquidationService {
 
     @Override
     public BigDecimal calculatePenalty(Liquidation liquidation, BigDecimal dailyRate) {
-        if (liquidation == null || dailyRate == null || dailyRate.compareTo(BigDecimal.ZERO) <= 0) {
+        if (liquidation == null || liquidation.getStatus() == LiquidationStatus.PAID) {
             return BigDecimal.ZERO;
         }
-        if (liquidation.getStatus() == LiquidationStatus.PAID) {
-            return BigDecimal.ZERO;
-        }
-        LocalDate today = LocalDate.now();
-        if (!today.isAfter(liquidation.getDueDate())) {
-            return BigDecimal.ZERO;
-        }
-        long overdueDays = ChronoUnit.DAYS.between(liquidation.getDueDate(), today);
-        if (overdueDays <= 0) return BigDecimal.ZERO;
-        // pénalité = amount * dailyRate * overdueDays
-        BigDecimal penalty = liquidation.getAmount()
-                .multiply(dailyRate)
-                .multiply(BigDecimal.valueOf(overdueDays));
-        return penalty.setScale(2, RoundingMode.HALF_UP);
+        return PenaltyCalculator.penalty(liquidation.getAmount(), dailyRate, liquidation.getDueDate(), LocalDate.now());
     }
 
     @Override
     public Page<Liquidation> searchByTerm(String term, Pageable pageable) {
-        final String like = term == null ? "" : term.trim().toLowerCase();
-        if (like.isEmpty()) {
-            return liquidationRepository.findAll(pageable);
-        }
-        Specification<Liquidation> spec = Specification.where((root, query, cb) -> cb.or(
-                cb.like(cb.lower(root.get("taxType")), "%" + like + "%"),
-                cb.like(cb.lower(root.get("status").as(String.class)), "%" + like + "%"),
-                cb.like(cb.lower(root.get("customer").get("firstName")), "%" + like + "%"),
-                cb.like(cb.lower(root.get("customer").get("lastName")), "%" + like + "%"),
-                cb.like(cb.lower(root.get("customer").get("ifu")), "%" + like + "%")
-        ));
-        return liquidationRepository.findAll(spec, pageable);
+        return searchService.searchLiquidations(term, pageable);
     }
 }
 
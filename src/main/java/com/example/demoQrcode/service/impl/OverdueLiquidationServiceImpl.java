@@ -0,0 +1,166 @@
+package com.example.demoQrcode.service.impl;
+
+import com.example.demoQrcode.dto.BatchJobStatus;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import com.example.demoQrcode.repository.projection.PenaltyCandidate;
+import com.example.demoQrcode.service.BatchJob;
+import com.example.demoQrcode.service.BatchJobRegistry;
+import com.example.demoQrcode.service.OverdueLiquidationService;
+import com.example.demoQrcode.service.PenaltyCalculator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implémentation du traitement des retards.
+ * Chaque lot lit au plus chunk-size liquidations (id, montant, échéance) par l'index
+ * (status, due_date), calcule leurs pénalités puis les enregistre par un UPDATE JDBC en lot.
+ * Les lignes recalculées sortent du filtre (penalty_calculated_on) : un traitement interrompu
+ * reprend là où il s'était arrêté, et un second passage le même jour ne relit rien.
+ */
+@Slf4j
+@Service
+public class OverdueLiquidationServiceImpl implements OverdueLiquidationService {
+
+    public static final String JOB_TYPE = "OVERDUE_PENALTY_RECALCULATION";
+
+    /**
+     * Le statut est revérifié à l'écriture : une liquidation payée entre la lecture et l'écriture reste PAID
+     */
+    private static final String UPDATE_SQL = "UPDATE liquidations SET status = 'OVERDUE', penalty_amount = ?, "
+            + "total_amount = ?, penalty_calculated_on = ?, version = version + 1 WHERE id = ? AND status <> 'PAID'";
+
+    private final LiquidationRepository liquidationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BatchJobRegistry batchJobRegistry;
+    private final Timer durationTimer;
+    private final Counter updatedRows;
+    private final AtomicLong remainingRows = new AtomicLong();
+
+    @Value("${app.liquidation.overdue.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.liquidation.overdue.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.liquidation.penalty.daily-rate:0.001}")
+    private BigDecimal dailyRate;
+
+    public OverdueLiquidationServiceImpl(LiquidationRepository liquidationRepository,
+                                         JdbcTemplate jdbcTemplate,
+                                         TransactionTemplate transactionTemplate,
+                                         BatchJobRegistry batchJobRegistry,
+                                         MeterRegistry meterRegistry) {
+        this.liquidationRepository = liquidationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchJobRegistry = batchJobRegistry;
+        this.durationTimer = Timer.builder("liquidation.overdue.job.duration")
+                .description("Durée du traitement des retards et pénalités")
+                .register(meterRegistry);
+        this.updatedRows = Counter.builder("liquidation.overdue.job.updated")
+                .description("Liquidations passées en retard ou dont les pénalités ont été recalculées")
+                .register(meterRegistry);
+        Gauge.builder("liquidation.overdue.job.remaining", remainingRows, AtomicLong::get)
+                .description("Liquidations restant à recalculer dans le traitement en cours")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public BatchJobStatus recalculateOverdueLiquidations() {
+        return recalculateOverdueLiquidations(LocalDate.now());
+    }
+
+    @Override
+    public BatchJobStatus recalculateOverdueLiquidations(LocalDate today) {
+        log.info("Recalcul des retards et pénalités au {} (taux journalier: {})", today, dailyRate);
+        BatchJob job = batchJobRegistry.create(JOB_TYPE);
+        Pageable firstChunk = PageRequest.of(0, chunkSize);
+        Timer.Sample sample = Timer.start();
+
+        try {
+            long total = liquidationRepository.countPenaltyCandidates(today);
+            job.setTotal(total);
+            remainingRows.set(total);
+
+            while (true) {
+                Integer updated = transactionTemplate.execute(status -> {
+                    List<PenaltyCandidate> candidates = liquidationRepository.findPenaltyCandidates(today, firstChunk);
+                    return candidates.isEmpty() ? null : updateChunk(candidates, today);
+                });
+                if (updated == null) {
+                    break;
+                }
+                job.recordSuccess(updated);
+                updatedRows.increment(updated);
+                remainingRows.addAndGet(-updated);
+                log.debug("Job {} : {} liquidations recalculées dans ce lot", job.getId(), updated);
+            }
+
+            job.complete("Recalcul des retards terminé");
+            BatchJobStatus status = job.snapshot();
+            log.info("Recalcul des retards terminé, job ID: {} - {} liquidations mises à jour en {} ms ({} lignes/s)",
+                    job.getId(), status.getSucceeded(), status.getElapsedMs(), String.format("%.1f", status.getThroughputPerSecond()));
+            return status;
+
+        } catch (RuntimeException e) {
+            log.error("Erreur lors du recalcul des retards, job ID: {}: {}", job.getId(), e.getMessage(), e);
+            job.fail(e.getMessage());
+            throw e;
+        } finally {
+            remainingRows.set(0);
+            sample.stop(durationTimer);
+        }
+    }
+
+    /**
+     * Traitement nocturne selon app.liquidation.overdue.cron
+     */
+    @Scheduled(cron = "${app.liquidation.overdue.cron:0 15 0 * * *}")
+    public void scheduledRecalculation() {
+        if (!enabled) {
+            return;
+        }
+        if (batchJobRegistry.findRunning(JOB_TYPE).isPresent()) {
+            log.warn("Recalcul planifié ignoré : un recalcul des retards est déjà en cours");
+            return;
+        }
+        recalculateOverdueLiquidations();
+    }
+
+    private int updateChunk(List<PenaltyCandidate> candidates, LocalDate today) {
+        Date calculatedOn = Date.valueOf(today);
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, candidates, candidates.size(), (ps, candidate) -> {
+            BigDecimal penalty = PenaltyCalculator.penalty(candidate.getAmount(), dailyRate, candidate.getDueDate(), today);
+            ps.setBigDecimal(1, penalty);
+            ps.setBigDecimal(2, candidate.getAmount().add(penalty));
+            ps.setDate(3, calculatedOn);
+            ps.setLong(4, candidate.getId());
+        });
+        int updated = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // Certains pilotes ne renvoient pas le nombre de lignes d'un lot
+                updated += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+            }
+        }
+        return updated;
+    }
+}
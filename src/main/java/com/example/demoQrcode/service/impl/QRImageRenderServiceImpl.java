@@ -0,0 +1,319 @@
+package com.example.demoQrcode.service.impl;
+
+import com.example.demoQrcode.config.UemoaConfig;
+import com.example.demoQrcode.repository.LiquidationQRArtifactRepository;
+import com.example.demoQrcode.service.QRImageRenderService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implémentation du rendu des QR codes.
+ * L'encodage est confié à ZXing ; le tracé se fait directement dans un raster 1 bit.
+ * Image, tampons de pixels, flux de sortie et encodeur PNG sont réutilisés par thread,
+ * et les rendus sont mis en cache par empreinte du payload.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QRImageRenderServiceImpl implements QRImageRenderService {
+
+    /**
+     * Marge blanche autour du QR code, en modules (minimum imposé par la norme)
+     */
+    private static final int QUIET_ZONE = 4;
+
+    private static final int BLACK = 0;
+    private static final int WHITE = 1;
+
+    private static final ThreadLocal<RenderBuffers> BUFFERS = ThreadLocal.withInitial(RenderBuffers::new);
+
+    private final UemoaConfig uemoaConfig;
+    private final LiquidationQRArtifactRepository liquidationQRArtifactRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.qr.render.cache-max-bytes:33554432}")
+    private long cacheMaxBytes;
+
+    @Value("${app.qr.render.worker-threads:2}")
+    private int workerThreads;
+
+    @Value("${app.qr.render.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private Cache<RenderKey, byte[]> renderCache;
+    private ExecutorService renderPool;
+
+    @PostConstruct
+    void init() {
+        renderCache = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                .weigher((RenderKey key, byte[] image) -> image.length)
+                .build();
+        // File bornée : au-delà, le rendu est abandonné et l'image sera rendue à la première lecture
+        renderPool = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("qr-render-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        renderPool.shutdownNow();
+    }
+
+    @Override
+    public byte[] render(String payload, String format) {
+        if (payload == null || payload.isEmpty()) {
+            throw new IllegalArgumentException("Le payload du QR code est requis");
+        }
+        String normalizedFormat = format == null ? FORMAT_PNG : format.toUpperCase(Locale.ROOT);
+        if (!FORMAT_PNG.equals(normalizedFormat) && !FORMAT_SVG.equals(normalizedFormat)) {
+            throw new IllegalArgumentException("Format d'image QR non supporté: " + format);
+        }
+
+        UemoaConfig.QR qrConfig = uemoaConfig.getQr();
+        RenderKey key = new RenderKey(sha256(payload), normalizedFormat, qrConfig.getSize(), qrConfig.getErrorCorrection());
+        return renderCache.get(key, k -> FORMAT_SVG.equals(k.format())
+                ? drawSvg(encode(payload, k.errorCorrection()), k.size())
+                : drawPng(encode(payload, k.errorCorrection()), k.size()));
+    }
+
+    @Override
+    public void renderAndStoreAsync(Long liquidationId, String payload) {
+        if (liquidationId == null || payload == null || payload.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(liquidationId, payload);
+                }
+            });
+        } else {
+            submit(liquidationId, payload);
+        }
+    }
+
+    private void submit(Long liquidationId, String payload) {
+        try {
+            renderPool.execute(() -> renderAndStore(liquidationId, payload));
+        } catch (RejectedExecutionException e) {
+            log.warn("File de rendu QR saturée, image de la liquidation ID: {} rendue à la première lecture", liquidationId);
+        }
+    }
+
+    private void renderAndStore(Long liquidationId, String payload) {
+        try {
+            byte[] png = renderPng(payload);
+            transactionTemplate.executeWithoutResult(status ->
+                    liquidationQRArtifactRepository.findById(liquidationId)
+                            .filter(artifact -> payload.equals(artifact.getQrCodeData()))
+                            .ifPresent(artifact -> artifact.setQrImage(png)));
+            log.debug("Image QR rendue et enregistrée pour la liquidation ID: {} ({} octets)", liquidationId, png.length);
+        } catch (Exception e) {
+            log.error("Erreur lors du rendu de l'image QR de la liquidation ID: {}: {}", liquidationId, e.getMessage(), e);
+        }
+    }
+
+    // --- RENDU ---
+
+    private static ByteMatrix encode(String payload, String errorCorrection) {
+        try {
+            return Encoder.encode(payload, errorCorrectionLevel(errorCorrection),
+                    Map.of(EncodeHintType.CHARACTER_SET, StandardCharsets.UTF_8.name())).getMatrix();
+        } catch (WriterException e) {
+            throw new IllegalArgumentException("Payload QR impossible à encoder: " + e.getMessage(), e);
+        }
+    }
+
+    private static ErrorCorrectionLevel errorCorrectionLevel(String value) {
+        try {
+            return value == null ? ErrorCorrectionLevel.M : ErrorCorrectionLevel.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.warn("Niveau de correction d'erreur inconnu '{}', utilisation de M", value);
+            return ErrorCorrectionLevel.M;
+        }
+    }
+
+    private static byte[] drawPng(ByteMatrix matrix, int requestedSize) {
+        Layout layout = Layout.of(matrix, requestedSize);
+        RenderBuffers buffers = BUFFERS.get();
+        BufferedImage image = buffers.image(layout.size());
+        WritableRaster raster = image.getRaster();
+
+        int[] whiteRow = buffers.whiteRow(layout.size());
+        for (int y = 0; y < layout.size(); y++) {
+            raster.setSamples(0, y, layout.size(), 1, 0, whiteRow);
+        }
+        int[] block = buffers.blackBlock(layout.moduleSize());
+        for (int my = 0; my < matrix.getHeight(); my++) {
+            for (int mx = 0; mx < matrix.getWidth(); mx++) {
+                if (matrix.get(mx, my) == 1) {
+                    raster.setSamples(layout.offset() + mx * layout.moduleSize(), layout.offset() + my * layout.moduleSize(),
+                            layout.moduleSize(), layout.moduleSize(), 0, block);
+                }
+            }
+        }
+        return buffers.writePng(image);
+    }
+
+    private static byte[] drawSvg(ByteMatrix matrix, int requestedSize) {
+        Layout layout = Layout.of(matrix, requestedSize);
+        StringBuilder svg = BUFFERS.get().text();
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" width=\"").append(layout.size())
+                .append("\" height=\"").append(layout.size())
+                .append("\" viewBox=\"0 0 ").append(layout.size()).append(' ').append(layout.size())
+                .append("\" shape-rendering=\"crispEdges\">")
+                .append("<rect width=\"100%\" height=\"100%\" fill=\"#ffffff\"/><path fill=\"#000000\" d=\"");
+        for (int my = 0; my < matrix.getHeight(); my++) {
+            int mx = 0;
+            while (mx < matrix.getWidth()) {
+                if (matrix.get(mx, my) != 1) {
+                    mx++;
+                    continue;
+                }
+                // Un rectangle par suite de modules noirs sur la ligne
+                int run = 1;
+                while (mx + run < matrix.getWidth() && matrix.get(mx + run, my) == 1) {
+                    run++;
+                }
+                svg.append('M').append(layout.offset() + mx * layout.moduleSize())
+                        .append(' ').append(layout.offset() + my * layout.moduleSize())
+                        .append('h').append(run * layout.moduleSize())
+                        .append('v').append(layout.moduleSize())
+                        .append('h').append(-run * layout.moduleSize())
+                        .append('z');
+                mx += run;
+            }
+        }
+        svg.append("\"/></svg>");
+        return svg.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String sha256(String payload) {
+        MessageDigest digest = BUFFERS.get().digest();
+        return HexFormat.of().formatHex(digest.digest(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Clé de cache : empreinte du payload et paramètres de rendu
+     */
+    private record RenderKey(String payloadHash, String format, int size, String errorCorrection) {
+    }
+
+    /**
+     * Dimensions de l'image : taille demandée (au minimum un pixel par module), modules carrés centrés
+     */
+    private record Layout(int size, int moduleSize, int offset) {
+        static Layout of(ByteMatrix matrix, int requestedSize) {
+            int modules = matrix.getWidth();
+            int size = Math.max(requestedSize, modules + 2 * QUIET_ZONE);
+            int moduleSize = size / (modules + 2 * QUIET_ZONE);
+            int offset = (size - modules * moduleSize) / 2;
+            return new Layout(size, moduleSize, offset);
+        }
+    }
+
+    /**
+     * Tampons réutilisés par thread de rendu
+     */
+    private static final class RenderBuffers {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024);
+        private final StringBuilder text = new StringBuilder(16 * 1024);
+        private final ImageWriter pngWriter = ImageIO.getImageWritersByFormatName("png").next();
+        private final MessageDigest digest;
+        private BufferedImage image;
+        private int[] whiteRow = new int[0];
+        private int[] blackBlock = new int[0];
+
+        private RenderBuffers() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 indisponible", e);
+            }
+        }
+
+        BufferedImage image(int size) {
+            if (image == null || image.getWidth() != size) {
+                image = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_BINARY);
+            }
+            return image;
+        }
+
+        int[] whiteRow(int size) {
+            if (whiteRow.length != size) {
+                whiteRow = new int[size];
+                Arrays.fill(whiteRow, WHITE);
+            }
+            return whiteRow;
+        }
+
+        int[] blackBlock(int moduleSize) {
+            if (blackBlock.length != moduleSize * moduleSize) {
+                blackBlock = new int[moduleSize * moduleSize];
+                Arrays.fill(blackBlock, BLACK);
+            }
+            return blackBlock;
+        }
+
+        StringBuilder text() {
+            text.setLength(0);
+            return text;
+        }
+
+        MessageDigest digest() {
+            digest.reset();
+            return digest;
+        }
+
+        byte[] writePng(BufferedImage source) {
+            out.reset();
+            try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+                pngWriter.setOutput(stream);
+                pngWriter.write(source);
+            } catch (IOException e) {
+                throw new IllegalStateException("Erreur lors de l'encodage PNG du QR code", e);
+            } finally {
+                pngWriter.setOutput(null);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.demoQrcode.service.impl;
+
+import com.example.demoQrcode.dto.BatchJobStatus;
+import com.example.demoQrcode.repository.LiquidationQRArtifactRepository;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import com.example.demoQrcode.service.BatchJob;
+import com.example.demoQrcode.service.BatchJobRegistry;
+import com.example.demoQrcode.service.QRRetentionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Implémentation de la rétention des données QR.
+ * Chaque lot sélectionne au plus chunk-size identifiants, les efface par un UPDATE en masse
+ * puis supprime leurs artefacts, dans sa propre transaction : les lignes purgées sortent du
+ * filtre, une purge interrompue reprend donc naturellement là où elle s'était arrêtée.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QRRetentionServiceImpl implements QRRetentionService {
+
+    public static final String JOB_TYPE_AGE = "QR_RETENTION_PURGE";
+    public static final String JOB_TYPE_CUSTOMER = "QR_CUSTOMER_PURGE";
+
+    private final LiquidationRepository liquidationRepository;
+    private final LiquidationQRArtifactRepository liquidationQRArtifactRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BatchJobRegistry batchJobRegistry;
+
+    @Value("${app.qr.retention.enabled:false}")
+    private boolean retentionEnabled;
+
+    @Value("${app.qr.retention.days:365}")
+    private int retentionDays;
+
+    @Value("${app.qr.retention.chunk-size:1000}")
+    private int chunkSize;
+
+    @Override
+    public BatchJobStatus purgeQrCodeDataOlderThan(LocalDateTime cutoff) {
+        log.info("Purge des données QR générées avant le {}", cutoff);
+        return purge(JOB_TYPE_AGE, page -> liquidationRepository.findIdsWithQrCodeGeneratedBefore(cutoff, page));
+    }
+
+    @Override
+    public BatchJobStatus purgeQrCodeDataByCustomerId(Long customerId) {
+        log.info("Purge des données QR du client ID: {}", customerId);
+        return purge(JOB_TYPE_CUSTOMER, page -> liquidationRepository.findIdsWithQrCodeByCustomerId(customerId, page));
+    }
+
+    @Override
+    public BatchJobStatus purgeExpiredQrCodeData() {
+        return purgeQrCodeDataOlderThan(LocalDateTime.now().minusDays(retentionDays));
+    }
+
+    /**
+     * Purge planifiée selon app.qr.retention.cron (inactive tant que app.qr.retention.enabled=false)
+     */
+    @Scheduled(cron = "${app.qr.retention.cron:0 30 2 * * *}")
+    public void scheduledPurge() {
+        if (!retentionEnabled) {
+            return;
+        }
+        if (batchJobRegistry.findRunning(JOB_TYPE_AGE).isPresent()) {
+            log.warn("Purge planifiée ignorée : une purge des données QR est déjà en cours");
+            return;
+        }
+        log.info("Lancement de la purge planifiée des données QR (rétention: {} jours)", retentionDays);
+        purgeExpiredQrCodeData();
+    }
+
+    private BatchJobStatus purge(String jobType, Function<Pageable, List<Long>> nextChunk) {
+        BatchJob job = batchJobRegistry.create(jobType);
+        Pageable firstChunk = PageRequest.of(0, chunkSize);
+
+        try {
+            while (true) {
+                Integer purged = transactionTemplate.execute(status -> {
+                    List<Long> ids = nextChunk.apply(firstChunk);
+                    if (ids.isEmpty()) {
+                        return 0;
+                    }
+                    int cleared = liquidationRepository.clearQrCodeDataByIds(ids);
+                    // L'identifiant d'un artefact est celui de sa liquidation
+                    liquidationQRArtifactRepository.deleteByIdIn(ids);
+                    return cleared;
+                });
+                if (purged == null || purged == 0) {
+                    break;
+                }
+                job.recordSuccess(purged);
+                log.debug("Job {} : {} liquidations purgées dans ce lot", job.getId(), purged);
+            }
+
+            job.complete("Purge terminée");
+            BatchJobStatus status = job.snapshot();
+            log.info("Purge des données QR terminée, job ID: {} - {} liquidations purgées en {} ms ({} lignes/s)",
+                    job.getId(), status.getSucceeded(), status.getElapsedMs(), String.format("%.1f", status.getThroughputPerSecond()));
+            return status;
+
+        } catch (RuntimeException e) {
+            log.error("Erreur lors de la purge des données QR, job ID: {}: {}", job.getId(), e.getMessage(), e);
+            job.fail(e.getMessage());
+            throw e;
+        }
+    }
+}
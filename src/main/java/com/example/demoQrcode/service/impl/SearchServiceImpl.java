@@ -0,0 +1,200 @@
+package com.example.demoQrcode.service.impl;
+
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.repository.CustomerRepository;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import com.example.demoQrcode.service.SearchService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Implémentation de la recherche : requêtes natives trigrammes sur PostgreSQL, LIKE sinon
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchServiceImpl implements SearchService {
+
+    /**
+     * Document indexé des clients : doit rester identique à l'expression de idx_customers_search_trgm (V7)
+     */
+    static final String CUSTOMER_DOCUMENT = "lower(c.first_name || ' ' || c.last_name || ' ' || c.address || ' ' "
+            + "|| c.ifu || ' ' || c.email || ' ' || c.phone)";
+
+    /**
+     * Document indexé des liquidations : doit rester identique à l'expression de idx_liquidations_search_trgm (V7)
+     */
+    static final String LIQUIDATION_DOCUMENT = "lower(l.tax_type || ' ' || l.status)";
+
+    private static final String CUSTOMER_SEARCH_SQL = "SELECT c.* FROM customers c "
+            + "WHERE " + CUSTOMER_DOCUMENT + " LIKE :pattern ESCAPE '\\' "
+            + "ORDER BY word_similarity(:term, " + CUSTOMER_DOCUMENT + ") DESC, c.id";
+
+    private static final String CUSTOMER_COUNT_SQL = "SELECT count(*) FROM customers c "
+            + "WHERE " + CUSTOMER_DOCUMENT + " LIKE :pattern ESCAPE '\\'";
+
+    private static final String LIQUIDATION_FROM = "FROM liquidations l JOIN customers c ON c.id = l.customer_id "
+            + "WHERE " + LIQUIDATION_DOCUMENT + " LIKE :pattern ESCAPE '\\' "
+            + "OR l.customer_id IN (SELECT c.id FROM customers c WHERE " + CUSTOMER_DOCUMENT + " LIKE :pattern ESCAPE '\\') ";
+
+    private static final String LIQUIDATION_SEARCH_SQL = "SELECT l.* " + LIQUIDATION_FROM
+            + "ORDER BY greatest(word_similarity(:term, " + LIQUIDATION_DOCUMENT + "), "
+            + "word_similarity(:term, " + CUSTOMER_DOCUMENT + ")) DESC, l.id DESC";
+
+    private static final String LIQUIDATION_COUNT_SQL = "SELECT count(*) " + LIQUIDATION_FROM;
+
+    private final CustomerRepository customerRepository;
+    private final LiquidationRepository liquidationRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.search.trigram.enabled:true}")
+    private boolean trigramEnabled;
+
+    /**
+     * Résultat de la détection (dialecte PostgreSQL + extension pg_trgm), calculé au premier appel
+     */
+    private volatile Boolean rankedSearchAvailable;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Customer> searchCustomers(String term, Pageable pageable) {
+        String normalized = normalize(term);
+        if (normalized.isEmpty()) {
+            return customerRepository.findAll(pageable);
+        }
+        if (!isRankedSearchAvailable()) {
+            return customerRepository.search(normalized, pageable);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Customer> content = entityManager.createNativeQuery(CUSTOMER_SEARCH_SQL, Customer.class)
+                .setParameter("pattern", likePattern(normalized))
+                .setParameter("term", normalized)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+        long total = ((Number) entityManager.createNativeQuery(CUSTOMER_COUNT_SQL)
+                .setParameter("pattern", likePattern(normalized))
+                .getSingleResult()).longValue();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Liquidation> searchLiquidations(String term, Pageable pageable) {
+        String normalized = normalize(term);
+        if (normalized.isEmpty()) {
+            return liquidationRepository.findAll(pageable);
+        }
+        if (!isRankedSearchAvailable()) {
+            return liquidationRepository.findAll(liquidationLikeSpecification(normalized), pageable);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Liquidation> content = entityManager.createNativeQuery(LIQUIDATION_SEARCH_SQL, Liquidation.class)
+                .setParameter("pattern", likePattern(normalized))
+                .setParameter("term", normalized)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+        loadCustomers(content);
+        long total = ((Number) entityManager.createNativeQuery(LIQUIDATION_COUNT_SQL)
+                .setParameter("pattern", likePattern(normalized))
+                .getSingleResult()).longValue();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    @Override
+    public boolean isRankedSearchAvailable() {
+        Boolean available = rankedSearchAvailable;
+        if (available == null) {
+            available = detectTrigramSupport();
+            rankedSearchAvailable = available;
+        }
+        return available;
+    }
+
+    private boolean detectTrigramSupport() {
+        if (!trigramEnabled) {
+            return false;
+        }
+        try {
+            boolean postgres = entityManager.getEntityManagerFactory()
+                    .unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices()
+                    .getDialect() instanceof PostgreSQLDialect;
+            if (!postgres) {
+                log.info("Base non PostgreSQL : recherche LIKE sans tri par pertinence");
+                return false;
+            }
+            Number extensions = (Number) entityManager
+                    .createNativeQuery("SELECT count(*) FROM pg_extension WHERE extname = 'pg_trgm'")
+                    .getSingleResult();
+            if (extensions.longValue() == 0) {
+                log.warn("Extension pg_trgm absente (migration V7 non appliquée) : recherche LIKE sans index");
+                return false;
+            }
+            log.info("Recherche trigramme (pg_trgm) activée");
+            return true;
+        } catch (Exception e) {
+            log.warn("Détection de pg_trgm impossible, recherche LIKE utilisée: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Charge en une requête les clients de la page classée : la requête native ne ramène que les
+     * liquidations, et chaque proxy client serait sinon initialisé par un SELECT à la sérialisation
+     */
+    private void loadCustomers(List<Liquidation> liquidations) {
+        Set<Long> customerIds = liquidations.stream()
+                .map(liquidation -> liquidation.getCustomer().getId())
+                .collect(Collectors.toSet());
+        if (!customerIds.isEmpty()) {
+            customerRepository.findAllById(customerIds);
+        }
+    }
+
+    /**
+     * Recherche LIKE sur les liquidations (bases sans pg_trgm)
+     */
+    private Specification<Liquidation> liquidationLikeSpecification(String like) {
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("taxType")), "%" + like + "%"),
+                cb.like(cb.lower(root.get("status").as(String.class)), "%" + like + "%"),
+                cb.like(cb.lower(root.get("customer").get("firstName")), "%" + like + "%"),
+                cb.like(cb.lower(root.get("customer").get("lastName")), "%" + like + "%"),
+                cb.like(cb.lower(root.get("customer").get("address")), "%" + like + "%"),
+                cb.like(cb.lower(root.get("customer").get("ifu")), "%" + like + "%"),
+                cb.like(cb.lower(root.get("customer").get("email")), "%" + like + "%"),
+                cb.like(cb.lower(root.get("customer").get("phone")), "%" + like + "%")
+        );
+    }
+
+    private static String normalize(String term) {
+        return term == null ? "" : term.trim().toLowerCase();
+    }
+
+    private static String likePattern(String term) {
+        String escaped = term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
@@ -0,0 +1,8 @@
+-- Migration V10: Verrouillage optimiste des liquidations
+-- Date: 2026-10-17
+-- Description: colonne de version (@Version) incrémentée à chaque mise à jour. Deux opérateurs ou
+--              instances qui modifient la même liquidation (régénération du QR, paiement) ne
+--              s'écrasent plus : la seconde écriture échoue et est relancée ou renvoie 409.
+--              Les mises à jour en masse (JDBC / JPQL) incrémentent la version explicitement.
+
+ALTER TABLE liquidations ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
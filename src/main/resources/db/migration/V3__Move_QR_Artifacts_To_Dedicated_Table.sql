@@ -0,0 +1,42 @@
+-- Migration V3: Déplacement des artefacts QR dans une table dédiée
+-- Date: 2026-10-17
+-- Description: Les colonnes volumineuses qr_code_data et qr_image_base64 quittent la table
+--              liquidations afin que les listes, recherches et paginations ne les lisent plus.
+--              L'identifiant d'un artefact est celui de sa liquidation.
+
+-- Création de la table des artefacts
+CREATE TABLE liquidation_qr_artifacts (
+    id BIGINT PRIMARY KEY,
+    qr_code_data TEXT,
+    qr_image_base64 TEXT
+);
+
+-- Reprise des données existantes
+INSERT INTO liquidation_qr_artifacts (id, qr_code_data, qr_image_base64)
+SELECT id, qr_code_data, qr_image_base64
+FROM liquidations
+WHERE (qr_code_data IS NOT NULL AND qr_code_data <> '')
+   OR (qr_image_base64 IS NOT NULL AND qr_image_base64 <> '');
+
+-- Référence vers l'artefact depuis la liquidation
+ALTER TABLE liquidations
+ADD COLUMN qr_artifact_id BIGINT;
+
+UPDATE liquidations l
+SET qr_artifact_id = l.id
+WHERE EXISTS (SELECT 1 FROM liquidation_qr_artifacts a WHERE a.id = l.id);
+
+ALTER TABLE liquidations
+ADD CONSTRAINT fk_liquidations_qr_artifact FOREIGN KEY (qr_artifact_id) REFERENCES liquidation_qr_artifacts(id),
+ADD CONSTRAINT uk_liquidations_qr_artifact UNIQUE (qr_artifact_id);
+
+-- Suppression des anciennes colonnes
+ALTER TABLE liquidations
+DROP COLUMN qr_code_data,
+DROP COLUMN qr_image_base64;
+
+-- Commentaires sur les colonnes pour la documentation
+COMMENT ON TABLE liquidation_qr_artifacts IS 'Payload et image des QR codes, une ligne par liquidation';
+COMMENT ON COLUMN liquidation_qr_artifacts.qr_code_data IS 'Données du QR code généré (format EMVCo/BCEAO)';
+COMMENT ON COLUMN liquidation_qr_artifacts.qr_image_base64 IS 'Image QR code encodée en Base64';
+COMMENT ON COLUMN liquidations.qr_artifact_id IS 'Artefact QR de la liquidation (NULL si aucun QR code)';
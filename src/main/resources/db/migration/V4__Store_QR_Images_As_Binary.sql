@@ -0,0 +1,17 @@
+-- Migration V4: Stockage binaire des images QR
+-- Date: 2026-10-17
+-- Description: Les images QR sont conservées en PNG brut (bytea) au lieu d'une chaîne Base64,
+--              soit environ 25% d'espace en moins et aucun encodage/décodage à chaque lecture.
+--              L'API JSON continue d'exposer l'image en Base64.
+
+ALTER TABLE liquidation_qr_artifacts
+ADD COLUMN qr_image BYTEA;
+
+UPDATE liquidation_qr_artifacts
+SET qr_image = decode(qr_image_base64, 'base64')
+WHERE qr_image_base64 IS NOT NULL AND qr_image_base64 <> '';
+
+ALTER TABLE liquidation_qr_artifacts
+DROP COLUMN qr_image_base64;
+
+COMMENT ON COLUMN liquidation_qr_artifacts.qr_image IS 'Image QR code (PNG brut)';
@@ -0,0 +1,10 @@
+-- Migration V5: Version des tokens JWT par utilisateur
+-- Date: 2026-10-17
+-- Description: Les rôles et la version des tokens sont embarqués dans le JWT, ce qui évite
+--              de recharger l'utilisateur à chaque requête. Incrémenter token_version
+--              révoque tous les tokens déjà émis pour cet utilisateur.
+
+ALTER TABLE users
+ADD COLUMN IF NOT EXISTS token_version INTEGER NOT NULL DEFAULT 0;
+
+COMMENT ON COLUMN users.token_version IS 'Version des tokens JWT (incrémentée à la révocation)';
@@ -0,0 +1,7 @@
+-- Migration V6: Index de pagination par clé des liquidations
+-- Date: 2026-10-17
+-- Description: GET /api/liquidations/cursor parcourt les liquidations par (issue_date, id)
+--              décroissants ; cet index permet de reprendre à la position du curseur
+--              sans OFFSET, quelle que soit la profondeur de la page.
+
+CREATE INDEX IF NOT EXISTS idx_liquidations_issue_date_id ON liquidations(issue_date DESC, id DESC);
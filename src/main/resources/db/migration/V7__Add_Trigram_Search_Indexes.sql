@@ -0,0 +1,17 @@
+-- Migration V7: Index trigrammes pour la recherche des clients et des liquidations
+-- Date: 2026-10-17
+-- Description: Les recherches '%terme%' ne peuvent pas utiliser un index B-tree.
+--              Les index GIN pg_trgm servent les LIKE sur une expression "document"
+--              et permettent le tri par pertinence (word_similarity).
+--              Les expressions doivent rester identiques à celles de SearchServiceImpl.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_customers_search_trgm ON customers
+USING gin (lower(first_name || ' ' || last_name || ' ' || address || ' ' || ifu || ' ' || email || ' ' || phone) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_liquidations_search_trgm ON liquidations
+USING gin (lower(tax_type || ' ' || status) gin_trgm_ops);
+
+-- Jointure liquidations -> clients correspondants
+CREATE INDEX IF NOT EXISTS idx_liquidations_customer_id ON liquidations(customer_id);
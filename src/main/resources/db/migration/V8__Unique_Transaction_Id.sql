@@ -0,0 +1,20 @@
+-- Migration V8: Unicité des identifiants de transaction
+-- Date: 2026-10-17
+-- Description: Les callbacks de paiement et les contrôles de doublon recherchent une liquidation
+--              par transaction_id : l'index non unique de la V2 est remplacé par un index unique
+--              (plusieurs NULL restent autorisés pour les liquidations sans QR code).
+
+DO $$
+BEGIN
+    IF EXISTS (
+        SELECT transaction_id FROM liquidations
+        WHERE transaction_id IS NOT NULL
+        GROUP BY transaction_id HAVING count(*) > 1
+    ) THEN
+        RAISE EXCEPTION 'Des transaction_id en double existent : les corriger avant d''appliquer V8';
+    END IF;
+END $$;
+
+DROP INDEX IF EXISTS idx_liquidations_transaction_id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_liquidations_transaction_id ON liquidations(transaction_id);
@@ -0,0 +1,9 @@
+-- Migration V9: Suivi du recalcul des retards et pénalités
+-- Date: 2026-10-17
+-- Description: le traitement nocturne des retards parcourt les liquidations non payées dont
+--              l'échéance est dépassée via l'index (status, due_date), et marque chaque ligne
+--              recalculée avec penalty_calculated_on pour reprendre un traitement interrompu.
+
+ALTER TABLE liquidations ADD COLUMN IF NOT EXISTS penalty_calculated_on DATE;
+
+CREATE INDEX IF NOT EXISTS idx_liquidations_status_due_date ON liquidations(status, due_date);
@@ -0,0 +1,99 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.entity.Role;
+import com.example.demoQrcode.entity.User;
+import com.example.demoQrcode.repository.RoleRepository;
+import com.example.demoQrcode.repository.UserRepository;
+import com.example.demoQrcode.security.UserCacheEvictionListener;
+import com.example.demoQrcode.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test du cache des utilisateurs et de son éviction sur changement de rôles ou d'activation
+ */
+@DataJpaTest
+@Import({CustomUserDetailsService.class, UserCacheEvictionListener.class, CustomUserDetailsServiceCacheTest.MetricsConfig.class})
+public class CustomUserDetailsServiceCacheTest {
+
+    @TestConfiguration
+    static class MetricsConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Role roleUser;
+    private Role roleAdmin;
+
+    @BeforeEach
+    void setUp() {
+        roleUser = roleRepository.save(new Role("ROLE_USER"));
+        roleAdmin = roleRepository.save(new Role("ROLE_ADMIN"));
+        User user = new User("alice", "hash");
+        user.setRoles(new HashSet<>(Set.of(roleUser)));
+        userRepository.saveAndFlush(user);
+        userDetailsService.evictAll();
+    }
+
+    @Test
+    void testRepeatedLoadsAreServedFromCache() {
+        UserDetails first = userDetailsService.loadUserByUsername("alice");
+        UserDetails second = userDetailsService.loadUserByUsername("alice");
+
+        assertNotSame(first, second);
+        assertEquals("hash", second.getPassword());
+        assertEquals(0.5, meterRegistry.get("security.user-details.hit.rate").gauge().value());
+    }
+
+    @Test
+    void testRoleChangeEvictsUser() {
+        assertEquals(Set.of(new SimpleGrantedAuthority("ROLE_USER")),
+                Set.copyOf(userDetailsService.loadUserByUsername("alice").getAuthorities()));
+
+        User user = userRepository.findByUsername("alice").orElseThrow();
+        user.getRoles().add(roleAdmin);
+        userRepository.saveAndFlush(user);
+
+        assertTrue(userDetailsService.loadUserByUsername("alice").getAuthorities()
+                .contains(new SimpleGrantedAuthority("ROLE_ADMIN")));
+    }
+
+    @Test
+    void testDisablingUserEvictsUser() {
+        assertTrue(userDetailsService.loadUserByUsername("alice").isEnabled());
+
+        User user = userRepository.findByUsername("alice").orElseThrow();
+        user.setEnabled(false);
+        userRepository.saveAndFlush(user);
+
+        assertFalse(userDetailsService.loadUserByUsername("alice").isEnabled());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demoQrcode;
+
+import com.aveplus.uemoa.qr.model.MerchantInfo;
+import com.aveplus.uemoa.qr.model.QRPaymentData;
+import com.example.demoQrcode.config.UemoaConfig;
+import com.example.demoQrcode.service.EmvcoPayload;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de la lecture sans copie des payloads EMVCo (champs, templates imbriqués, CRC)
+ */
+public class EmvcoPayloadTest {
+
+    private final UemoaConfig uemoaConfig = new UemoaConfig();
+    private final EmvcoQREncoderTest.ReferenceEncoder encoder = new EmvcoQREncoderTest.ReferenceEncoder(uemoaConfig);
+
+    @Test
+    void testReadsTopLevelFields() {
+        EmvcoPayload payload = EmvcoPayload.parse(encoder.generateStaticQR(paymentData("Aïcha Koné", "IFU123456")));
+
+        assertEquals("STATIC", payload.type());
+        assertEquals("Aïcha Koné", payload.value(EmvcoPayload.MERCHANT_NAME));
+        assertEquals("Abidjan", payload.value(EmvcoPayload.MERCHANT_CITY));
+        assertEquals(uemoaConfig.getCountryCode(), payload.value(EmvcoPayload.COUNTRY_CODE));
+        assertEquals(uemoaConfig.getCurrency(), payload.currency());
+        assertEquals(new BigDecimal("50000.5"), payload.amount());
+        assertNull(payload.reference());
+        assertFalse(payload.has(EmvcoPayload.ADDITIONAL_DATA));
+    }
+
+    @Test
+    void testReadsNestedTemplates() {
+        QRPaymentData paymentData = paymentData("John Doe", "IFU123456");
+        paymentData.setTransactionId("LIQ-42-380000000000000001");
+        EmvcoPayload payload = EmvcoPayload.parse(encoder.generateDynamicQR(paymentData));
+
+        EmvcoPayload merchantAccount = payload.template(EmvcoPayload.MERCHANT_ACCOUNT);
+        assertEquals(uemoaConfig.getPaymentSystem().getIdentifier(), merchantAccount.value(EmvcoPayload.ACCOUNT_GLOBAL_ID));
+        assertEquals("IFU123456", merchantAccount.value(EmvcoPayload.ACCOUNT_ALIAS));
+        assertEquals("DYNAMIC", payload.type());
+        assertEquals("LIQ-42-380000000000000001", payload.reference());
+        assertTrue(payload.referenceEquals("LIQ-42-380000000000000001"));
+        assertFalse(payload.referenceEquals("LIQ-42-380000000000000002"));
+        assertTrue(payload.valueEquals(EmvcoPayload.AMOUNT, "50000.5"));
+    }
+
+    @Test
+    void testRejectsInvalidCrc() {
+        String payload = encoder.generateStaticQR(paymentData("John Doe", null));
+        String tampered = payload.replace("5908John Doe", "5908John Doa");
+
+        assertDoesNotThrow(() -> EmvcoPayload.parse(payload));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> EmvcoPayload.parse(tampered));
+        assertEquals("CRC invalide", e.getMessage());
+    }
+
+    @Test
+    void testRejectsMalformedPayloads() {
+        assertThrows(IllegalArgumentException.class, () -> EmvcoPayload.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> EmvcoPayload.parse("000201"));
+        // Longueur du champ 59 au-delà de la fin du payload
+        assertThrows(IllegalArgumentException.class, () -> EmvcoPayload.parse("0002015999John6304ABCD"));
+        // Champ répété
+        assertThrows(IllegalArgumentException.class, () -> EmvcoPayload.parse("00020100020163041234"));
+        // 6304 présent en fin de valeur, pas comme dernier champ
+        assertThrows(IllegalArgumentException.class, () -> EmvcoPayload.parse("0002015912ABCD63041234"));
+    }
+
+    private QRPaymentData paymentData(String name, String alias) {
+        MerchantInfo merchantInfo = MerchantInfo.builder()
+                .name(name)
+                .city("Abidjan")
+                .countryCode(uemoaConfig.getCountryCode())
+                .categoryCode(uemoaConfig.getMerchantCategoryCode())
+                .alias(alias)
+                .build();
+        return QRPaymentData.builder().merchantInfo(merchantInfo).amount(new BigDecimal("50000.50")).build();
+    }
+}
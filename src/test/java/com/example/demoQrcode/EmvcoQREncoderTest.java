@@ -0,0 +1,393 @@
+package com.example.demoQrcode;
+
+import com.aveplus.uemoa.qr.model.MerchantInfo;
+import com.aveplus.uemoa.qr.model.QRPaymentData;
+import com.aveplus.uemoa.qr.service.UemoaQRService;
+import com.example.demoQrcode.config.UemoaAutoConfiguration;
+import com.example.demoQrcode.config.UemoaConfig;
+import com.example.demoQrcode.service.EmvcoPayload;
+import com.example.demoQrcode.service.EmvcoQREncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test de l'encodeur EMVCo interne : CRC, équivalence octet par octet et bascule vers le module UEMOA
+ */
+public class EmvcoQREncoderTest {
+
+    private static final String[] NAMES = {"John Doe", "Aïcha Koné", "Jean-Baptiste Kouassi Yao N'Guessan", "Zoé Ébrié"};
+    private static final String[] CITIES = {"Abidjan", "Yamoussoukro", "Grand-Bassam", "San-Pédro"};
+
+    private final UemoaConfig uemoaConfig = new UemoaConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UemoaQRService module;
+    private EmvcoQREncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        module = spy(new ReferenceEncoder(uemoaConfig));
+        encoder = encoder(module, true);
+    }
+
+    @Test
+    void testCrc16CcittCheckValue() {
+        assertEquals(0x29B1, EmvcoQREncoder.crc16("123456789", 0, 9, 0xFFFF));
+        assertEquals(ReferenceEncoder.crc("Aïcha Koné".getBytes(StandardCharsets.UTF_8)),
+                EmvcoQREncoder.crc16("Aïcha Koné", 0, "Aïcha Koné".length(), 0xFFFF));
+    }
+
+    /**
+     * Équivalence octet par octet avec l'implémentation du module : échoue si elle est absente du classpath
+     */
+    @Test
+    void testPayloadsAreByteForByteEquivalent() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(UemoaAutoConfiguration.class)) {
+            UemoaQRService embedded = embeddedModule(context);
+            Random random = new Random(42);
+            for (int i = 0; i < 2_000; i++) {
+                QRPaymentData paymentData = paymentData(NAMES[random.nextInt(NAMES.length)], CITIES[random.nextInt(CITIES.length)],
+                        random.nextBoolean() ? "IFU" + random.nextInt(1_000_000) : null,
+                        BigDecimal.valueOf(1 + random.nextInt(10_000_000), random.nextInt(3)));
+                paymentData.setTransactionId("LIQ-" + i + "-" + random.nextLong(Long.MAX_VALUE));
+
+                assertArrayEquals(bytes(embedded.generateStaticQR(paymentData)), bytes(encoder.encode(paymentData, false)));
+                assertArrayEquals(bytes(embedded.generateDynamicQR(paymentData)), bytes(encoder.encode(paymentData, true)));
+            }
+        }
+    }
+
+    @Test
+    void testReferenceEncoderMatchesEncoder() {
+        // ReferenceEncoder sert de module dans les tests de bascule : il doit encoder comme l'encodeur
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            QRPaymentData paymentData = paymentData(NAMES[random.nextInt(NAMES.length)], CITIES[random.nextInt(CITIES.length)],
+                    random.nextBoolean() ? "IFU" + random.nextInt(1_000_000) : null,
+                    BigDecimal.valueOf(1 + random.nextInt(10_000_000), random.nextInt(3)));
+            paymentData.setTransactionId("LIQ-" + i + "-" + random.nextLong(Long.MAX_VALUE));
+
+            assertEquals(module.generateDynamicQR(paymentData), encoder.encode(paymentData, true));
+        }
+    }
+
+    @Test
+    void testEncoderMatchesGoldenPayloads() throws IOException {
+        // Les payloads de référence doivent venir du module, pas d'un encodeur écrit pour les tests
+        assertTrue(GoldenCase.source().startsWith(GoldenCase.MODULE_SOURCE),
+                "Payloads de référence non capturés avec uemoa-qrcode-module (source : " + GoldenCase.source() + ")");
+        List<GoldenCase> cases = GoldenCase.load();
+        assertFalse(cases.isEmpty());
+
+        for (GoldenCase golden : cases) {
+            assertFalse(golden.payload().isEmpty(), "Payload de référence non capturé : " + golden);
+            assertEquals(golden.payload(), encoder.encode(golden.paymentData(uemoaConfig), golden.dynamic()), golden.toString());
+            assertDoesNotThrow(() -> EmvcoPayload.parse(golden.payload()));
+        }
+    }
+
+    /**
+     * Compare les payloads de référence au module embarqué, ou les recapture avec -Demvco.golden.capture=true
+     * (après une montée de version du module). Échoue si l'implémentation du module est absente.
+     */
+    @Test
+    void testGoldenPayloadsMatchEmbeddedModule() throws IOException {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(UemoaAutoConfiguration.class)) {
+            UemoaQRService embedded = embeddedModule(context);
+
+            List<GoldenCase> cases = GoldenCase.load();
+            if (Boolean.getBoolean("emvco.golden.capture")) {
+                GoldenCase.write(cases, embedded, uemoaConfig);
+                return;
+            }
+            for (GoldenCase golden : cases) {
+                QRPaymentData paymentData = golden.paymentData(uemoaConfig);
+                String module = golden.dynamic() ? embedded.generateDynamicQR(paymentData) : embedded.generateStaticQR(paymentData);
+                assertEquals(golden.payload(), module, golden.toString());
+            }
+        }
+    }
+
+    @Test
+    void testFastPathIsUsedOnceVerified() {
+        QRPaymentData paymentData = paymentData("John Doe", "Abidjan", "IFU123456", new BigDecimal("50000"));
+
+        for (int i = 0; i < 10; i++) {
+            paymentData.setAmount(BigDecimal.valueOf(1_000 + i));
+            assertEquals(module.generateStaticQR(paymentData), encoder.generateStaticQR(paymentData));
+        }
+
+        // 10 appels directs (attendu) + 1 seul pour la vérification de la forme
+        verify(module, times(11)).generateStaticQR(any());
+    }
+
+    @Test
+    void testEachAmountScaleAndReferenceLengthIsVerified() {
+        for (String amount : new String[]{"50000", "50000.00", "1234.5", "1234.50", "75000"}) {
+            QRPaymentData paymentData = paymentData("John Doe", "Abidjan", null, new BigDecimal(amount));
+            paymentData.setTransactionId("REF-" + amount);
+            encoder.generateDynamicQR(paymentData);
+        }
+
+        // 50000 et 75000 partagent la forme (échelle 0, même longueur de référence) : 4 vérifications
+        verify(module, times(4)).generateDynamicQR(any());
+        assertEquals(4.0, meterRegistry.get(EmvcoQREncoder.VERIFICATIONS).tag("result", "match").counter().count());
+    }
+
+    @Test
+    void testVerifiedShapeIsSharedAcrossMerchants() {
+        encoder.generateStaticQR(paymentData("John Doe", "Abidjan", "IFU1", new BigDecimal("50000")));
+        String second = encoder.generateStaticQR(paymentData("Jane Roe", "Bouake", "IFU2", new BigDecimal("20000")));
+
+        assertEquals(module.generateStaticQR(paymentData("Jane Roe", "Bouake", "IFU2", new BigDecimal("20000"))), second);
+        // 1 vérification + 1 appel direct (attendu)
+        verify(module, times(2)).generateStaticQR(any());
+    }
+
+    @Test
+    void testAmountFormattedDifferentlyByModuleIsNeverEncoded() {
+        // Module qui conserve les décimales (50000.00) au lieu de les supprimer
+        UemoaQRService keepsScale = spy(new ReferenceEncoder(uemoaConfig) {
+            @Override
+            public String generateStaticQR(QRPaymentData paymentData) {
+                return super.generateStaticQR(paymentData).replace("540550000", "540850000.00");
+            }
+        });
+        EmvcoQREncoder checked = encoder(keepsScale, true);
+
+        for (int i = 0; i < 3; i++) {
+            String payload = checked.generateStaticQR(paymentData("John Doe", "Abidjan", null, new BigDecimal("50000.00")));
+            assertTrue(payload.contains("540850000.00"));
+        }
+        // Forme en écart : chaque génération passe par le module
+        verify(keepsScale, times(3)).generateStaticQR(any());
+        assertEquals(1.0, meterRegistry.get(EmvcoQREncoder.VERIFICATIONS).tag("result", "mismatch").counter().count());
+    }
+
+    @Test
+    void testSamplingDetectsLaterMismatch() {
+        EmvcoQREncoder sampled = encoder(module, true);
+        ReflectionTestUtils.setField(sampled, "verifySampleRate", 1.0);
+        QRPaymentData paymentData = paymentData("John Doe", "Abidjan", null, new BigDecimal("50000"));
+        sampled.generateStaticQR(paymentData);
+
+        // Le module change de formatage après la vérification initiale (montée de version)
+        doReturn("000201010211MODULE-V2").when(module).generateStaticQR(any());
+
+        assertEquals("000201010211MODULE-V2", sampled.generateStaticQR(paymentData));
+        assertEquals(1.0, meterRegistry.get(EmvcoQREncoder.VERIFICATIONS).tag("kind", "sample").tag("result", "mismatch").counter().count());
+        ReflectionTestUtils.setField(sampled, "verifySampleRate", 0.0);
+        assertEquals("000201010211MODULE-V2", sampled.generateStaticQR(paymentData));
+    }
+
+    @Test
+    void testMismatchFallsBackToModule() {
+        UemoaQRService different = mock(UemoaQRService.class);
+        when(different.generateDynamicQR(any())).thenReturn("000201010212MODULE");
+        EmvcoQREncoder fallback = encoder(different, true);
+        QRPaymentData paymentData = paymentData("John Doe", "Abidjan", null, new BigDecimal("50000"));
+        paymentData.setTransactionId("REF-1");
+
+        assertEquals("000201010212MODULE", fallback.generateDynamicQR(paymentData));
+        assertEquals("000201010212MODULE", fallback.generateDynamicQR(paymentData));
+        verify(different, times(2)).generateDynamicQR(any());
+    }
+
+    @Test
+    void testFastPathCanBeDisabled() {
+        EmvcoQREncoder disabled = encoder(module, false);
+        QRPaymentData paymentData = paymentData("John Doe", "Abidjan", null, new BigDecimal("50000"));
+
+        disabled.generateStaticQR(paymentData);
+        disabled.generateStaticQR(paymentData);
+
+        verify(module, times(2)).generateStaticQR(any());
+    }
+
+    private EmvcoQREncoder encoder(UemoaQRService uemoaQRService, boolean fastPath) {
+        EmvcoQREncoder emvcoQREncoder = new EmvcoQREncoder(uemoaQRService, uemoaConfig, meterRegistry);
+        ReflectionTestUtils.setField(emvcoQREncoder, "fastPathEnabled", fastPath);
+        ReflectionTestUtils.setField(emvcoQREncoder, "verifySampleRate", 0.0);
+        ReflectionTestUtils.setField(emvcoQREncoder, "templateCacheMaxSize", 100L);
+        ReflectionTestUtils.invokeMethod(emvcoQREncoder, "initTemplates");
+        return emvcoQREncoder;
+    }
+
+    private QRPaymentData paymentData(String name, String city, String alias, BigDecimal amount) {
+        MerchantInfo merchantInfo = MerchantInfo.builder()
+                .name(name)
+                .city(city)
+                .countryCode(uemoaConfig.getCountryCode())
+                .categoryCode(uemoaConfig.getMerchantCategoryCode())
+                .alias(alias)
+                .build();
+        return QRPaymentData.builder().merchantInfo(merchantInfo).amount(amount).build();
+    }
+
+    /**
+     * Ligne de src/test/resources/emvco/golden-payloads.txt : type|nom|ville|alias|montant|référence|payload
+     */
+    record GoldenCase(boolean dynamic, String name, String city, String alias, String amount, String reference,
+                      String payload) {
+
+        static final String MODULE_SOURCE = "uemoa-qrcode-module";
+
+        private static final String RESOURCE = "/emvco/golden-payloads.txt";
+        private static final String SOURCE_HEADER = "#source=";
+        private static final Path SOURCE = Path.of("src", "test", "resources", "emvco", "golden-payloads.txt");
+
+        /**
+         * Origine des payloads (ligne #source=) : uemoa-qrcode-module {implémentation} une fois capturés
+         */
+        static String source() throws IOException {
+            for (String line : lines()) {
+                if (line.startsWith(SOURCE_HEADER)) {
+                    return line.substring(SOURCE_HEADER.length());
+                }
+            }
+            return "inconnue";
+        }
+
+        static List<GoldenCase> load() throws IOException {
+            List<GoldenCase> cases = new ArrayList<>();
+            for (String line : lines()) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = line.split("\\|", -1);
+                cases.add(new GoldenCase("DYNAMIC".equals(columns[0]), columns[1], columns[2], emptyToNull(columns[3]),
+                        columns[4], emptyToNull(columns[5]), columns[6]));
+            }
+            return cases;
+        }
+
+        private static String[] lines() throws IOException {
+            try (InputStream input = EmvcoQREncoderTest.class.getResourceAsStream(RESOURCE)) {
+                assertNotNull(input, RESOURCE);
+                return new String(input.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+            }
+        }
+
+        /**
+         * Réécrit le fichier source avec les payloads du module et son implémentation comme origine
+         */
+        static void write(List<GoldenCase> cases, UemoaQRService module, UemoaConfig uemoaConfig) throws IOException {
+            String version = module.getClass().getPackage().getImplementationVersion();
+            List<String> lines = new ArrayList<>(List.of(
+                    "# Payloads EMVCo de référence pour EmvcoQREncoderTest (UemoaConfig par défaut)",
+                    "# type|nom|ville|alias|montant|référence|payload",
+                    "# Capture : mvn test -Dtest=EmvcoQREncoderTest#testGoldenPayloadsMatchEmbeddedModule -Demvco.golden.capture=true",
+                    SOURCE_HEADER + MODULE_SOURCE + " " + module.getClass().getName() + (version != null ? " " + version : "")));
+            for (GoldenCase golden : cases) {
+                QRPaymentData paymentData = golden.paymentData(uemoaConfig);
+                String payload = golden.dynamic() ? module.generateDynamicQR(paymentData) : module.generateStaticQR(paymentData);
+                lines.add(String.join("|", golden.dynamic() ? "DYNAMIC" : "STATIC", golden.name(), golden.city(),
+                        Objects.toString(golden.alias(), ""), golden.amount(), Objects.toString(golden.reference(), ""), payload));
+            }
+            Files.write(SOURCE, lines, StandardCharsets.UTF_8);
+        }
+
+        QRPaymentData paymentData(UemoaConfig uemoaConfig) {
+            MerchantInfo merchantInfo = MerchantInfo.builder()
+                    .name(name)
+                    .city(city)
+                    .countryCode(uemoaConfig.getCountryCode())
+                    .categoryCode(uemoaConfig.getMerchantCategoryCode())
+                    .alias(alias)
+                    .build();
+            return QRPaymentData.builder().merchantInfo(merchantInfo).amount(new BigDecimal(amount)).transactionId(reference).build();
+        }
+
+        private static String emptyToNull(String value) {
+            return value.isEmpty() ? null : value;
+        }
+    }
+
+    private static UemoaQRService embeddedModule(AnnotationConfigApplicationContext context) {
+        UemoaQRService embedded = context.getBeanProvider(UemoaQRService.class).getIfAvailable();
+        assertNotNull(embedded, "Implémentation de uemoa-qrcode-module absente du classpath de test (jar réduit à l'API ?)");
+        return embedded;
+    }
+
+    private static byte[] bytes(String payload) {
+        return payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodage EMVCo écrit champ par champ, sans gabarit ni table de CRC : sert de module de référence
+     */
+    static class ReferenceEncoder implements UemoaQRService {
+
+        private final UemoaConfig uemoaConfig;
+
+        ReferenceEncoder(UemoaConfig uemoaConfig) {
+            this.uemoaConfig = uemoaConfig;
+        }
+
+        @Override
+        public String generateStaticQR(QRPaymentData paymentData) {
+            return payload(paymentData, false);
+        }
+
+        @Override
+        public String generateDynamicQR(QRPaymentData paymentData) {
+            return payload(paymentData, true);
+        }
+
+        @Override
+        public QRPaymentData parseQRCode(String payload) {
+            throw new UnsupportedOperationException();
+        }
+
+        private String payload(QRPaymentData paymentData, boolean dynamic) {
+            MerchantInfo merchant = paymentData.getMerchantInfo();
+            String accountInfo = tlv("00", uemoaConfig.getPaymentSystem().getIdentifier())
+                    + (merchant.getAlias() != null ? tlv("01", merchant.getAlias()) : "");
+            String payload = tlv("00", "01")
+                    + tlv("01", dynamic ? "12" : "11")
+                    + tlv("26", accountInfo)
+                    + tlv("52", merchant.getCategoryCode())
+                    + tlv("53", "952")
+                    + tlv("54", paymentData.getAmount().stripTrailingZeros().toPlainString())
+                    + tlv("58", merchant.getCountryCode())
+                    + tlv("59", merchant.getName().length() > 25 ? merchant.getName().substring(0, 25) : merchant.getName())
+                    + tlv("60", merchant.getCity().length() > 15 ? merchant.getCity().substring(0, 15) : merchant.getCity())
+                    + (dynamic && paymentData.getTransactionId() != null ? tlv("62", tlv("05", paymentData.getTransactionId())) : "")
+                    + "6304";
+            return payload + String.format("%04X", crc(payload.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        private static String tlv(String tag, String value) {
+            return tag + String.format("%02d", value.length()) + value;
+        }
+
+        static int crc(byte[] data) {
+            int crc = 0xFFFF;
+            for (byte b : data) {
+                crc ^= (b & 0xFF) << 8;
+                for (int bit = 0; bit < 8; bit++) {
+                    crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+                }
+                crc &= 0xFFFF;
+            }
+            return crc;
+        }
+    }
+}
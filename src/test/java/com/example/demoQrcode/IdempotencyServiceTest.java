@@ -0,0 +1,171 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.service.IdempotencyService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de la déduplication des générations de QR code (Idempotency-Key et requêtes simultanées)
+ */
+public class IdempotencyServiceTest {
+
+    private static final Map<String, Object> BODY = Map.of("transactionReference", "REF-1");
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyService idempotencyService;
+    private AtomicInteger generations;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyService = new IdempotencyService(meterRegistry);
+        ReflectionTestUtils.setField(idempotencyService, "maxSize", 100L);
+        ReflectionTestUtils.setField(idempotencyService, "ttl", Duration.ofHours(1));
+        ReflectionTestUtils.setField(idempotencyService, "waitTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.invokeMethod(idempotencyService, "initCache");
+        generations = new AtomicInteger();
+        authenticate("alice");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testRepeatedKeyReturnsOriginalResponse() {
+        ResponseEntity<String> first = idempotencyService.execute("qr/dynamic:1", "key-1", BODY, this::generate);
+        ResponseEntity<String> second = idempotencyService.execute("qr/dynamic:1", "key-1", BODY, this::generate);
+
+        assertEquals(1, generations.get());
+        assertEquals(first.getBody(), second.getBody());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void testKeyIsScopedToResourceAndUser() {
+        idempotencyService.execute("qr/dynamic:1", "key-1", BODY, this::generate);
+        idempotencyService.execute("qr/dynamic:2", "key-1", BODY, this::generate);
+        authenticate("bob");
+        idempotencyService.execute("qr/dynamic:1", "key-1", BODY, this::generate);
+
+        assertEquals(3, generations.get());
+    }
+
+    @Test
+    void testKeyReusedWithDifferentBodyIsRejected() {
+        idempotencyService.execute("qr/dynamic:1", "key-1", BODY, this::generate);
+
+        IdempotencyService.IdempotencyException error = assertThrows(IdempotencyService.IdempotencyException.class,
+                () -> idempotencyService.execute("qr/dynamic:1", "key-1", Map.of("transactionReference", "REF-2"), this::generate));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, error.getStatus());
+        assertEquals(1, generations.get());
+    }
+
+    @Test
+    void testFailedResponsesAreNotStored() {
+        idempotencyService.execute("qr/dynamic:1", "key-1", BODY,
+                () -> ResponseEntity.internalServerError().body("erreur " + generations.incrementAndGet()));
+        ResponseEntity<String> retry = idempotencyService.execute("qr/dynamic:1", "key-1", BODY, this::generate);
+
+        assertEquals(2, generations.get());
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+    }
+
+    @Test
+    void testConflictIsNotStored() {
+        ResponseEntity<String> conflict = idempotencyService.execute("qr/dynamic:1", "key-1", BODY,
+                () -> ResponseEntity.status(HttpStatus.CONFLICT).body("conflit " + generations.incrementAndGet()));
+        ResponseEntity<String> retry = idempotencyService.execute("qr/dynamic:1", "key-1", BODY, this::generate);
+
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+        assertEquals(2, generations.get());
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertNull(retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void testClientErrorsAreNotStored() {
+        idempotencyService.execute("qr/dynamic:1", "key-1", BODY,
+                () -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("absente " + generations.incrementAndGet()));
+        idempotencyService.execute("qr/dynamic:1", "key-1", BODY, this::generate);
+
+        assertEquals(2, generations.get());
+    }
+
+    @Test
+    void testInvalidKeyIsRejected() {
+        IdempotencyService.IdempotencyException error = assertThrows(IdempotencyService.IdempotencyException.class,
+                () -> idempotencyService.execute("qr/dynamic:1", " ", BODY, this::generate));
+
+        assertEquals(HttpStatus.BAD_REQUEST, error.getStatus());
+    }
+
+    @Test
+    void testConcurrentDuplicatesRunASingleGeneration() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            Future<ResponseEntity<String>> first = clients.submit(() -> {
+                authenticate("alice");
+                return idempotencyService.execute("generate-qr:1", null, BODY, () -> {
+                    started.countDown();
+                    await(release);
+                    return generate();
+                });
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<ResponseEntity<String>> duplicate = clients.submit(() -> {
+                authenticate("alice");
+                return idempotencyService.execute("generate-qr:1", null, BODY, this::generate);
+            });
+            // Le doublon attend la génération en cours
+            while (meterRegistry.find("qr.idempotency.requests").tag("result", "coalesced").counter() == null) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertEquals(first.get(5, TimeUnit.SECONDS).getBody(), duplicate.get(5, TimeUnit.SECONDS).getBody());
+            assertEquals(1, generations.get());
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private ResponseEntity<String> generate() {
+        return ResponseEntity.ok("QR-" + generations.incrementAndGet());
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(username, null, "ROLE_USER"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
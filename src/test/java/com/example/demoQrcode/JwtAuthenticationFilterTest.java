@@ -0,0 +1,104 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.security.JwtAuthenticationFilter;
+import com.example.demoQrcode.security.JwtUtil;
+import com.example.demoQrcode.service.CustomUserDetailsService;
+import com.example.demoQrcode.service.TokenVersionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test de l'authentification JWT sans rechargement de l'utilisateur en base
+ */
+public class JwtAuthenticationFilterTest {
+
+    private JwtUtil jwtUtil;
+    private CustomUserDetailsService userDetailsService;
+    private TokenVersionService tokenVersionService;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "myVerySecureSecretKey1234567890123456789012345678901234567890ABCD");
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpirationInMs", 3600000L);
+        jwtUtil.checkSecret();
+
+        userDetailsService = mock(CustomUserDetailsService.class);
+        tokenVersionService = mock(TokenVersionService.class);
+        filter = new JwtAuthenticationFilter(jwtUtil, userDetailsService, tokenVersionService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testAuthenticationIsBuiltFromClaims() throws Exception {
+        when(tokenVersionService.isCurrent("admin1", 3)).thenReturn(true);
+        String token = jwtUtil.generateToken("admin1", List.of("ROLE_ADMIN"), 3);
+
+        filter.doFilter(requestWithToken(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertEquals("admin1", authentication.getName());
+        assertTrue(authentication.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void testRevokedTokenIsRejected() throws Exception {
+        when(tokenVersionService.isCurrent("user1", 0)).thenReturn(false);
+        String token = jwtUtil.generateToken("user1", List.of("ROLE_USER"), 0);
+
+        filter.doFilter(requestWithToken(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void testInvalidTokenIsRejected() throws Exception {
+        filter.doFilter(requestWithToken("not-a-jwt"), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(userDetailsService, tokenVersionService);
+    }
+
+    @Test
+    void testTokenWithoutVersionFallsBackToUserLookup() throws Exception {
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        when(userDetailsService.loadUserByUsername("user1")).thenReturn(new User("user1", "hash", authorities));
+        String token = jwtUtil.generateToken("user1");
+
+        filter.doFilter(requestWithToken(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(userDetailsService).loadUserByUsername("user1");
+        verify(tokenVersionService, never()).isCurrent(anyString(), anyInt());
+    }
+
+    private MockHttpServletRequest requestWithToken(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/liquidations");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.dto.CursorPage;
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.repository.CustomerRepository;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import com.example.demoQrcode.service.CustomerService;
+import com.example.demoQrcode.service.LiquidationService;
+import com.example.demoQrcode.service.OptimisticLockRetry;
+import com.example.demoQrcode.service.impl.CustomerServiceImpl;
+import com.example.demoQrcode.service.impl.LiquidationServiceImpl;
+import com.example.demoQrcode.service.impl.SearchServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de la pagination par clé (curseur) des liquidations et des clients
+ */
+@DataJpaTest
+@Import({LiquidationServiceImpl.class, CustomerServiceImpl.class, SearchServiceImpl.class, OptimisticLockRetry.class})
+public class KeysetPaginationTest {
+
+    @Autowired
+    private LiquidationService liquidationService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private LiquidationRepository liquidationRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private Customer customer;
+    private Customer otherCustomer;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(new Customer("Doe", "John", "123 Main Street, Abidjan",
+                "IFU123456", "+22501234567", "john.doe@example.com"));
+        otherCustomer = customerRepository.save(new Customer("Smith", "Jane", "45 Avenue, Dakar",
+                "IFU654321", "+22507654321", "jane.smith@example.com"));
+    }
+
+    @Test
+    void testLiquidationsAreScrolledByIssueDateThenIdWithoutGapsOrDuplicates() {
+        LocalDate today = LocalDate.now();
+        // Plusieurs liquidations partagent la même date d'émission
+        int[] ageInDays = {0, 3, 3, 3, 7, 10, 10};
+        for (int age : ageInDays) {
+            saveLiquidation(customer, today.minusDays(age), LiquidationStatus.PENDING);
+        }
+
+        List<Liquidation> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<Liquidation> page = liquidationService.scrollWithFilters(null, null, null, null, cursor, 2, false);
+            seen.addAll(page.getContent());
+            assertNull(page.getTotalElements());
+            cursor = page.getNextCursor();
+            assertEquals(cursor != null, page.isHasNext());
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(4, pages);
+        assertEquals(ageInDays.length, seen.stream().map(Liquidation::getId).distinct().count());
+        List<Liquidation> expected = new ArrayList<>(seen);
+        expected.sort(Comparator.comparing(Liquidation::getIssueDate).thenComparing(Liquidation::getId).reversed());
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void testFiltersApplyAndTotalIsOptional() {
+        LocalDate today = LocalDate.now();
+        saveLiquidation(customer, today, LiquidationStatus.PENDING);
+        saveLiquidation(customer, today.minusDays(1), LiquidationStatus.PAID);
+        saveLiquidation(customer, today.minusDays(2), LiquidationStatus.PENDING);
+        saveLiquidation(otherCustomer, today, LiquidationStatus.PENDING);
+
+        CursorPage<Liquidation> first = liquidationService.scrollWithFilters(customer.getId(), LiquidationStatus.PENDING,
+                null, null, null, 1, true);
+        assertEquals(2L, first.getTotalElements());
+        assertTrue(first.isHasNext());
+
+        CursorPage<Liquidation> second = liquidationService.scrollWithFilters(customer.getId(), LiquidationStatus.PENDING,
+                null, null, first.getNextCursor(), 1, false);
+        assertEquals(1, second.getSize());
+        assertFalse(second.isHasNext());
+        assertEquals(today.minusDays(2), second.getContent().get(0).getIssueDate());
+    }
+
+    @Test
+    void testCustomersAreScrolledById() {
+        customerRepository.save(new Customer("Martin", "Paul", "Lomé", "IFU000003", "+22890000000", "paul.martin@example.com"));
+
+        CursorPage<Customer> first = customerService.scroll(null, 2, true);
+        assertEquals(3L, first.getTotalElements());
+        assertEquals(List.of(customer.getId(), otherCustomer.getId()), first.getContent().stream().map(Customer::getId).toList());
+
+        CursorPage<Customer> second = customerService.scroll(first.getNextCursor(), 2, false);
+        assertEquals(1, second.getSize());
+        assertFalse(second.isHasNext());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void testInvalidCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> liquidationService.scrollWithFilters(null, null, null, null, "not a cursor!", 10, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> customerService.scroll(CursorPage.encodeCursor("abc"), 10, false));
+    }
+
+    private Liquidation saveLiquidation(Customer owner, LocalDate issueDate, LiquidationStatus status) {
+        Liquidation liquidation = new Liquidation();
+        liquidation.setCustomer(owner);
+        liquidation.setTaxType("TVA");
+        liquidation.setAmount(new BigDecimal("50000.00"));
+        liquidation.setIssueDate(issueDate);
+        liquidation.setDueDate(issueDate.plusDays(30));
+        liquidation.setStatus(status);
+        return liquidationRepository.save(liquidation);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.controller.LiquidationController;
+import com.example.demoQrcode.service.IdempotencyService;
+import com.example.demoQrcode.service.LiquidationQRDataService;
+import com.example.demoQrcode.service.LiquidationQRService;
+import com.example.demoQrcode.service.LiquidationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test de l'endpoint image/png et de ses requêtes conditionnelles
+ */
+public class LiquidationControllerQRImageTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G'};
+
+    private LiquidationQRDataService liquidationQRDataService;
+    private LiquidationController controller;
+
+    @BeforeEach
+    void setUp() {
+        liquidationQRDataService = mock(LiquidationQRDataService.class);
+        controller = new LiquidationController(mock(LiquidationService.class), mock(LiquidationQRService.class), liquidationQRDataService,
+                mock(IdempotencyService.class));
+        when(liquidationQRDataService.findQrGeneratedAt(1L)).thenReturn(Optional.of(LocalDateTime.of(2025, 1, 15, 10, 30)));
+        when(liquidationQRDataService.findQrImage(1L)).thenReturn(Optional.of(PNG));
+    }
+
+    @Test
+    void testReturnsRawPngWithValidators() {
+        ResponseEntity<byte[]> response = controller.getQRImagePng(1L, webRequest(new MockHttpServletRequest("GET", "/api/liquidations/1/qr-image.png")));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.IMAGE_PNG, response.getHeaders().getContentType());
+        assertArrayEquals(PNG, response.getBody());
+        assertNotNull(response.getHeaders().getETag());
+        assertTrue(response.getHeaders().getLastModified() > 0);
+    }
+
+    @Test
+    void testMatchingEtagReturnsNotModifiedWithoutReadingImage() {
+        String etag = controller.getQRImagePng(1L, webRequest(new MockHttpServletRequest("GET", "/api/liquidations/1/qr-image.png")))
+                .getHeaders().getETag();
+        reset(liquidationQRDataService);
+        when(liquidationQRDataService.findQrGeneratedAt(1L)).thenReturn(Optional.of(LocalDateTime.of(2025, 1, 15, 10, 30)));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/liquidations/1/qr-image.png");
+        request.addHeader("If-None-Match", etag);
+        ResponseEntity<byte[]> response = controller.getQRImagePng(1L, webRequest(request));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(liquidationQRDataService, never()).findQrImage(anyLong());
+    }
+
+    @Test
+    void testUnknownLiquidationReturnsNotFound() {
+        when(liquidationQRDataService.findQrGeneratedAt(2L)).thenReturn(Optional.empty());
+
+        ResponseEntity<byte[]> response = controller.getQRImagePng(2L, webRequest(new MockHttpServletRequest("GET", "/api/liquidations/2/qr-image.png")));
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    private static ServletWebRequest webRequest(MockHttpServletRequest request) {
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.repository.CustomerRepository;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test du chargement des clients avec les listes de liquidations (une requête, sans N+1)
+ */
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class LiquidationCustomerFetchTest {
+
+    private static final PageRequest PAGE = PageRequest.of(0, 10);
+
+    @Autowired
+    private LiquidationRepository liquidationRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 3; i++) {
+            Customer customer = customerRepository.save(new Customer("Nom" + i, "Prenom" + i, "Rue " + i + ", Abidjan",
+                    "IFU00" + i, "+2250100000" + i, "client" + i + "@example.com"));
+            Liquidation liquidation = new Liquidation();
+            liquidation.setCustomer(customer);
+            liquidation.setTaxType("TVA");
+            liquidation.setAmount(new BigDecimal("50000.00"));
+            liquidation.setPenaltyAmount(new BigDecimal("1000.00"));
+            liquidation.setIssueDate(LocalDate.now());
+            liquidation.setDueDate(LocalDate.now().plusDays(30));
+            liquidation.setStatus(LiquidationStatus.PENDING);
+            liquidation = liquidationRepository.save(liquidation);
+            liquidation.setQrCodeData("000201010211" + i);
+            liquidation.setQrType("STATIC");
+            liquidation.setQrGeneratedAt(LocalDateTime.now());
+            liquidationRepository.save(liquidation);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void testQrDataListsLoadCustomersInTheSameQuery() {
+        assertCustomersLoaded(liquidationRepository.findLiquidationsWithQrCode(PAGE).getContent());
+        assertCustomersLoaded(liquidationRepository.findByQrType("STATIC", PAGE).getContent());
+        assertCustomersLoaded(liquidationRepository.findLiquidationsWithQrCodeByStatus(LiquidationStatus.PENDING, PAGE).getContent());
+        assertCustomersLoaded(liquidationRepository.findLiquidationsWithPenalties(PAGE).getContent());
+    }
+
+    @Test
+    void testSerializingCustomerNamesIssuesASingleStatement() {
+        List<Liquidation> liquidations = liquidationRepository.findLiquidationsWithQrCode(PAGE).getContent();
+        liquidations.forEach(l -> l.getCustomer().getFirstName());
+
+        // La page contient toutes les lignes : aucune requête de comptage n'est nécessaire
+        assertEquals(3, liquidations.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testFilteredPageLoadsCustomers() {
+        Specification<Liquidation> spec = (root, query, cb) -> cb.equal(root.get("taxType"), "TVA");
+        Page<Liquidation> page = liquidationRepository.findAll(spec, PageRequest.of(0, 2));
+
+        assertEquals(3, page.getTotalElements());
+        assertCustomersLoaded(page.getContent());
+    }
+
+    private void assertCustomersLoaded(List<Liquidation> liquidations) {
+        assertFalse(liquidations.isEmpty());
+        liquidations.forEach(l -> assertTrue(Hibernate.isInitialized(l.getCustomer())));
+        entityManager.clear();
+    }
+}
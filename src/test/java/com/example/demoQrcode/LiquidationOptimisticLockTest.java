@@ -0,0 +1,326 @@
+package com.example.demoQrcode;
+
+import com.aveplus.uemoa.qr.service.UemoaQRService;
+import com.example.demoQrcode.config.ConnectionHoldMetricsConfig;
+import com.example.demoQrcode.config.UemoaConfig;
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.repository.CustomerRepository;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import com.example.demoQrcode.service.EmvcoQREncoder;
+import com.example.demoQrcode.service.LiquidationQRService;
+import com.example.demoQrcode.service.OptimisticLockRetry;
+import com.example.demoQrcode.service.QRImageRenderService;
+import com.example.demoQrcode.service.QRMetrics;
+import com.example.demoQrcode.service.TransactionIdFilter;
+import com.example.demoQrcode.service.TransactionReferenceGenerator;
+import com.example.demoQrcode.service.BatchJobRegistry;
+import com.example.demoQrcode.service.OverdueLiquidationService;
+import com.example.demoQrcode.service.impl.LiquidationQRDataServiceImpl;
+import com.example.demoQrcode.service.impl.LiquidationQRServiceImpl;
+import com.example.demoQrcode.service.impl.OverdueLiquidationServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test du verrouillage optimiste des liquidations et de l'écriture des QR codes générés hors transaction.
+ * Les écritures concurrentes sont simulées depuis un autre thread : les données sont validées en base.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({LiquidationQRServiceImpl.class, OptimisticLockRetry.class, QRMetrics.class, TransactionReferenceGenerator.class, EmvcoQREncoder.class,
+        ConnectionHoldMetricsConfig.class, OverdueLiquidationServiceImpl.class, BatchJobRegistry.class,
+        LiquidationOptimisticLockTest.Config.class})
+@TestPropertySource(properties = {
+        "app.liquidation.optimistic-lock.max-attempts=3",
+        "app.liquidation.optimistic-lock.backoff-ms=1"
+})
+public class LiquidationOptimisticLockTest {
+
+    private static final String PAYLOAD = "00020101021226580014com.aveplus.uemoa0112int.bceao.pi52045XXX5303952540550000" +
+            "5802CI5913LIQUIDATION APP6007Abidjan6304";
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+            return new TransactionTemplate(transactionManager);
+        }
+
+        @Bean
+        UemoaConfig uemoaConfig() {
+            return new UemoaConfig();
+        }
+
+        @Bean
+        UemoaQRService uemoaQRService() {
+            return mock(UemoaQRService.class);
+        }
+
+        @Bean
+        QRImageRenderService qrImageRenderService() {
+            return mock(QRImageRenderService.class);
+        }
+
+        @Bean
+        TransactionIdFilter transactionIdFilter() {
+            return mock(TransactionIdFilter.class);
+        }
+    }
+
+    @Autowired
+    private LiquidationQRService liquidationQRService;
+
+    @Autowired
+    private OverdueLiquidationService overdueLiquidationService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private LiquidationRepository liquidationRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private UemoaQRService uemoaQRService;
+
+    @Autowired
+    private TransactionIdFilter transactionIdFilter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Liquidation liquidation;
+
+    @BeforeEach
+    void setUp() {
+        reset(uemoaQRService, transactionIdFilter);
+        when(uemoaQRService.generateStaticQR(any())).thenReturn(PAYLOAD + "STAT");
+        when(uemoaQRService.generateDynamicQR(any())).thenReturn(PAYLOAD + "DYNA");
+
+        Customer customer = customerRepository.save(new Customer("Doe", "John", "123 Main Street, Abidjan",
+                "IFU123456", "+22501234567", "john.doe@example.com"));
+        Liquidation l = new Liquidation();
+        l.setCustomer(customer);
+        l.setTaxType("TVA");
+        l.setAmount(new BigDecimal("50000.00"));
+        l.setIssueDate(LocalDate.now());
+        l.setDueDate(LocalDate.now().plusDays(30));
+        l.setStatus(LiquidationStatus.PENDING);
+        liquidation = liquidationRepository.save(l);
+    }
+
+    @AfterEach
+    void tearDown() {
+        liquidationRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void testStaleWriteIsRejected() {
+        Liquidation first = liquidationRepository.findById(liquidation.getId()).orElseThrow();
+        Liquidation second = liquidationRepository.findById(liquidation.getId()).orElseThrow();
+
+        first.setStatus(LiquidationStatus.PAID);
+        liquidationRepository.save(first);
+        second.setAmount(new BigDecimal("1.00"));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> liquidationRepository.save(second));
+        Liquidation stored = liquidationRepository.findById(liquidation.getId()).orElseThrow();
+        assertEquals(LiquidationStatus.PAID, stored.getStatus());
+        assertEquals(0, new BigDecimal("50000.00").compareTo(stored.getAmount()));
+    }
+
+    @Test
+    void testRegenerateReplacesQrInASingleWrite() {
+        liquidationQRService.regenerateQRForLiquidation(liquidation.getId(), "STATIC", null, null);
+        long before = version();
+
+        Map<String, Object> qrData = liquidationQRService.regenerateQRForLiquidation(liquidation.getId(), "DYNAMIC", "REF-1", null)
+                .orElseThrow();
+
+        assertEquals("DYNAMIC", qrData.get("type"));
+        assertEquals(before + 1, version());
+        Liquidation stored = liquidationRepository.findWithQrArtifactById(liquidation.getId()).orElseThrow();
+        assertEquals(PAYLOAD + "DYNA", stored.getQrCodeData());
+        // Référence client enregistrée avec un identifiant horodaté en suffixe
+        assertTrue(stored.getTransactionId().startsWith("REF-1-"));
+        assertEquals(stored.getTransactionId(), qrData.get("transactionReference"));
+    }
+
+    @Test
+    void testOverduePenaltyIsRecalculatedAfterRegenerationOrPurge() {
+        LocalDate today = LocalDate.now();
+        Liquidation overdue = liquidationRepository.findById(liquidation.getId()).orElseThrow();
+        overdue.setDueDate(today.minusDays(10));
+        liquidationRepository.save(overdue);
+
+        assertEquals(1, overdueLiquidationService.recalculateOverdueLiquidations(today).getSucceeded());
+        BigDecimal penalty = liquidationRepository.findById(liquidation.getId()).orElseThrow().getPenaltyAmount();
+        assertNotNull(penalty);
+
+        liquidationQRService.regenerateQRForLiquidation(liquidation.getId(), "STATIC", null, null);
+        assertPenaltyRecalculatedSameDay(today, penalty);
+
+        // Purge en masse (rétention, suppression par client)
+        transactionTemplate.executeWithoutResult(status -> liquidationRepository.clearQrCodeDataByIds(List.of(liquidation.getId())));
+        assertPenaltyRecalculatedSameDay(today, penalty);
+
+        // Suppression unitaire des données QR
+        LiquidationQRDataServiceImpl dataService = new LiquidationQRDataServiceImpl(liquidationRepository, null, null, null,
+                transactionIdFilter, null, null, null, null);
+        transactionTemplate.executeWithoutResult(status -> dataService.removeQrCodeData(liquidation.getId()));
+        assertPenaltyRecalculatedSameDay(today, penalty);
+    }
+
+    /**
+     * Pénalité effacée puis recalculée par un second passage du traitement des retards le même jour
+     */
+    private void assertPenaltyRecalculatedSameDay(LocalDate today, BigDecimal penalty) {
+        Liquidation cleared = liquidationRepository.findById(liquidation.getId()).orElseThrow();
+        assertNull(cleared.getPenaltyAmount());
+        assertNull(cleared.getPenaltyCalculatedOn());
+
+        assertEquals(1, overdueLiquidationService.recalculateOverdueLiquidations(today).getSucceeded());
+        Liquidation stored = liquidationRepository.findById(liquidation.getId()).orElseThrow();
+        assertEquals(0, penalty.compareTo(stored.getPenaltyAmount()));
+        assertEquals(today, stored.getPenaltyCalculatedOn());
+        assertEquals(LiquidationStatus.OVERDUE, stored.getStatus());
+    }
+
+    @Test
+    void testRegenerateRetriesAfterConcurrentUpdate() {
+        when(uemoaQRService.generateStaticQR(any()))
+                .thenAnswer(invocation -> {
+                    concurrentUpdate();
+                    return PAYLOAD + "STAT";
+                })
+                .thenReturn(PAYLOAD + "STAT");
+        long before = version();
+
+        assertTrue(liquidationQRService.regenerateQRForLiquidation(liquidation.getId(), "STATIC", null, null).isPresent());
+
+        verify(uemoaQRService, times(2)).generateStaticQR(any());
+        assertEquals(before + 2, version());
+        assertEquals("STATIC", liquidationRepository.findById(liquidation.getId()).orElseThrow().getQrType());
+    }
+
+    @Test
+    void testPersistentConflictIsPropagated() {
+        when(uemoaQRService.generateStaticQR(any())).thenAnswer(invocation -> {
+            concurrentUpdate();
+            return PAYLOAD + "STAT";
+        });
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> liquidationQRService.regenerateQRForLiquidation(liquidation.getId(), "STATIC", null, null));
+
+        verify(uemoaQRService, times(3)).generateStaticQR(any());
+        assertNull(liquidationRepository.findById(liquidation.getId()).orElseThrow().getQrType());
+    }
+
+    @Test
+    void testEncodingRunsOutsideAnyTransaction() {
+        when(uemoaQRService.generateStaticQR(any())).thenAnswer(invocation -> {
+            assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+            return PAYLOAD + "STAT";
+        });
+        Liquidation detached = liquidationRepository.findWithQrArtifactById(liquidation.getId()).orElseThrow();
+
+        liquidationQRService.generateStaticQRForLiquidation(detached);
+
+        Liquidation stored = liquidationRepository.findWithQrArtifactById(liquidation.getId()).orElseThrow();
+        assertEquals(PAYLOAD + "STAT", stored.getQrCodeData());
+        assertEquals("STATIC", stored.getQrType());
+        assertEquals(stored.getVersion(), detached.getVersion());
+        assertTrue(meterRegistry.get(ConnectionHoldMetricsConfig.CONNECTION_HOLD).tag("uri", "none").timer().count() > 0);
+    }
+
+    @Test
+    void testStaleGenerationDoesNotOverwriteConcurrentWrite() {
+        Liquidation stale = liquidationRepository.findWithQrArtifactById(liquidation.getId()).orElseThrow();
+        liquidationQRService.generateDynamicQRForLiquidation(
+                liquidationRepository.findWithQrArtifactById(liquidation.getId()).orElseThrow(), "REF-1");
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> liquidationQRService.generateStaticQRForLiquidation(stale));
+
+        Liquidation stored = liquidationRepository.findWithQrArtifactById(liquidation.getId()).orElseThrow();
+        assertEquals("DYNAMIC", stored.getQrType());
+        assertEquals(PAYLOAD + "DYNA", stored.getQrCodeData());
+        verify(transactionIdFilter, never()).register(argThat(reference -> !reference.startsWith("REF-1-")));
+    }
+
+    @Test
+    void testPaidLiquidationIsNotOverwritten() {
+        Liquidation read = liquidationRepository.findWithQrArtifactById(liquidation.getId()).orElseThrow();
+        jdbcTemplate.update("UPDATE liquidations SET status = 'PAID' WHERE id = ?", liquidation.getId());
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> liquidationQRService.generateStaticQRForLiquidation(read));
+
+        assertNull(liquidationRepository.findById(liquidation.getId()).orElseThrow().getQrType());
+    }
+
+    @Test
+    void testUnknownLiquidationIsEmpty() {
+        assertTrue(liquidationQRService.regenerateQRForLiquidation(-1L, "STATIC", null, null).isEmpty());
+    }
+
+    /**
+     * Mise à jour validée par une autre connexion pendant la génération (autre opérateur ou autre instance)
+     */
+    private void concurrentUpdate() {
+        CompletableFuture.runAsync(() -> jdbcTemplate.update(
+                "UPDATE liquidations SET amount = amount, version = version + 1 WHERE id = ?", liquidation.getId())).join();
+    }
+
+    private long version() {
+        return jdbcTemplate.queryForObject("SELECT version FROM liquidations WHERE id = ?", Long.class, liquidation.getId());
+    }
+}
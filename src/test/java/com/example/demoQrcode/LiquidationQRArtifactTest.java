@@ -0,0 +1,121 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.repository.CustomerRepository;
+import com.example.demoQrcode.repository.LiquidationQRArtifactRepository;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test du stockage des artefacts QR hors de la table liquidations
+ */
+@DataJpaTest
+public class LiquidationQRArtifactTest {
+
+    private static final String QR_CODE_DATA = "00020101021138570010A000000727";
+    private static final String QR_IMAGE_BASE64 = "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNkYPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==";
+
+    @Autowired
+    private LiquidationRepository liquidationRepository;
+
+    @Autowired
+    private LiquidationQRArtifactRepository liquidationQRArtifactRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private Liquidation liquidation;
+
+    @BeforeEach
+    void setUp() {
+        Customer customer = customerRepository.save(new Customer("Doe", "John", "123 Main Street, Abidjan",
+                "IFU123456", "+22501234567", "john.doe@example.com"));
+
+        liquidation = new Liquidation();
+        liquidation.setCustomer(customer);
+        liquidation.setTaxType("TVA");
+        liquidation.setAmount(new BigDecimal("50000.00"));
+        liquidation.setIssueDate(LocalDate.now());
+        liquidation.setDueDate(LocalDate.now().plusDays(30));
+        liquidation.setStatus(LiquidationStatus.PENDING);
+        liquidation = liquidationRepository.save(liquidation);
+
+        liquidation.setQrCodeData(QR_CODE_DATA);
+        liquidation.setQrImageBase64(QR_IMAGE_BASE64);
+        liquidation.setQrType("STATIC");
+        liquidation.setQrGeneratedAt(LocalDateTime.now());
+        liquidation = liquidationRepository.save(liquidation);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void testArtifactIsStoredUnderLiquidationId() {
+        assertTrue(liquidationQRArtifactRepository.existsById(liquidation.getId()));
+
+        Liquidation reloaded = liquidationRepository.findWithQrArtifactById(liquidation.getId()).orElseThrow();
+        assertEquals(QR_CODE_DATA, reloaded.getQrCodeData());
+        assertEquals(QR_IMAGE_BASE64, reloaded.getQrImageBase64());
+        assertTrue(reloaded.hasQrCode());
+    }
+
+    @Test
+    void testImageIsStoredAsRawBytes() {
+        byte[] expected = Base64.getDecoder().decode(QR_IMAGE_BASE64);
+
+        assertArrayEquals(expected, liquidationQRArtifactRepository.findQrImageById(liquidation.getId()).orElseThrow());
+        assertTrue(liquidationRepository.findQrGeneratedAtById(liquidation.getId()).isPresent());
+    }
+
+    @Test
+    void testClearingQrFieldsRemovesArtifact() {
+        Liquidation reloaded = liquidationRepository.findById(liquidation.getId()).orElseThrow();
+        reloaded.setQrCodeData(null);
+        reloaded.setQrImageBase64(null);
+        liquidationRepository.saveAndFlush(reloaded);
+
+        assertFalse(liquidationQRArtifactRepository.existsById(liquidation.getId()));
+        assertEquals(0, liquidationRepository.countLiquidationsWithQrCode());
+    }
+
+    @Test
+    void testListingDoesNotSerializeQrArtifacts() throws Exception {
+        Liquidation listed = liquidationRepository.findByStatus(LiquidationStatus.PENDING).get(0);
+        JsonNode listedJson = objectMapper.valueToTree(listed);
+        assertFalse(listedJson.has("qrCodeData"));
+        assertFalse(listedJson.has("qrImageBase64"));
+        assertEquals("STATIC", listedJson.get("qrType").asText());
+
+        entityManager.clear();
+        Liquidation single = liquidationRepository.findWithQrArtifactById(liquidation.getId()).orElseThrow();
+        JsonNode singleJson = objectMapper.valueToTree(single);
+        assertEquals(QR_CODE_DATA, singleJson.get("qrCodeData").asText());
+        assertEquals(QR_IMAGE_BASE64, singleJson.get("qrImageBase64").asText());
+    }
+
+    @Test
+    void testQrCodeRequiresPersistedLiquidation() {
+        Liquidation transientLiquidation = new Liquidation();
+        assertThrows(IllegalStateException.class, () -> transientLiquidation.setQrCodeData(QR_CODE_DATA));
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.demoQrcode;
+
+import com.aveplus.uemoa.qr.model.QRPaymentData;
+import com.aveplus.uemoa.qr.service.UemoaQRService;
+import com.example.demoQrcode.config.UemoaConfig;
+import com.example.demoQrcode.dto.BatchJobStatus;
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.repository.CustomerRepository;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import com.example.demoQrcode.service.BatchJob;
+import com.example.demoQrcode.service.BatchJobRegistry;
+import com.example.demoQrcode.service.LiquidationQRBatchService;
+import com.example.demoQrcode.service.LiquidationQRService;
+import com.example.demoQrcode.service.QRImageRenderService;
+import com.example.demoQrcode.service.TransactionIdFilter;
+import com.example.demoQrcode.service.impl.LiquidationQRBatchServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test de la génération de QR codes en masse sur H2 : lignes écrites par JDBC, artefact déjà présent,
+ * liquidation invalide ou payée pendant la génération
+ */
+@DataJpaTest
+// Le job écrit depuis son propre thread : les données du test doivent être validées
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({LiquidationQRBatchServiceImpl.class, BatchJobRegistry.class, LiquidationQRBatchServiceTest.Config.class})
+@TestPropertySource(properties = {
+        "app.qr.batch.page-size=2",
+        "app.qr.batch.worker-threads=2"
+})
+public class LiquidationQRBatchServiceTest {
+
+    private static final String PAYLOAD = "000201010211QR-BATCH";
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+            return new TransactionTemplate(transactionManager);
+        }
+
+        @Bean
+        UemoaConfig uemoaConfig() {
+            return new UemoaConfig();
+        }
+
+        @Bean
+        LiquidationQRService liquidationQRService() {
+            return mock(LiquidationQRService.class);
+        }
+
+        @Bean
+        UemoaQRService uemoaQRService() {
+            return mock(UemoaQRService.class);
+        }
+
+        @Bean
+        QRImageRenderService qrImageRenderService() {
+            return mock(QRImageRenderService.class);
+        }
+
+        @Bean
+        TransactionIdFilter transactionIdFilter() {
+            return mock(TransactionIdFilter.class);
+        }
+    }
+
+    @Autowired
+    private LiquidationQRBatchService liquidationQRBatchService;
+
+    @Autowired
+    private BatchJobRegistry batchJobRegistry;
+
+    @Autowired
+    private LiquidationQRService liquidationQRService;
+
+    @Autowired
+    private UemoaQRService uemoaQRService;
+
+    @Autowired
+    private QRImageRenderService qrImageRenderService;
+
+    @Autowired
+    private TransactionIdFilter transactionIdFilter;
+
+    @Autowired
+    private LiquidationRepository liquidationRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        reset(liquidationQRService, uemoaQRService, qrImageRenderService, transactionIdFilter);
+        when(liquidationQRService.validateLiquidationForQR(any())).thenReturn(true);
+        when(liquidationQRService.mapLiquidationToQRPaymentData(any())).thenReturn(QRPaymentData.builder().build());
+        when(liquidationQRService.generateTransactionReference(any()))
+                .thenAnswer(invocation -> "LIQ-" + invocation.<Liquidation>getArgument(0).getId());
+        when(uemoaQRService.generateStaticQR(any())).thenReturn(PAYLOAD);
+        when(qrImageRenderService.renderPng(any())).thenReturn(new byte[]{1, 2, 3});
+
+        customer = customerRepository.save(new Customer("Doe", "John", "123 Main Street, Abidjan",
+                "IFU123456", "+22501234567", "john.doe@example.com"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("UPDATE liquidations SET qr_artifact_id = NULL");
+        jdbcTemplate.update("DELETE FROM liquidation_qr_artifacts");
+        liquidationRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void testGeneratesAndLinksArtifacts() {
+        Liquidation first = save();
+        Liquidation second = save();
+        Liquidation third = save();
+
+        BatchJobStatus status = runJob();
+
+        assertEquals("COMPLETED", status.getState());
+        assertEquals(3, status.getSucceeded());
+        assertEquals(0, status.getFailed());
+        for (Liquidation liquidation : new Liquidation[]{first, second, third}) {
+            Map<String, Object> row = jdbcTemplate.queryForMap(
+                    "SELECT qr_artifact_id, qr_type, transaction_id, version FROM liquidations WHERE id = ?", liquidation.getId());
+            assertEquals(liquidation.getId(), ((Number) row.get("qr_artifact_id")).longValue());
+            assertEquals("STATIC", row.get("qr_type"));
+            assertEquals("LIQ-" + liquidation.getId(), row.get("transaction_id"));
+            assertEquals(liquidation.getVersion() + 1, ((Number) row.get("version")).longValue());
+            assertEquals(PAYLOAD, artifactData(liquidation.getId()));
+            verify(transactionIdFilter).register("LIQ-" + liquidation.getId());
+        }
+    }
+
+    @Test
+    void testExistingArtifactIsNeverOverwritten() {
+        Liquidation generated = save();
+        Liquidation alreadyGenerated = save();
+        // Artefact inséré par un autre traitement, pas encore lié à sa liquidation
+        jdbcTemplate.update("INSERT INTO liquidation_qr_artifacts (id, qr_code_data) VALUES (?, ?)",
+                alreadyGenerated.getId(), "AUTRE-PAYLOAD");
+
+        BatchJobStatus status = runJob();
+
+        assertEquals(1, status.getSucceeded());
+        assertEquals(1, status.getFailed());
+        assertEquals(alreadyGenerated.getId(), status.getFailures().get(0).getLiquidationId());
+        assertEquals(PAYLOAD, artifactData(generated.getId()));
+        assertEquals("AUTRE-PAYLOAD", artifactData(alreadyGenerated.getId()));
+        assertNull(qrType(alreadyGenerated.getId()));
+        verify(transactionIdFilter, never()).register("LIQ-" + alreadyGenerated.getId());
+    }
+
+    @Test
+    void testInvalidAndPaidLiquidationsAreFailures() {
+        Liquidation valid = save();
+        Liquidation invalid = save();
+        Liquidation paidMeanwhile = save();
+        when(liquidationQRService.validateLiquidationForQR(argThatHasId(invalid.getId()))).thenReturn(false);
+        // Payée entre la lecture de la page et l'écriture
+        when(liquidationQRService.mapLiquidationToQRPaymentData(argThatHasId(paidMeanwhile.getId()))).thenAnswer(invocation -> {
+            jdbcTemplate.update("UPDATE liquidations SET status = 'PAID' WHERE id = ?", paidMeanwhile.getId());
+            return QRPaymentData.builder().build();
+        });
+
+        BatchJobStatus status = runJob();
+
+        assertEquals(1, status.getSucceeded());
+        assertEquals(2, status.getFailed());
+        Map<Long, String> failures = status.getFailures().stream()
+                .collect(Collectors.toMap(BatchJobStatus.RowFailure::getLiquidationId, BatchJobStatus.RowFailure::getError));
+        assertEquals("Liquidation invalide pour la génération de QR code", failures.get(invalid.getId()));
+        assertTrue(failures.containsKey(paidMeanwhile.getId()));
+
+        assertEquals("STATIC", qrType(valid.getId()));
+        assertNull(qrType(invalid.getId()));
+        assertNull(qrType(paidMeanwhile.getId()));
+        // L'artefact inséré pour la liquidation payée est retiré avec elle
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM liquidation_qr_artifacts WHERE id IN (?, ?)", Integer.class,
+                invalid.getId(), paidMeanwhile.getId()));
+        verify(transactionIdFilter).register("LIQ-" + valid.getId());
+        verify(transactionIdFilter, never()).register("LIQ-" + paidMeanwhile.getId());
+    }
+
+    private BatchJobStatus runJob() {
+        BatchJob job = batchJobRegistry.find(liquidationQRBatchService.startStaticQRGeneration().getJobId()).orElseThrow();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (job.isRunning()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Le job de génération ne s'est pas terminé");
+            Thread.onSpinWait();
+        }
+        return job.snapshot();
+    }
+
+    private Liquidation save() {
+        Liquidation l = new Liquidation();
+        l.setCustomer(customer);
+        l.setTaxType("TVA");
+        l.setAmount(new BigDecimal("50000.00"));
+        l.setIssueDate(LocalDate.now());
+        l.setDueDate(LocalDate.now().plusDays(30));
+        l.setStatus(LiquidationStatus.PENDING);
+        return liquidationRepository.save(l);
+    }
+
+    private String artifactData(Long id) {
+        return jdbcTemplate.queryForObject("SELECT qr_code_data FROM liquidation_qr_artifacts WHERE id = ?", String.class, id);
+    }
+
+    private String qrType(Long id) {
+        return jdbcTemplate.queryForObject("SELECT qr_type FROM liquidations WHERE id = ?", String.class, id);
+    }
+
+    private static Liquidation argThatHasId(Long id) {
+        return argThat(liquidation -> liquidation != null && id.equals(liquidation.getId()));
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.repository.CustomerRepository;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import com.example.demoQrcode.service.BatchJobRegistry;
+import com.example.demoQrcode.service.LiquidationQRDataService;
+import com.example.demoQrcode.service.QRImageRenderService;
+import com.example.demoQrcode.service.QRMetrics;
+import com.example.demoQrcode.service.QRRetentionService;
+import com.example.demoQrcode.service.TransactionIdFilter;
+import com.example.demoQrcode.service.impl.LiquidationQRDataServiceImpl;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test des listes paginées et des exports NDJSON des données QR
+ */
+@DataJpaTest
+@Import({LiquidationQRDataServiceImpl.class, BatchJobRegistry.class, QRMetrics.class, LiquidationQRDataPagingTest.Config.class})
+public class LiquidationQRDataPagingTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        ObjectMapper objectMapper() {
+            return JsonMapper.builder().findAndAddModules().build();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+            return new TransactionTemplate(transactionManager);
+        }
+
+        @Bean
+        QRRetentionService qrRetentionService() {
+            return mock(QRRetentionService.class);
+        }
+
+        @Bean
+        QRImageRenderService qrImageRenderService() {
+            return mock(QRImageRenderService.class);
+        }
+
+        @Bean
+        TransactionIdFilter transactionIdFilter() {
+            return mock(TransactionIdFilter.class);
+        }
+    }
+
+    @Autowired
+    private LiquidationQRDataService liquidationQRDataService;
+
+    @Autowired
+    private LiquidationRepository liquidationRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(new Customer("Doe", "John", "123 Main Street, Abidjan",
+                "IFU123456", "+22501234567", "john.doe@example.com"));
+        for (int i = 0; i < 5; i++) {
+            saveLiquidation(true);
+        }
+        saveLiquidation(false);
+    }
+
+    @Test
+    void testListsArePaged() {
+        Page<Liquidation> first = liquidationQRDataService.findLiquidationsWithQrCode(
+                PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "id")));
+        Page<Liquidation> last = liquidationQRDataService.findLiquidationsWithQrCode(
+                PageRequest.of(2, 2, Sort.by(Sort.Direction.DESC, "id")));
+
+        assertEquals(5, first.getTotalElements());
+        assertEquals(3, first.getTotalPages());
+        assertEquals(2, first.getNumberOfElements());
+        assertTrue(first.getContent().get(0).getId() > first.getContent().get(1).getId());
+        assertEquals(1, last.getNumberOfElements());
+        assertFalse(last.hasNext());
+    }
+
+    @Test
+    void testGeneratedThisWeekIsPaged() {
+        Page<Liquidation> page = liquidationQRDataService.findLiquidationsWithQrCodeGeneratedThisWeek(PageRequest.of(0, 3));
+
+        assertEquals(5, page.getTotalElements());
+        assertEquals(3, page.getNumberOfElements());
+    }
+
+    @Test
+    void testExportWritesOneJsonObjectPerLine() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long exported = liquidationQRDataService.exportAsNdjson(liquidationQRDataService::streamLiquidationsWithQrCode, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(5, exported);
+        assertEquals(5, lines.length);
+        for (String line : lines) {
+            JsonNode node = objectMapper.readTree(line);
+            assertEquals("STATIC", node.get("qrType").asText());
+            assertEquals("John", node.get("customer").get("firstName").asText());
+        }
+    }
+
+    @Test
+    void testExportOfEmptySelectionWritesNothing() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long exported = liquidationQRDataService.exportAsNdjson(() -> liquidationQRDataService.streamByQrType("DYNAMIC"), output);
+
+        assertEquals(0, exported);
+        assertEquals(0, output.size());
+    }
+
+    private void saveLiquidation(boolean withQrCode) {
+        Liquidation liquidation = new Liquidation();
+        liquidation.setCustomer(customer);
+        liquidation.setTaxType("TVA");
+        liquidation.setAmount(new BigDecimal("50000.00"));
+        liquidation.setIssueDate(LocalDate.now());
+        liquidation.setDueDate(LocalDate.now().plusDays(30));
+        liquidation.setStatus(LiquidationStatus.PENDING);
+        liquidation = liquidationRepository.save(liquidation);
+        if (withQrCode) {
+            liquidation.setQrCodeData("00020101021152045XXX" + liquidation.getId());
+            liquidation.setQrType("STATIC");
+            liquidation.setQrGeneratedAt(LocalDateTime.now());
+            liquidationRepository.save(liquidation);
+        }
+    }
+}
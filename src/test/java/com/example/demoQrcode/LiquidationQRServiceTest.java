@@ -171,7 +171,8 @@ class LiquidationQRServiceTest {
             assertNotNull(qrData, "Les données QR ne doivent pas être null");
             assertNotNull(qrData.get("qrCode"), "Le QR code doit être généré");
             assertEquals(testLiquidation.getId(), qrData.get("liquidationId"), "L'ID de liquidation doit correspondre");
-            assertEquals(transactionReference, qrData.get("transactionReference"), "La référence de transaction doit correspondre");
+            assertTrue(((String) qrData.get("transactionReference")).startsWith(transactionReference + "-"),
+                    "La référence de transaction doit reprendre celle fournie");
             assertEquals("DYNAMIC", qrData.get("type"), "Le type doit être DYNAMIC");
             
             System.out.println("✅ Génération de QR code dynamique réussie:");
@@ -0,0 +1,102 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.repository.CustomerRepository;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import com.example.demoQrcode.repository.projection.QRStatisticsProjection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test des agrégats QR calculés côté base de données
+ */
+@DataJpaTest
+public class LiquidationQRStatisticsRepositoryTest {
+
+    @Autowired
+    private LiquidationRepository liquidationRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(new Customer("Doe", "John", "123 Main Street, Abidjan",
+                "IFU123456", "+22501234567", "john.doe@example.com"));
+    }
+
+    @Test
+    void testComputeQrStatisticsMatchesIndividualAggregates() {
+        LocalDateTime now = LocalDateTime.now();
+        save("50000.00", "STATIC", now, null);
+        save("30000.00", "PENALTY", now.minusMonths(2), new BigDecimal("1500.00"));
+        save("20000.00", null, null, null);
+
+        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
+        QRStatisticsProjection stats = liquidationRepository.computeQrStatistics(
+                startOfDay, startOfDay.plusDays(1),
+                startOfDay, startOfDay.plusDays(1),
+                startOfDay, startOfDay.plusDays(1));
+
+        assertEquals(2L, stats.getWithQrCode());
+        assertEquals(1L, stats.getWithoutQrCode());
+        assertEquals(1L, stats.getGeneratedToday());
+        assertEquals(1L, stats.getWithPenalties());
+        assertEquals(1L, stats.getStaticCount());
+        assertEquals(0L, stats.getDynamicCount());
+        assertEquals(1L, stats.getPenaltyCount());
+        assertEquals(0, new BigDecimal("81500.00").compareTo(stats.getTotalAmountWithQrCode()));
+        assertEquals(0, new BigDecimal("1500.00").compareTo(stats.getTotalPenaltyAmount()));
+
+        assertEquals(stats.getWithQrCode(), liquidationRepository.countLiquidationsWithQrCode());
+        assertEquals(0, stats.getTotalAmountWithQrCode().compareTo(liquidationRepository.sumTotalAmountOfLiquidationsWithQrCode()));
+        assertEquals(0, stats.getTotalPenaltyAmount().compareTo(liquidationRepository.sumPenaltyAmount()));
+    }
+
+    @Test
+    void testComputeQrStatisticsOnEmptyTable() {
+        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
+        QRStatisticsProjection stats = liquidationRepository.computeQrStatistics(
+                startOfDay, startOfDay.plusDays(1),
+                startOfDay, startOfDay.plusDays(1),
+                startOfDay, startOfDay.plusDays(1));
+
+        assertEquals(0L, stats.getWithQrCode());
+        assertEquals(0, BigDecimal.ZERO.compareTo(stats.getTotalAmountWithQrCode()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(stats.getTotalPenaltyAmount()));
+    }
+
+    private void save(String amount, String qrType, LocalDateTime generatedAt, BigDecimal penalty) {
+        Liquidation liquidation = new Liquidation();
+        liquidation.setCustomer(customer);
+        liquidation.setTaxType("TVA");
+        liquidation.setAmount(new BigDecimal(amount));
+        liquidation.setIssueDate(LocalDate.now());
+        liquidation.setDueDate(LocalDate.now().plusDays(30));
+        liquidation.setStatus(LiquidationStatus.PENDING);
+        // Le QR code ne peut être rattaché qu'à une liquidation déjà enregistrée
+        liquidation = liquidationRepository.save(liquidation);
+        if (qrType != null) {
+            liquidation.setQrCodeData("00020101021138570010A000000727");
+            liquidation.setQrType(qrType);
+            liquidation.setQrGeneratedAt(generatedAt);
+            liquidation.setMerchantChannel("UEMOA");
+            liquidation.setTransactionId("LIQ-" + qrType + "-" + amount);
+            liquidation.setPenaltyAmount(penalty);
+            liquidation.updateTotalAmount();
+        }
+        liquidationRepository.save(liquidation);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.dto.BatchJobStatus;
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.repository.CustomerRepository;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import com.example.demoQrcode.service.BatchJobRegistry;
+import com.example.demoQrcode.service.OverdueLiquidationService;
+import com.example.demoQrcode.service.impl.OverdueLiquidationServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test du traitement des retards : statut OVERDUE et pénalités enregistrés par lots
+ */
+@DataJpaTest
+@Import({OverdueLiquidationServiceImpl.class, BatchJobRegistry.class, OverdueLiquidationServiceTest.Config.class})
+@TestPropertySource(properties = {
+        "app.liquidation.overdue.chunk-size=2",
+        "app.liquidation.penalty.daily-rate=0.001"
+})
+public class OverdueLiquidationServiceTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+            return new TransactionTemplate(transactionManager);
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+    }
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 17);
+
+    @Autowired
+    private OverdueLiquidationService overdueLiquidationService;
+
+    @Autowired
+    private LiquidationRepository liquidationRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(new Customer("Doe", "John", "123 Main Street, Abidjan",
+                "IFU123456", "+22501234567", "john.doe@example.com"));
+    }
+
+    @Test
+    void testOverdueLiquidationsGetStatusAndPenalties() {
+        Liquidation tenDaysLate = save(TODAY.minusDays(10), LiquidationStatus.PENDING);
+        Liquidation alreadyOverdue = save(TODAY.minusDays(30), LiquidationStatus.OVERDUE);
+        Liquidation dueToday = save(TODAY, LiquidationStatus.PENDING);
+        Liquidation paid = save(TODAY.minusDays(10), LiquidationStatus.PAID);
+        for (int i = 0; i < 3; i++) {
+            save(TODAY.minusDays(1), LiquidationStatus.PENDING);
+        }
+
+        // Registre partagé par les tests du contexte : on mesure l'écart
+        double updatedBefore = meterRegistry.get("liquidation.overdue.job.updated").counter().count();
+        long runsBefore = meterRegistry.get("liquidation.overdue.job.duration").timer().count();
+
+        BatchJobStatus status = overdueLiquidationService.recalculateOverdueLiquidations(TODAY);
+        entityManager.clear();
+
+        assertEquals(5, status.getSucceeded());
+        assertEquals(5, status.getTotal());
+
+        Liquidation late = liquidationRepository.findById(tenDaysLate.getId()).orElseThrow();
+        assertEquals(LiquidationStatus.OVERDUE, late.getStatus());
+        // 100000 x 0.001 x 10 jours
+        assertEquals(0, new BigDecimal("1000.00").compareTo(late.getPenaltyAmount()));
+        assertEquals(0, new BigDecimal("101000.00").compareTo(late.getTotalAmount()));
+        assertEquals(TODAY, late.getPenaltyCalculatedOn());
+
+        Liquidation older = liquidationRepository.findById(alreadyOverdue.getId()).orElseThrow();
+        assertEquals(0, new BigDecimal("3000.00").compareTo(older.getPenaltyAmount()));
+
+        Liquidation notYetDue = liquidationRepository.findById(dueToday.getId()).orElseThrow();
+        assertEquals(LiquidationStatus.PENDING, notYetDue.getStatus());
+        assertNull(notYetDue.getPenaltyAmount());
+
+        Liquidation settled = liquidationRepository.findById(paid.getId()).orElseThrow();
+        assertEquals(LiquidationStatus.PAID, settled.getStatus());
+        assertNull(settled.getPenaltyAmount());
+
+        assertEquals(5.0, meterRegistry.get("liquidation.overdue.job.updated").counter().count() - updatedBefore);
+        assertEquals(1, meterRegistry.get("liquidation.overdue.job.duration").timer().count() - runsBefore);
+    }
+
+    @Test
+    void testRunIsIncrementalWithinADayAndRecalculatesTheNextDay() {
+        Liquidation late = save(TODAY.minusDays(10), LiquidationStatus.PENDING);
+
+        assertEquals(1, overdueLiquidationService.recalculateOverdueLiquidations(TODAY).getSucceeded());
+        assertEquals(0, overdueLiquidationService.recalculateOverdueLiquidations(TODAY).getSucceeded());
+        assertEquals(1, overdueLiquidationService.recalculateOverdueLiquidations(TODAY.plusDays(1)).getSucceeded());
+        entityManager.clear();
+
+        Liquidation reloaded = liquidationRepository.findById(late.getId()).orElseThrow();
+        assertEquals(0, new BigDecimal("1100.00").compareTo(reloaded.getPenaltyAmount()));
+        assertEquals(TODAY.plusDays(1), reloaded.getPenaltyCalculatedOn());
+    }
+
+    private Liquidation save(LocalDate dueDate, LiquidationStatus status) {
+        Liquidation liquidation = new Liquidation();
+        liquidation.setCustomer(customer);
+        liquidation.setTaxType("TVA");
+        liquidation.setAmount(new BigDecimal("100000.00"));
+        liquidation.setIssueDate(dueDate.minusDays(30));
+        liquidation.setDueDate(dueDate);
+        liquidation.setStatus(status);
+        return liquidationRepository.saveAndFlush(liquidation);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.config.UemoaConfig;
+import com.example.demoQrcode.repository.LiquidationQRArtifactRepository;
+import com.example.demoQrcode.service.QRImageRenderService;
+import com.example.demoQrcode.service.impl.QRImageRenderServiceImpl;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.RGBLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test du rendu des QR codes en PNG et SVG
+ */
+public class QRImageRenderServiceTest {
+
+    private static final String PAYLOAD = "00020101021226580014com.aveplus.uemoa0112int.bceao.pi52045XXX5303360540550005802CI5913LIQUIDATION APP6007Abidjan6304";
+
+    private UemoaConfig uemoaConfig;
+    private QRImageRenderService renderService;
+
+    @BeforeEach
+    void setUp() {
+        uemoaConfig = new UemoaConfig();
+        renderService = new QRImageRenderServiceImpl(uemoaConfig, mock(LiquidationQRArtifactRepository.class), mock(TransactionTemplate.class));
+        ReflectionTestUtils.setField(renderService, "cacheMaxBytes", 1024L * 1024L);
+        ReflectionTestUtils.setField(renderService, "workerThreads", 1);
+        ReflectionTestUtils.setField(renderService, "queueCapacity", 10);
+        ReflectionTestUtils.invokeMethod(renderService, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(renderService, "shutdown");
+    }
+
+    @Test
+    void testPngHasConfiguredSizeAndDecodesToPayload() throws Exception {
+        byte[] png = renderService.renderPng(PAYLOAD);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertEquals(uemoaConfig.getQr().getSize(), image.getWidth());
+        assertEquals(uemoaConfig.getQr().getSize(), image.getHeight());
+
+        int[] pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new RGBLuminanceSource(image.getWidth(), image.getHeight(), pixels)));
+        assertEquals(PAYLOAD, new QRCodeReader().decode(bitmap).getText());
+    }
+
+    @Test
+    void testIdenticalPayloadIsRenderedOnce() {
+        byte[] first = renderService.renderPng(PAYLOAD);
+        byte[] second = renderService.renderPng(new String(PAYLOAD.toCharArray()));
+
+        assertSame(first, second);
+        assertNotSame(first, renderService.renderPng(PAYLOAD + "00"));
+    }
+
+    @Test
+    void testSvgRendering() {
+        String svg = new String(renderService.render(PAYLOAD, QRImageRenderService.FORMAT_SVG), StandardCharsets.UTF_8);
+
+        assertTrue(svg.startsWith("<svg"));
+        assertTrue(svg.contains("width=\"300\""));
+        assertTrue(svg.endsWith("</svg>"));
+    }
+
+    @Test
+    void testUnsupportedFormatIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> renderService.render(PAYLOAD, "GIF"));
+        assertThrows(IllegalArgumentException.class, () -> renderService.renderPng(""));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.service.QRMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test des métriques de génération et de consultation des QR codes
+ */
+public class QRMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private QRMetrics qrMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        qrMetrics = new QRMetrics(meterRegistry);
+    }
+
+    @Test
+    void testGenerationIsTimedByTypeAndOutcome() {
+        String qrCode = qrMetrics.timeGeneration(QRMetrics.SOURCE_LIQUIDATION, "STATIC", () -> "000201");
+
+        assertEquals("000201", qrCode);
+        Timer timer = meterRegistry.get(QRMetrics.GENERATION)
+                .tag("source", "liquidation").tag("type", "STATIC").tag("outcome", "success").timer();
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    void testTimersPublishPercentileHistogramsToPrometheus() {
+        PrometheusMeterRegistry prometheusRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        new QRMetrics(prometheusRegistry).timeGeneration(QRMetrics.SOURCE_LIQUIDATION, "PENALTY", () -> "000201");
+
+        String scrape = prometheusRegistry.scrape();
+
+        assertTrue(scrape.contains("qr_generation_seconds_bucket{"));
+        assertTrue(scrape.contains("type=\"PENALTY\""));
+    }
+
+    @Test
+    void testValidationErrorsAreRejectedAndCountedByRootCause() {
+        RuntimeException error = new RuntimeException("Erreur lors de la génération du QR code",
+                new IllegalArgumentException("Liquidation invalide"));
+
+        assertThrows(RuntimeException.class, () -> qrMetrics.timeGeneration(QRMetrics.SOURCE_LIQUIDATION, "DYNAMIC", () -> {
+            throw error;
+        }));
+
+        assertEquals(1, meterRegistry.get(QRMetrics.GENERATION).tag("type", "DYNAMIC").tag("outcome", "rejected").timer().count());
+        assertEquals(1.0, meterRegistry.get(QRMetrics.GENERATION_FAILURES)
+                .tag("type", "DYNAMIC").tag("exception", "IllegalArgumentException").counter().count());
+    }
+
+    @Test
+    void testFailuresAreErrors() {
+        assertThrows(IllegalStateException.class, () -> qrMetrics.timeGeneration(QRMetrics.SOURCE_UEMOA, "STATIC", () -> {
+            throw new IllegalStateException("Service UEMOA indisponible");
+        }));
+
+        assertEquals(1, meterRegistry.get(QRMetrics.GENERATION).tag("source", "uemoa").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void testPhasesAreTimedSeparately() {
+        qrMetrics.phase(QRMetrics.SOURCE_LIQUIDATION, "P2P", QRMetrics.PHASE_ENCODE, () -> "000201");
+        qrMetrics.phase(QRMetrics.SOURCE_LIQUIDATION, "P2P", QRMetrics.PHASE_PERSIST, () -> { });
+
+        assertEquals(1, meterRegistry.get(QRMetrics.GENERATION_PHASE).tag("type", "P2P").tag("phase", "encode").timer().count());
+        assertEquals(1, meterRegistry.get(QRMetrics.GENERATION_PHASE).tag("type", "P2P").tag("phase", "persist").timer().count());
+    }
+
+    @Test
+    void testUnknownQrTypesShareOneTag() {
+        qrMetrics.timeDataOperation("list", "whatever", () -> 1);
+        qrMetrics.timeDataOperation("list", "anything-else", () -> 1);
+        qrMetrics.timeDataOperation("list", "PENALTY", () -> 1);
+
+        assertEquals(2, meterRegistry.get(QRMetrics.DATA_OPERATION).tag("type", "OTHER").timer().count());
+        assertEquals(1, meterRegistry.get(QRMetrics.DATA_OPERATION).tag("type", "PENALTY").timer().count());
+    }
+
+    @Test
+    void testExportRecordsRows() {
+        qrMetrics.recordExport(qrMetrics.start(), QRMetrics.OUTCOME_SUCCESS, 42);
+
+        assertEquals(1, meterRegistry.get(QRMetrics.DATA_OPERATION).tag("operation", "export").timer().count());
+        assertEquals(42.0, meterRegistry.get(QRMetrics.EXPORTED_ROWS).counter().count());
+    }
+}
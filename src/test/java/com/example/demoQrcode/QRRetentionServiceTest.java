@@ -0,0 +1,110 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.dto.BatchJobStatus;
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.repository.CustomerRepository;
+import com.example.demoQrcode.repository.LiquidationQRArtifactRepository;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import com.example.demoQrcode.service.BatchJobRegistry;
+import com.example.demoQrcode.service.QRRetentionService;
+import com.example.demoQrcode.service.impl.QRRetentionServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de la purge des données QR par lots
+ */
+@DataJpaTest
+@Import({QRRetentionServiceImpl.class, BatchJobRegistry.class})
+@TestPropertySource(properties = "app.qr.retention.chunk-size=2")
+public class QRRetentionServiceTest {
+
+    @Autowired
+    private QRRetentionService qrRetentionService;
+
+    @Autowired
+    private LiquidationRepository liquidationRepository;
+
+    @Autowired
+    private LiquidationQRArtifactRepository liquidationQRArtifactRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private Customer customer;
+    private Customer otherCustomer;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(new Customer("Doe", "John", "123 Main Street, Abidjan",
+                "IFU123456", "+22501234567", "john.doe@example.com"));
+        otherCustomer = customerRepository.save(new Customer("Smith", "Jane", "45 Avenue, Dakar",
+                "IFU654321", "+22507654321", "jane.smith@example.com"));
+    }
+
+    @Test
+    void testPurgeOlderThanClearsOnlyExpiredRowsAcrossChunks() {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 5; i++) {
+            save(customer, now.minusDays(400 + i));
+        }
+        Liquidation recent = save(customer, now.minusDays(10));
+
+        BatchJobStatus status = qrRetentionService.purgeQrCodeDataOlderThan(now.minusDays(365));
+
+        assertEquals("COMPLETED", status.getState());
+        assertEquals(5, status.getSucceeded());
+        assertEquals(1, liquidationRepository.countLiquidationsWithQrCode());
+        assertTrue(liquidationRepository.findById(recent.getId()).orElseThrow().hasQrCode());
+        assertEquals(1, liquidationQRArtifactRepository.count());
+
+        // Une seconde exécution ne trouve plus rien à purger
+        assertEquals(0, qrRetentionService.purgeQrCodeDataOlderThan(now.minusDays(365)).getSucceeded());
+    }
+
+    @Test
+    void testPurgeByCustomerLeavesOtherCustomersUntouched() {
+        LocalDateTime now = LocalDateTime.now();
+        save(customer, now);
+        save(customer, now.minusDays(1));
+        save(customer, now.minusDays(2));
+        Liquidation other = save(otherCustomer, now);
+
+        BatchJobStatus status = qrRetentionService.purgeQrCodeDataByCustomerId(customer.getId());
+
+        assertEquals(3, status.getSucceeded());
+        assertTrue(liquidationRepository.findLiquidationsWithQrCodeByCustomerId(customer.getId()).isEmpty());
+        assertTrue(liquidationRepository.findById(other.getId()).orElseThrow().hasQrCode());
+    }
+
+    private Liquidation save(Customer owner, LocalDateTime generatedAt) {
+        Liquidation liquidation = new Liquidation();
+        liquidation.setCustomer(owner);
+        liquidation.setTaxType("TVA");
+        liquidation.setAmount(new BigDecimal("50000.00"));
+        liquidation.setIssueDate(LocalDate.now());
+        liquidation.setDueDate(LocalDate.now().plusDays(30));
+        liquidation.setStatus(LiquidationStatus.PENDING);
+        // Le QR code ne peut être rattaché qu'à une liquidation déjà enregistrée
+        liquidation = liquidationRepository.save(liquidation);
+        liquidation.setQrCodeData("00020101021138570010A000000727");
+        liquidation.setQrType("STATIC");
+        liquidation.setQrGeneratedAt(generatedAt);
+        liquidation.setMerchantChannel("UEMOA");
+        liquidation.setTransactionId("LIQ-" + owner.getId() + "-" + generatedAt);
+        liquidation.updateTotalAmount();
+        return liquidationRepository.save(liquidation);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.repository.CustomerRepository;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import com.example.demoQrcode.service.SearchService;
+import com.example.demoQrcode.service.impl.SearchServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de la recherche clients/liquidations (repli LIKE sur H2)
+ */
+@DataJpaTest
+@Import(SearchServiceImpl.class)
+public class SearchServiceTest {
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private LiquidationRepository liquidationRepository;
+
+    private Customer john;
+    private Customer jane;
+
+    @BeforeEach
+    void setUp() {
+        john = customerRepository.save(new Customer("Doe", "John", "123 Main Street, Abidjan",
+                "IFU123456", "+22501234567", "john.doe@example.com"));
+        jane = customerRepository.save(new Customer("Smith", "Jane", "45 Avenue, Dakar",
+                "IFU654321", "+22507654321", "jane.smith@example.com"));
+        saveLiquidation(john, "TVA", LiquidationStatus.PENDING);
+        saveLiquidation(jane, "Taxe foncière", LiquidationStatus.PAID);
+    }
+
+    @Test
+    void testH2UsesLikeFallback() {
+        assertFalse(searchService.isRankedSearchAvailable());
+    }
+
+    @Test
+    void testCustomerSearchCoversAllIndexedFields() {
+        assertEquals(john.getId(), single(searchService.searchCustomers("DOE", PageRequest.of(0, 10))).getId());
+        assertEquals(jane.getId(), single(searchService.searchCustomers("dakar", PageRequest.of(0, 10))).getId());
+        assertEquals(jane.getId(), single(searchService.searchCustomers("654321", PageRequest.of(0, 10))).getId());
+        assertEquals(john.getId(), single(searchService.searchCustomers("john.doe@", PageRequest.of(0, 10))).getId());
+        assertEquals(2, searchService.searchCustomers("  ", PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    void testLiquidationSearchMatchesTaxTypeStatusAndCustomer() {
+        assertEquals("TVA", single(searchService.searchLiquidations("tva", PageRequest.of(0, 10))).getTaxType());
+        assertEquals(LiquidationStatus.PAID, single(searchService.searchLiquidations("paid", PageRequest.of(0, 10))).getStatus());
+        assertEquals(jane.getId(), single(searchService.searchLiquidations("smith", PageRequest.of(0, 10))).getCustomer().getId());
+        assertEquals(0, searchService.searchLiquidations("inconnu", PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    private static <T> T single(Page<T> page) {
+        assertEquals(1, page.getTotalElements());
+        return page.getContent().get(0);
+    }
+
+    private void saveLiquidation(Customer owner, String taxType, LiquidationStatus status) {
+        Liquidation liquidation = new Liquidation();
+        liquidation.setCustomer(owner);
+        liquidation.setTaxType(taxType);
+        liquidation.setAmount(new BigDecimal("50000.00"));
+        liquidation.setIssueDate(LocalDate.now());
+        liquidation.setDueDate(LocalDate.now().plusDays(30));
+        liquidation.setStatus(status);
+        liquidationRepository.save(liquidation);
+    }
+}
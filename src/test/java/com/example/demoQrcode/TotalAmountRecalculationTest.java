@@ -0,0 +1,127 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.dto.BatchJobStatus;
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.repository.CustomerRepository;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import com.example.demoQrcode.service.BatchJob;
+import com.example.demoQrcode.service.BatchJobRegistry;
+import com.example.demoQrcode.service.LiquidationQRDataService;
+import com.example.demoQrcode.service.QRMetrics;
+import com.example.demoQrcode.service.impl.LiquidationQRDataServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test du recalcul en arrière-plan des montants totaux, par plages d'identifiants.
+ * Le traitement tourne sur son propre thread : les données de test sont validées en base.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({LiquidationQRDataServiceImpl.class, BatchJobRegistry.class, QRMetrics.class, LiquidationQRDataPagingTest.Config.class})
+@TestPropertySource(properties = "app.qr.totals.chunk-size=3")
+public class TotalAmountRecalculationTest {
+
+    @Autowired
+    private LiquidationQRDataService liquidationQRDataService;
+
+    @Autowired
+    private BatchJobRegistry batchJobRegistry;
+
+    @Autowired
+    private LiquidationRepository liquidationRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(new Customer("Doe", "John", "123 Main Street, Abidjan",
+                "IFU123456", "+22501234567", "john.doe@example.com"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        liquidationRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void testTotalsAreRecalculatedInTheDatabaseByIdRanges() throws Exception {
+        List<Long> withPenalty = new ArrayList<>();
+        List<Long> withoutPenalty = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            withPenalty.add(save(new BigDecimal("1000.00"), null).getId());
+            withoutPenalty.add(save(null, null).getId());
+        }
+        Long upToDate = save(new BigDecimal("500.00"), new BigDecimal("50500.00")).getId();
+
+        BatchJobStatus started = liquidationQRDataService.updateAllTotalAmounts();
+        BatchJobStatus finished = awaitCompletion(started.getJobId());
+
+        assertEquals(8, started.getTotal());
+        assertEquals(BatchJob.State.COMPLETED.name(), finished.getState());
+        assertEquals(8, finished.getSucceeded());
+        withPenalty.forEach(id -> assertTotal(id, "51000.00"));
+        withoutPenalty.forEach(id -> assertTotal(id, "50000.00"));
+        assertTotal(upToDate, "50500.00");
+    }
+
+    @Test
+    void testSecondRunFindsNothingToUpdate() throws Exception {
+        save(new BigDecimal("1000.00"), null);
+        awaitCompletion(liquidationQRDataService.updateAllTotalAmounts().getJobId());
+
+        BatchJobStatus second = awaitCompletion(liquidationQRDataService.updateAllTotalAmounts().getJobId());
+
+        assertEquals(0, second.getSucceeded());
+    }
+
+    private BatchJobStatus awaitCompletion(String jobId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            BatchJobStatus status = batchJobRegistry.find(jobId).orElseThrow().snapshot();
+            if (!BatchJob.State.RUNNING.name().equals(status.getState())) {
+                return status;
+            }
+            Thread.sleep(50);
+        }
+        fail("Le recalcul des montants totaux ne s'est pas terminé");
+        return null;
+    }
+
+    private void assertTotal(Long id, String expected) {
+        BigDecimal total = liquidationRepository.findById(id).orElseThrow().getTotalAmount();
+        assertEquals(0, new BigDecimal(expected).compareTo(total), "liquidation " + id);
+    }
+
+    private Liquidation save(BigDecimal penaltyAmount, BigDecimal totalAmount) {
+        Liquidation liquidation = new Liquidation();
+        liquidation.setCustomer(customer);
+        liquidation.setTaxType("TVA");
+        liquidation.setAmount(new BigDecimal("50000.00"));
+        liquidation.setIssueDate(LocalDate.now());
+        liquidation.setDueDate(LocalDate.now().plusDays(30));
+        liquidation.setStatus(LiquidationStatus.PENDING);
+        liquidation.setPenaltyAmount(penaltyAmount);
+        liquidation.setTotalAmount(totalAmount);
+        return liquidationRepository.save(liquidation);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.entity.Customer;
+import com.example.demoQrcode.entity.Liquidation;
+import com.example.demoQrcode.entity.LiquidationStatus;
+import com.example.demoQrcode.repository.CustomerRepository;
+import com.example.demoQrcode.repository.LiquidationRepository;
+import com.example.demoQrcode.service.TransactionIdFilter;
+import com.example.demoQrcode.service.TransactionReferenceGenerator;
+import com.example.demoQrcode.service.impl.LiquidationQRDataServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de l'unicité des transaction IDs et du filtre de Bloom qui évite les recherches inutiles
+ */
+@DataJpaTest
+@Import({TransactionIdFilter.class, TransactionIdFilterTest.Config.class})
+@TestPropertySource(properties = "app.qr.transaction-filter.expected-insertions=10000")
+public class TransactionIdFilterTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+            return new TransactionTemplate(transactionManager);
+        }
+    }
+
+    @Autowired
+    private TransactionIdFilter transactionIdFilter;
+
+    @Autowired
+    private LiquidationRepository liquidationRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(new Customer("Doe", "John", "123 Main Street, Abidjan",
+                "IFU123456", "+22501234567", "john.doe@example.com"));
+    }
+
+    @Test
+    void testLookupsGoToDatabaseUntilWarmedUp() {
+        TransactionIdFilter coldFilter = new TransactionIdFilter(liquidationRepository, transactionTemplate, new SimpleMeterRegistry());
+
+        assertTrue(coldFilter.mightExist("LIQ-999-20240101000000-forged"));
+    }
+
+    @Test
+    void testWarmUpLoadsExistingReferences() {
+        saveWithTransactionId("LIQ-1-20240101120000-abcd1234");
+        saveWithTransactionId("LIQ-2-20240101120000-efgh5678");
+
+        transactionIdFilter.warmUp();
+
+        assertTrue(transactionIdFilter.mightExist("LIQ-1-20240101120000-abcd1234"));
+        assertTrue(transactionIdFilter.mightExist("LIQ-2-20240101120000-efgh5678"));
+        assertFalse(transactionIdFilter.mightExist("LIQ-3-20240101120000-forged00"));
+        assertTrue(liquidationRepository.existsByTransactionId("LIQ-1-20240101120000-abcd1234"));
+    }
+
+    @Test
+    void testRegisteredReferencesAreFoundAndUnknownOnesMostlyRejected() {
+        transactionIdFilter.warmUp();
+        for (int i = 0; i < 10_000; i++) {
+            transactionIdFilter.register("LIQ-" + i + "-20240101120000-known");
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(transactionIdFilter.mightExist("LIQ-" + i + "-20240101120000-known"));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (transactionIdFilter.mightExist("LIQ-" + i + "-20240101120000-unknown")) {
+                falsePositives++;
+            }
+        }
+        // 1% visé (dimensionné pour 20 000 références après la marge x2)
+        assertTrue(falsePositives < 200, "Trop de faux positifs: " + falsePositives);
+    }
+
+    @Test
+    void testReferenceFromAnotherInstanceIsFoundBeforeRefresh() {
+        transactionIdFilter.warmUp();
+        // Référence générée et enregistrée par une autre instance : absente du filtre de celle-ci
+        String reference = new TransactionReferenceGenerator(42).next("LIQ-7");
+        saveWithTransactionId(reference);
+        LiquidationQRDataServiceImpl dataService = new LiquidationQRDataServiceImpl(liquidationRepository, null, null, null,
+                transactionIdFilter, null, null, null, null);
+
+        assertTrue(dataService.findByTransactionId(reference).isPresent());
+        assertTrue(dataService.transactionIdExists(reference));
+        // Les références anciennes ou forgées restent écartées par le filtre
+        assertFalse(transactionIdFilter.mightExist(new TransactionReferenceGenerator(42, () -> 1_700_000_000_000L).next("LIQ-7")));
+        assertFalse(transactionIdFilter.mightExist("LIQ-3-20240101120000-forged00"));
+    }
+
+    @Test
+    void testClientReferenceFromAnotherInstanceIsFoundBeforeRefresh() {
+        transactionIdFilter.warmUp();
+        // Référence client enregistrée par une autre instance : horodatée à l'enregistrement
+        String reference = new TransactionReferenceGenerator(42).adopt("CLIENT-REF-1");
+        saveWithTransactionId(reference);
+
+        assertTrue(transactionIdFilter.mightExist(reference));
+        assertTrue(liquidationRepository.existsByTransactionId(reference));
+    }
+
+    @Test
+    void testReferenceStampedInTheFutureIsRejected() {
+        transactionIdFilter.warmUp();
+
+        assertFalse(transactionIdFilter.mightExist("X-9000000000000000000"));
+        long inOneHour = System.currentTimeMillis() + 3_600_000L;
+        assertFalse(transactionIdFilter.mightExist(new TransactionReferenceGenerator(42, () -> inOneHour).next("LIQ-7")));
+    }
+
+    @Test
+    void testTransactionIdIsUnique() {
+        saveWithTransactionId("LIQ-1-20240101120000-abcd1234");
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> saveWithTransactionId("LIQ-1-20240101120000-abcd1234"));
+    }
+
+    private void saveWithTransactionId(String transactionId) {
+        Liquidation liquidation = new Liquidation();
+        liquidation.setCustomer(customer);
+        liquidation.setTaxType("TVA");
+        liquidation.setAmount(new BigDecimal("50000.00"));
+        liquidation.setIssueDate(LocalDate.now());
+        liquidation.setDueDate(LocalDate.now().plusDays(30));
+        liquidation.setStatus(LiquidationStatus.PENDING);
+        liquidation.setTransactionId(transactionId);
+        liquidation.setQrGeneratedAt(LocalDateTime.now());
+        liquidationRepository.saveAndFlush(liquidation);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.service.TransactionReferenceGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test du générateur de références de transaction (unicité, ordre, numéro d'instance)
+ */
+public class TransactionReferenceGeneratorTest {
+
+    private static final long NOW = 1_760_000_000_000L;
+
+    @Test
+    void testConcurrentReferencesAreUniqueAndIncreasingPerThread() throws Exception {
+        TransactionReferenceGenerator generator = new TransactionReferenceGenerator(7);
+        int threads = 8;
+        int perThread = 50_000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> increasing = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                increasing.add(executor.submit(() -> {
+                    start.await();
+                    long previous = Long.MIN_VALUE;
+                    boolean ordered = true;
+                    for (int i = 0; i < perThread; i++) {
+                        long id = generator.nextId();
+                        ordered &= id > previous;
+                        previous = id;
+                        ids.add(id);
+                    }
+                    return ordered;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : increasing) {
+                assertTrue(result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * perThread, ids.size());
+    }
+
+    @Test
+    void testSequenceOverflowInOneMillisecondStaysUnique() {
+        TransactionReferenceGenerator generator = new TransactionReferenceGenerator(1, () -> NOW);
+
+        long previous = generator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void testClockGoingBackwardsKeepsOrder() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TransactionReferenceGenerator generator = new TransactionReferenceGenerator(1, clock::get);
+
+        long before = generator.nextId();
+        clock.set(NOW - 5_000);
+
+        assertTrue(generator.nextId() > before);
+    }
+
+    @Test
+    void testInstancesNeverShareAnId() {
+        TransactionReferenceGenerator first = new TransactionReferenceGenerator(1, () -> NOW);
+        TransactionReferenceGenerator second = new TransactionReferenceGenerator(2, () -> NOW);
+
+        assertNotEquals(first.nextId(), second.nextId());
+    }
+
+    @Test
+    void testReferenceFormat() {
+        TransactionReferenceGenerator generator = new TransactionReferenceGenerator(0);
+
+        assertTrue(generator.next("LIQ-42").matches("LIQ-42-\\d{18,19}"));
+        assertTrue(generator.next("PENALTY-42").length() <= 128);
+    }
+
+    @Test
+    void testGenerationTimeIsReadBackFromReference() {
+        TransactionReferenceGenerator generator = new TransactionReferenceGenerator(3, () -> NOW);
+
+        assertEquals(NOW, TransactionReferenceGenerator.generatedAtMillis(generator.next("P2P-42-+22501234567")));
+        assertEquals(-1, TransactionReferenceGenerator.generatedAtMillis("LIQ-1-20240101120000-abcd1234"));
+        assertEquals(-1, TransactionReferenceGenerator.generatedAtMillis("LIQ-"));
+        assertEquals(-1, TransactionReferenceGenerator.generatedAtMillis(null));
+    }
+
+    @Test
+    void testClientReferencesAreStampedWhenAdopted() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TransactionReferenceGenerator generator = new TransactionReferenceGenerator(3, clock::get);
+        String fresh = generator.next("LIQ-42");
+
+        // Référence que le service vient de générer : conservée
+        assertEquals(fresh, generator.adopt(fresh));
+        // Référence libre, ancienne ou horodatée dans le futur : nouvel identifiant en suffixe
+        for (String reference : new String[]{"REF-1", "X-9000000000000000000", fresh}) {
+            clock.addAndGet(TransactionReferenceGenerator.CLOCK_TOLERANCE.toMillis() + 1);
+            String adopted = generator.adopt(reference);
+            assertTrue(adopted.startsWith(reference + "-"));
+            assertEquals(clock.get(), TransactionReferenceGenerator.generatedAtMillis(adopted));
+        }
+    }
+
+    @Test
+    void testInvalidClientReferencesAreRejected() {
+        TransactionReferenceGenerator generator = new TransactionReferenceGenerator(3, () -> NOW);
+
+        assertThrows(IllegalArgumentException.class, () -> generator.adopt(null));
+        assertThrows(IllegalArgumentException.class, () -> generator.adopt(""));
+        assertThrows(IllegalArgumentException.class, () -> generator.adopt("REF 1"));
+        assertThrows(IllegalArgumentException.class, () -> generator.adopt("R".repeat(65)));
+    }
+
+    @Test
+    void testNodeIdOutOfRangeIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TransactionReferenceGenerator(TransactionReferenceGenerator.MAX_NODE_ID + 1));
+    }
+}
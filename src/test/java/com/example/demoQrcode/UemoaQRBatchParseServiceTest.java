@@ -0,0 +1,124 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.service.UemoaQRBatchParseService;
+import com.example.demoQrcode.service.UemoaQRIntegrationService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test du parsing en masse : ordre de sortie, erreurs par payload, formats d'entrée
+ */
+public class UemoaQRBatchParseServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private UemoaQRIntegrationService integrationService;
+    private UemoaQRBatchParseService batchParseService;
+
+    @BeforeEach
+    void setUp() {
+        integrationService = mock(UemoaQRIntegrationService.class);
+        // Durées de parsing variables : les résultats arrivent dans le désordre sur le pool
+        when(integrationService.parseQRCodeQuietly(anyString())).thenAnswer(invocation -> {
+            String qrData = invocation.getArgument(0);
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextInt(200_000));
+            if (qrData.startsWith("BAD")) {
+                throw new IllegalArgumentException("CRC invalide");
+            }
+            return Map.of("success", true, "merchantName", qrData);
+        });
+        batchParseService = new UemoaQRBatchParseService(integrationService, objectMapper);
+        ReflectionTestUtils.setField(batchParseService, "workerThreads", 4);
+        ReflectionTestUtils.setField(batchParseService, "queueCapacity", 100);
+        ReflectionTestUtils.setField(batchParseService, "window", 16);
+        ReflectionTestUtils.invokeMethod(batchParseService, "initExecutor");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(batchParseService, "shutdownExecutor");
+    }
+
+    @Test
+    void testResultsAreWrittenInInputOrder() throws Exception {
+        List<String> payloads = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            payloads.add((i % 7 == 0 ? "BAD-" : "QR-") + i);
+        }
+
+        List<JsonNode> results = parse(objectMapper.writeValueAsString(payloads));
+
+        assertEquals(500, results.size());
+        for (int i = 0; i < 500; i++) {
+            JsonNode result = results.get(i);
+            assertEquals(i, result.get("index").asInt());
+            if (i % 7 == 0) {
+                assertFalse(result.get("success").asBoolean());
+                assertEquals("CRC invalide", result.get("error").asText());
+            } else {
+                assertTrue(result.get("success").asBoolean());
+                assertEquals("QR-" + i, result.get("parsedData").get("merchantName").asText());
+            }
+        }
+        // Le parsing unitaire journalise chaque payload : le lot ne passe jamais par lui
+        verify(integrationService, never()).parseQRCode(any());
+    }
+
+    @Test
+    void testAcceptsNdjsonWithStringsAndObjects() throws Exception {
+        List<JsonNode> results = parse("\"QR-0\"\n{\"qrData\":\"QR-1\"}\n{\"other\":1}\n");
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).get("success").asBoolean());
+        assertEquals("QR-1", results.get(1).get("parsedData").get("merchantName").asText());
+        assertFalse(results.get(2).get("success").asBoolean());
+        verify(integrationService, times(2)).parseQRCodeQuietly(anyString());
+    }
+
+    @Test
+    void testUnreadableInputStopsWithAnErrorEntry() throws Exception {
+        List<JsonNode> results = parse("\"QR-0\"\n\"QR-1\"\n{not json\n\"QR-3\"\n");
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(1).get("success").asBoolean());
+        assertEquals(2, results.get(2).get("index").asInt());
+        assertTrue(results.get(2).get("error").asText().startsWith("JSON invalide"));
+    }
+
+    @Test
+    void testEmptyBatch() throws Exception {
+        assertTrue(parse("[]").isEmpty());
+        assertTrue(parse("").isEmpty());
+    }
+
+    private List<JsonNode> parse(String body) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long written = batchParseService.parseAsNdjson(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), output);
+
+        List<JsonNode> results = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                results.add(objectMapper.readTree(line));
+            }
+        }
+        assertEquals(written, results.size());
+        return results;
+    }
+}
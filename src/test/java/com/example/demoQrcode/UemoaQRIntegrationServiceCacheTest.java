@@ -0,0 +1,145 @@
+package com.example.demoQrcode;
+
+import com.aveplus.uemoa.qr.model.MerchantInfo;
+import com.aveplus.uemoa.qr.model.QRPaymentData;
+import com.aveplus.uemoa.qr.service.UemoaQRService;
+import com.example.demoQrcode.config.UemoaConfig;
+import com.example.demoQrcode.service.QRMetrics;
+import com.example.demoQrcode.service.UemoaQRIntegrationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test du parsing, de son cache par payload et du cache de génération statique du service d'intégration UEMOA
+ */
+public class UemoaQRIntegrationServiceCacheTest {
+
+    private static final String PAYLOAD = "00020101021226580014com.aveplus.uemoa0112int.bceao.pi52045XXX5303360540550005802CI5913LIQUIDATION APP6007Abidjan6304";
+
+    private UemoaQRService uemoaQRService;
+    private SimpleMeterRegistry meterRegistry;
+    private UemoaQRIntegrationService integrationService;
+
+    @BeforeEach
+    void setUp() {
+        uemoaQRService = mock(UemoaQRService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        integrationService = new UemoaQRIntegrationService(uemoaQRService, new UemoaConfig(), meterRegistry, new QRMetrics(meterRegistry));
+        ReflectionTestUtils.setField(integrationService, "parseCacheMaxSize", 100L);
+        ReflectionTestUtils.setField(integrationService, "parseCacheTtl", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(integrationService, "staticCacheMaxSize", 100L);
+        ReflectionTestUtils.setField(integrationService, "staticCacheTtl", Duration.ofHours(1));
+        ReflectionTestUtils.invokeMethod(integrationService, "initCaches");
+    }
+
+    @Test
+    void testParseDoesNotUseTheModule() {
+        String payload = new EmvcoQREncoderTest.ReferenceEncoder(new UemoaConfig()).generateStaticQR(paymentData());
+
+        Map<String, Object> result = integrationService.parseQRCode(payload);
+
+        assertEquals(true, result.get("success"));
+        assertEquals("LIQUIDATION APP", result.get("merchantName"));
+        assertEquals(new BigDecimal("50"), result.get("amount"));
+        verify(uemoaQRService, never()).parseQRCode(any());
+    }
+
+    @Test
+    void testParseRejectsPayloadWithoutCrc() {
+        // PAYLOAD se termine par 6304 sans valeur de CRC
+        assertThrows(RuntimeException.class, () -> integrationService.parseQRCode(PAYLOAD));
+        verify(uemoaQRService, never()).parseQRCode(any());
+    }
+
+    @Test
+    void testParseIsCachedByPayload() {
+        String payload = new EmvcoQREncoderTest.ReferenceEncoder(new UemoaConfig()).generateStaticQR(paymentData());
+
+        Map<String, Object> first = integrationService.parseQRCode(payload);
+        Map<String, Object> second = integrationService.parseQRCode(payload);
+
+        assertSame(first, second);
+        assertEquals(1.0, parseCacheGets("hit"));
+        assertEquals(1.0, parseCacheGets("miss"));
+    }
+
+    @Test
+    void testFailedParseIsNotCached() {
+        assertThrows(RuntimeException.class, () -> integrationService.parseQRCode(PAYLOAD));
+        assertThrows(RuntimeException.class, () -> integrationService.parseQRCode(PAYLOAD));
+
+        assertEquals(0.0, parseCacheGets("hit"));
+        assertEquals(0.0, meterRegistry.get("cache.size").tag("cache", "uemoa.qr.parse").gauge().value());
+    }
+
+    @Test
+    void testQuietParseReadsButDoesNotFillTheCache() {
+        String payload = new EmvcoQREncoderTest.ReferenceEncoder(new UemoaConfig()).generateStaticQR(paymentData());
+
+        integrationService.parseQRCodeQuietly(payload);
+        assertEquals(0.0, meterRegistry.get("cache.size").tag("cache", "uemoa.qr.parse").gauge().value());
+
+        Map<String, Object> cached = integrationService.parseQRCode(payload);
+        assertSame(cached, integrationService.parseQRCodeQuietly(payload));
+    }
+
+    @Test
+    void testQuietParseReturnsTheSameResultAndRawErrors() {
+        String payload = new EmvcoQREncoderTest.ReferenceEncoder(new UemoaConfig()).generateStaticQR(paymentData());
+
+        assertEquals(integrationService.parseQRCode(payload), integrationService.parseQRCodeQuietly(payload));
+        char last = payload.charAt(payload.length() - 1);
+        String tampered = payload.substring(0, payload.length() - 1) + (last == '0' ? '1' : '0');
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> integrationService.parseQRCodeQuietly(tampered));
+        assertEquals("CRC invalide", e.getMessage());
+    }
+
+    @Test
+    void testStaticQRIsCachedByMerchantAndAmount() {
+        when(uemoaQRService.generateStaticQR(any())).thenReturn(PAYLOAD);
+
+        integrationService.generateStaticQR(5000, "MARCHAND A");
+        integrationService.generateStaticQR(5000, "MARCHAND A");
+        integrationService.generateStaticQR(7500, "MARCHAND A");
+
+        verify(uemoaQRService, times(2)).generateStaticQR(any());
+    }
+
+    @Test
+    void testDynamicQRIsNeverCached() {
+        when(uemoaQRService.generateDynamicQR(any())).thenReturn(PAYLOAD);
+
+        integrationService.generateDynamicQR(5000, "MARCHAND A", "REF-1");
+        integrationService.generateDynamicQR(5000, "MARCHAND A", "REF-1");
+
+        verify(uemoaQRService, times(2)).generateDynamicQR(any());
+    }
+
+    private double parseCacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "uemoa.qr.parse").tag("result", result).functionCounter().count();
+    }
+
+    private static QRPaymentData paymentData() {
+        UemoaConfig uemoaConfig = new UemoaConfig();
+        return QRPaymentData.builder()
+                .merchantInfo(MerchantInfo.builder()
+                        .name("LIQUIDATION APP")
+                        .city("Abidjan")
+                        .countryCode(uemoaConfig.getCountryCode())
+                        .categoryCode(uemoaConfig.getMerchantCategoryCode())
+                        .build())
+                .amount(new BigDecimal("50"))
+                .build();
+    }
+}
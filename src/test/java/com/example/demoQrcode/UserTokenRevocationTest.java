@@ -0,0 +1,137 @@
+package com.example.demoQrcode;
+
+import com.example.demoQrcode.entity.Role;
+import com.example.demoQrcode.entity.User;
+import com.example.demoQrcode.repository.RoleRepository;
+import com.example.demoQrcode.repository.UserRepository;
+import com.example.demoQrcode.security.UserCacheEvictionListener;
+import com.example.demoQrcode.service.CustomUserDetailsService;
+import com.example.demoQrcode.service.TokenVersionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de la révocation des JWT quand les rôles d'un utilisateur, ou un rôle, sont modifiés par JPA
+ */
+@DataJpaTest
+// La révocation suit le commit : chaque écriture du test doit être validée
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CustomUserDetailsService.class, TokenVersionService.class, UserCacheEvictionListener.class,
+        UserTokenRevocationTest.Config.class})
+public class UserTokenRevocationTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+            return new TransactionTemplate(transactionManager);
+        }
+    }
+
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Role roleUser;
+    private Role roleAdmin;
+
+    @BeforeEach
+    void setUp() {
+        roleUser = roleRepository.save(new Role("ROLE_USER"));
+        roleAdmin = roleRepository.save(new Role("ROLE_ADMIN"));
+        save("alice", roleUser);
+        save("bob", roleAdmin);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+    }
+
+    @Test
+    void testRoleChangeRevokesTokens() {
+        int issued = tokenVersionService.currentVersion("alice");
+
+        User alice = userRepository.findByUsername("alice").orElseThrow();
+        alice.getRoles().add(roleAdmin);
+        userRepository.save(alice);
+
+        assertFalse(tokenVersionService.isCurrent("alice", issued));
+        assertEquals(issued + 1, tokenVersionService.currentVersion("alice"));
+    }
+
+    @Test
+    void testOtherChangesKeepTokens() {
+        int issued = tokenVersionService.currentVersion("alice");
+
+        User alice = userRepository.findByUsername("alice").orElseThrow();
+        alice.setPassword("autre-hash");
+        userRepository.save(alice);
+
+        assertTrue(tokenVersionService.isCurrent("alice", issued));
+    }
+
+    @Test
+    void testRolledBackRoleChangeKeepsTokens() {
+        int issued = tokenVersionService.currentVersion("alice");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            User alice = userRepository.findByUsername("alice").orElseThrow();
+            alice.getRoles().add(roleAdmin);
+            userRepository.saveAndFlush(alice);
+            status.setRollbackOnly();
+        });
+
+        assertTrue(tokenVersionService.isCurrent("alice", issued));
+    }
+
+    @Test
+    void testRenamedRoleRevokesTokensOfItsHolders() {
+        int aliceIssued = tokenVersionService.currentVersion("alice");
+        int bobIssued = tokenVersionService.currentVersion("bob");
+
+        Role admin = roleRepository.findById(roleAdmin.getId()).orElseThrow();
+        admin.setName("ROLE_SUPERVISOR");
+        roleRepository.save(admin);
+
+        assertTrue(tokenVersionService.isCurrent("alice", aliceIssued));
+        assertFalse(tokenVersionService.isCurrent("bob", bobIssued));
+    }
+
+    private void save(String username, Role role) {
+        User user = new User(username, "hash");
+        user.setRoles(new HashSet<>(Set.of(role)));
+        userRepository.save(user);
+    }
+}